@@ -2,6 +2,8 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.5.7"
 	id("io.spring.dependency-management") version "1.1.7"
+	// Bytecode enhancement - keep in line with the Hibernate version managed by Spring Boot
+	id("org.hibernate.orm") version "6.6.33.Final"
 }
 
 group = "eu.robm15"
@@ -18,6 +20,13 @@ repositories {
 	mavenCentral()
 }
 
+hibernate {
+	enhancement {
+		// Lets @Basic(fetch = LAZY) attributes (TripPlan.planContent) load on first access
+		enableLazyInitialization = true
+	}
+}
+
 dependencyManagement {
 	imports {
 		mavenBom("org.springframework.ai:spring-ai-bom:1.1.0")
@@ -32,11 +41,21 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-validation")
 	implementation("org.thymeleaf.extras:thymeleaf-extras-springsecurity6")
 
+	// Micrometer metrics (cache hit ratios etc.)
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
+
+	// In-process caches (preference snapshots) - version managed by Spring Boot
+	implementation("com.github.ben-manes.caffeine:caffeine")
+
 	// JWT support for Supabase authentication
 	implementation("io.jsonwebtoken:jjwt-api:0.12.6")
 	runtimeOnly("io.jsonwebtoken:jjwt-impl:0.12.6")
 	runtimeOnly("io.jsonwebtoken:jjwt-jackson:0.12.6")
 
+	// Versioned schema migrations (scripts per vendor in db/migration/{vendor})
+	implementation("org.flywaydb:flyway-core")
+	runtimeOnly("org.flywaydb:flyway-database-postgresql")
+
 	runtimeOnly("com.h2database:h2")
 	runtimeOnly("org.postgresql:postgresql")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -49,4 +68,39 @@ dependencies {
 
 tasks.withType<Test> {
 	useJUnitPlatform()
+	// Fixtures written with JdbcTemplate bypass hibernate.jdbc.time_zone; in UTC both store the same values
+	systemProperty("user.timezone", "UTC")
+}
+
+// Precompressed variants of /css and /js, served by the resource chain (StaticResourceConfig) to clients
+// that accept them. Brotli needs the brotli command on the PATH; without it only .gz files are written.
+tasks.processResources {
+	doLast {
+		val brotli = System.getenv("PATH").orEmpty().split(File.pathSeparator)
+			.map { File(it, "brotli") }
+			.firstOrNull { it.canExecute() }
+
+		fileTree(destinationDir.resolve("static")) { include("css/**/*.css", "js/**/*.js") }.forEach { asset ->
+			File(asset.path + ".gz").outputStream().use { file ->
+				object : java.util.zip.GZIPOutputStream(file) {
+					init { def.setLevel(java.util.zip.Deflater.BEST_COMPRESSION) }
+				}.use { gzip -> asset.inputStream().use { it.copyTo(gzip) } }
+			}
+			if (brotli != null) {
+				val exitCode = ProcessBuilder(brotli.path, "--force", "--best", asset.path).inheritIO().start().waitFor()
+				check(exitCode == 0) { "brotli failed for $asset" }
+			}
+		}
+	}
+}
+
+// Platform vs virtual request threads under concurrent plan generation (localh2, mock AI latency)
+// Arguments: ./gradlew benchmarkVirtualThreads --args='<requests> <ai-latency-ms>'
+tasks.register<JavaExec>("benchmarkVirtualThreads") {
+	group = "verification"
+	description = "Compares platform and virtual request threads on the localh2 profile"
+	classpath = sourceSets["test"].runtimeClasspath
+	mainClass = "eu.robm15.tenxdevs.benchmark.VirtualThreadBenchmark"
+	// Same heap for both modes, so peak heap is comparable
+	jvmArgs("-Xms512m", "-Xmx512m")
 }
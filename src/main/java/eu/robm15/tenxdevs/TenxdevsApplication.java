@@ -2,8 +2,10 @@ package eu.robm15.tenxdevs;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class TenxdevsApplication {
 
 	public static void main(String[] args) {
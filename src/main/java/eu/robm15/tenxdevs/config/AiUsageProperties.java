@@ -0,0 +1,142 @@
+package eu.robm15.tenxdevs.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AI usage limits, configured per tier under {@code ai.usage}.
+ * Users are mapped to tiers via {@code ai.usage.user-tiers}; everyone else gets the default tier.
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.usage")
+public class AiUsageProperties {
+
+    private Limit limit = new Limit();
+
+    private String defaultTier = "default";
+
+    private Map<String, TierLimits> tiers = new HashMap<>();
+
+    private Map<String, String> userTiers = new HashMap<>();
+
+    /**
+     * Used when no tier is configured at all: only the daily limit applies
+     */
+    private final TierLimits fallbackTier = new TierLimits();
+
+    /**
+     * Resolve the limits that apply to a user
+     *
+     * @param userId Supabase user ID
+     * @return limits of the user's tier (never null)
+     */
+    public TierLimits limitsFor(String userId) {
+        TierLimits limits = tiers.get(userTiers.getOrDefault(userId, defaultTier));
+        if (limits == null) {
+            limits = tiers.get(defaultTier);
+        }
+        return limits != null ? limits : fallbackTier;
+    }
+
+    /**
+     * Daily limit of the user's tier, falling back to {@code ai.usage.limit.daily}
+     *
+     * @param userId Supabase user ID
+     * @return maximum number of plans per day
+     */
+    public int dailyLimitFor(String userId) {
+        Integer daily = limitsFor(userId).getDaily();
+        return daily != null ? daily : limit.getDaily();
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Limit limit) {
+        this.limit = limit;
+    }
+
+    public String getDefaultTier() {
+        return defaultTier;
+    }
+
+    public void setDefaultTier(String defaultTier) {
+        this.defaultTier = defaultTier;
+    }
+
+    public Map<String, TierLimits> getTiers() {
+        return tiers;
+    }
+
+    public void setTiers(Map<String, TierLimits> tiers) {
+        this.tiers = tiers;
+    }
+
+    public Map<String, String> getUserTiers() {
+        return userTiers;
+    }
+
+    public void setUserTiers(Map<String, String> userTiers) {
+        this.userTiers = userTiers;
+    }
+
+    public static class Limit {
+        /**
+         * Default maximum number of plans a user can generate per day
+         */
+        private int daily = 10;
+
+        public int getDaily() {
+            return daily;
+        }
+
+        public void setDaily(int daily) {
+            this.daily = daily;
+        }
+    }
+
+    public static class TierLimits {
+        /**
+         * Burst limit - plans per minute (0 = no limit)
+         */
+        private int perMinute;
+
+        /**
+         * Plans per hour (0 = no limit)
+         */
+        private int perHour;
+
+        /**
+         * Plans per UTC calendar day, see {@link eu.robm15.tenxdevs.util.UsageDays} (null = ai.usage.limit.daily)
+         */
+        private Integer daily;
+
+        public int getPerMinute() {
+            return perMinute;
+        }
+
+        public void setPerMinute(int perMinute) {
+            this.perMinute = perMinute;
+        }
+
+        public int getPerHour() {
+            return perHour;
+        }
+
+        public void setPerHour(int perHour) {
+            this.perHour = perHour;
+        }
+
+        public Integer getDaily() {
+            return daily;
+        }
+
+        public void setDaily(Integer daily) {
+            this.daily = daily;
+        }
+    }
+}
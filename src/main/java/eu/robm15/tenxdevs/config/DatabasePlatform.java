@@ -0,0 +1,45 @@
+package eu.robm15.tenxdevs.config;
+
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Detects which database the application is connected to.
+ * Used by the few native queries that need vendor-specific SQL (PostgreSQL in
+ * Supabase profiles, H2 for localh2 and tests).
+ */
+@Component
+public class DatabasePlatform {
+
+    private final DataSource dataSource;
+
+    private volatile Boolean postgres;
+
+    public DatabasePlatform(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return true when connected to PostgreSQL, false for H2
+     */
+    public boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = detectPostgres();
+            postgres = result;
+        }
+        return result;
+    }
+
+    private boolean detectPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            String productName = connection.getMetaData().getDatabaseProductName();
+            return productName != null && productName.toLowerCase().contains("postgres");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not detect database platform: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package eu.robm15.tenxdevs.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Idempotency-Key support ({@code IdempotencyFilter}), configured under {@code app.idempotency}.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * POST endpoints that honour the Idempotency-Key header
+     */
+    private List<String> paths = List.of("/api/notes", "/api/trip-plans/generate");
+
+    /**
+     * How long a completed response is replayed to retries with the same key
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * How long an unfinished request holds its key, e.g. if its node died mid-request
+     */
+    private Duration lockTimeout = Duration.ofMinutes(5);
+
+    /**
+     * How long a concurrent duplicate waits for the first request's response before giving up with 409
+     */
+    private Duration waitTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Largest request body read (and hashed) before the key is claimed; larger requests get 413
+     */
+    private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getLockTimeout() {
+        return lockTimeout;
+    }
+
+    public void setLockTimeout(Duration lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+
+    public Duration getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    public void setWaitTimeout(Duration waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+
+    public DataSize getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(DataSize maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+}
@@ -0,0 +1,45 @@
+package eu.robm15.tenxdevs.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Page sizes of the keyset-paginated list endpoints, configured under {@code app.pagination}.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.pagination")
+public class PaginationProperties {
+
+    private int defaultPageSize = 20;
+
+    private int maxPageSize = 100;
+
+    /**
+     * Resolve the page size for a request
+     *
+     * @param requested Page size asked for by the client, or null
+     * @return the requested size clamped to 1..maxPageSize, or the default size
+     */
+    public int pageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(requested, maxPageSize));
+    }
+
+    public int getDefaultPageSize() {
+        return defaultPageSize;
+    }
+
+    public void setDefaultPageSize(int defaultPageSize) {
+        this.defaultPageSize = defaultPageSize;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+}
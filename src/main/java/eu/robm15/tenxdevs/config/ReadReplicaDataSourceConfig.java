@@ -0,0 +1,89 @@
+package eu.robm15.tenxdevs.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Data source and connection handling. The primary/replica data sources are active when
+ * {@code app.datasource.replica.enabled} is true. The primary pool is built from {@code spring.datasource} as usual; the application
+ * (JPA, Flyway, JdbcTemplate) uses the routing data source, which sends
+ * {@code @Transactional(readOnly = true)} work to the replica, see {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(ReadReplicaProperties replica) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(replica.getUrl())
+            .username(replica.getUsername())
+            .password(replica.getPassword())
+            .driverClassName(replica.getDriverClassName())
+            .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+    @Primary
+    public DataSource dataSource(
+        @Qualifier("primaryDataSource") DataSource primaryDataSource,
+        @Qualifier("replicaDataSource") DataSource replicaDataSource,
+        ReadReplicaProperties replica
+    ) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replica.getStickyWindow());
+        routing.setTargetDataSources(Map.of(
+            ReplicaRoutingDataSource.Route.PRIMARY, primaryDataSource,
+            ReplicaRoutingDataSource.Route.REPLICA, replicaDataSource
+        ));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+
+        // Defer picking the target until the first statement, when the transaction is set up
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Give the JDBC connection back after every transaction, with or without a replica.
+     * Hibernate otherwise holds a session's connection until the session closes - with
+     * open-in-view that is the whole request, e.g. the whole AI call of POST /api/trip-plans/generate,
+     * which caps concurrent generations at the pool size regardless of the thread model.
+     * With a replica it also lets every transaction route anew instead of a write after a read
+     * reusing the replica connection.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+            PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
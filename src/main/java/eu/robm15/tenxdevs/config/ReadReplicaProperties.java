@@ -0,0 +1,80 @@
+package eu.robm15.tenxdevs.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Optional read replica, configured under {@code app.datasource.replica}.
+ * When enabled, read-only transactions run on the replica (see {@link ReadReplicaDataSourceConfig});
+ * pool settings go under {@code app.datasource.replica.hikari}.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public class ReadReplicaProperties {
+
+    private boolean enabled;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private String driverClassName;
+
+    /**
+     * How long a user's reads stay on the primary after their last write,
+     * so they see their own changes even while the replica lags behind
+     */
+    private Duration stickyWindow = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getDriverClassName() {
+        return driverClassName;
+    }
+
+    public void setDriverClassName(String driverClassName) {
+        this.driverClassName = driverClassName;
+    }
+
+    public Duration getStickyWindow() {
+        return stickyWindow;
+    }
+
+    public void setStickyWindow(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+}
@@ -0,0 +1,127 @@
+package eu.robm15.tenxdevs.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the replica and everything else to the primary.
+ *
+ * Read-your-writes: after a user's read-write transaction commits, that user's read-only
+ * transactions stay on the primary for the sticky window, so a page reloaded right after
+ * saving doesn't show the old data from a lagging replica. The user is taken from the
+ * security context; requests without an authenticated user are never sticky.
+ * Write times are kept in memory, so stickiness holds per application instance.
+ *
+ * Reads whose result outlives the request - cache fills, quota counters, sync cursors - can't
+ * tolerate replica lag even for other users' data, and are run with {@link #onPrimary(Supplier)}.
+ * Spring Data finders are read-only transactions of their own, so without it they go to the replica.
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the transaction's read-only flag
+ * is only known once the transaction has begun, after the connection was requested.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    /**
+     * Expired write times are dropped once this many users are tracked
+     */
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    /**
+     * Set while {@link #onPrimary(Supplier)} runs on the current thread
+     */
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final long stickyWindowNanos;
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(Duration stickyWindow) {
+        this.stickyWindowNanos = stickyWindow.toNanos();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String userId = currentUserId();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recordWrite(userId);
+                    }
+                });
+            }
+            return Route.PRIMARY;
+        }
+
+        if (PRIMARY_READS.get() != null) {
+            return Route.PRIMARY;
+        }
+        return userId != null && isSticky(userId) ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    /**
+     * Run reads on the primary, including read-only transactions started inside (e.g. repository finders).
+     * Unlike a read-write transaction this doesn't make the user's later reads sticky.
+     * Has no effect on a transaction that already holds a replica connection, so call it outside of one.
+     * Without a replica configured the reads run on the only data source anyway.
+     *
+     * @param reads Database reads to run
+     * @return Result of the reads
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        Boolean previous = PRIMARY_READS.get();
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_READS.remove();
+            }
+        }
+    }
+
+    /**
+     * Keep the user's reads on the primary for the sticky window from now
+     */
+    public void recordWrite(String userId) {
+        long now = System.nanoTime();
+        lastWrites.put(userId, now);
+
+        if (lastWrites.size() > PRUNE_THRESHOLD) {
+            lastWrites.values().removeIf(writtenAt -> now - writtenAt >= stickyWindowNanos);
+        }
+    }
+
+    /**
+     * @return true if the user wrote within the sticky window
+     */
+    public boolean isSticky(String userId) {
+        Long writtenAt = lastWrites.get(userId);
+        return writtenAt != null && System.nanoTime() - writtenAt < stickyWindowNanos;
+    }
+
+    private static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+            || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
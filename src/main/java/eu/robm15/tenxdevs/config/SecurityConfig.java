@@ -71,6 +71,10 @@ public class SecurityConfig {
                     .requestMatchers("/api/preferences/**").authenticated() // Travel preferences endpoints
                     .requestMatchers("/api/notes/**").authenticated() // Notes endpoints
                     .requestMatchers("/api/trip-plans/**").authenticated() // Trip plan endpoints
+                    .requestMatchers("/api/usage/**").authenticated() // AI usage history endpoints
+                    .requestMatchers("/api/export/**").authenticated() // Account export endpoint
+                    .requestMatchers("/api/search/**").authenticated() // Full-text search endpoint
+                    .requestMatchers("/api/admin/**").hasRole("ADMIN") // Operator analytics (app_metadata.roles contains "admin")
                     .requestMatchers("/api/protected/**").authenticated()
                     .anyRequest().authenticated() // All other requests require authentication
                 )
@@ -0,0 +1,89 @@
+package eu.robm15.tenxdevs.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.ContentVersionStrategy;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves /css and /js under content-hash versioned URLs (e.g. /css/app-3f2a...c1.css).
+ * Templates link assets with th:href / th:src, which the resource chain rewrites to the versioned URL,
+ * so a changed file gets a new URL and the old one can be cached as immutable.
+ * Unversioned URLs (e.g. /css/app.css, linked from outside the templates) keep their content when a
+ * file changes, so they are revalidated every time (no-cache) against a content-hash ETag.
+ * Precompressed .br / .gz variants (written by the processResources task) are served when accepted.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    private static final String[] ASSET_DIRECTORIES = {"css", "js"};
+
+    /**
+     * File name with the MD5 content hash {@link ContentVersionStrategy} inserts before the extension;
+     * the handler only serves it if the hash matches the current content
+     */
+    private static final String VERSIONED_FILE = "{file:[\\w.-]+-[0-9a-f]{32}\\.\\w+}";
+
+    private final ContentVersionStrategy contentHash = new ContentVersionStrategy();
+
+    /**
+     * Content hash per served file URL, so a file is read and hashed once rather than on every request
+     */
+    private final Map<String, ContentHash> eTags = new ConcurrentHashMap<>();
+
+    @Value("${app.static-resources.max-age:365d}")
+    private Duration maxAge;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String directory : ASSET_DIRECTORIES) {
+            // The more specific pattern wins, so only hashed URLs are cached as immutable
+            assetChain(registry.addResourceHandler("/" + directory + "/" + VERSIONED_FILE), directory)
+                .setCacheControl(CacheControl.maxAge(maxAge).cachePublic().immutable());
+            assetChain(registry.addResourceHandler("/" + directory + "/**"), directory)
+                .setCacheControl(CacheControl.noCache().cachePublic())
+                .setEtagGenerator(this::eTag);
+        }
+    }
+
+    private ResourceHandlerRegistration assetChain(ResourceHandlerRegistration registration, String directory) {
+        registration.addResourceLocations("classpath:/static/" + directory + "/")
+            .resourceChain(true)
+            .addResolver(new EncodedResourceResolver())
+            .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        return registration;
+    }
+
+    /**
+     * Content hash of the served file (the .br / .gz variant has its own), as in the versioned URLs.
+     * Computed once per file and again only when its modification time changes (e.g. in development).
+     */
+    private String eTag(Resource resource) {
+        String url;
+        long lastModified;
+        try {
+            url = resource.getURL().toString();
+            lastModified = resource.lastModified();
+        } catch (IOException e) {
+            return contentHash.getResourceVersion(resource);
+        }
+        return eTags.compute(url, (key, cached) -> cached != null && cached.lastModified() == lastModified
+                ? cached
+                : new ContentHash(lastModified, contentHash.getResourceVersion(resource)))
+            .hash();
+    }
+
+    private record ContentHash(long lastModified, String hash) {
+    }
+}
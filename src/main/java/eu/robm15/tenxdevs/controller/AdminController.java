@@ -0,0 +1,83 @@
+package eu.robm15.tenxdevs.controller;
+
+import eu.robm15.tenxdevs.model.RatingAggregate;
+import eu.robm15.tenxdevs.model.RatingDimension;
+import eu.robm15.tenxdevs.service.RatingAggregateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * REST Controller for operator analytics. Requires the ADMIN role (JWT app_metadata.roles contains "admin").
+ * Reads only pre-aggregated tables, never raw trip plans.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final int MAX_AGGREGATES = 1000;
+
+    @Autowired
+    private RatingAggregateService ratingAggregateService;
+
+    /**
+     * Get plan ratings and AI latency per user, prompt version, model or preferences fingerprint
+     *
+     * @param dimension user, prompt_version, model or preferences (default model)
+     * @param limit     Maximum number of rows, most rated first (1-1000, default 100)
+     * @return Rating count, average and histogram plus generation count and average latency per value
+     */
+    @GetMapping("/rating-aggregates")
+    public ResponseEntity<Map<String, Object>> getRatingAggregates(
+            @RequestParam(defaultValue = "model") String dimension,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        RatingDimension ratingDimension;
+        try {
+            ratingDimension = RatingDimension.valueOf(dimension.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Dimension must be one of user, prompt_version, model, preferences");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        if (limit < 1 || limit > MAX_AGGREGATES) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Limit must be between 1 and " + MAX_AGGREGATES);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        List<Map<String, Object>> aggregates = new ArrayList<>();
+        for (RatingAggregate aggregate : ratingAggregateService.getAggregates(ratingDimension, limit)) {
+            long[] histogram = aggregate.getHistogram();
+            Map<String, Long> ratings = new HashMap<>();
+            for (int rating = 1; rating <= histogram.length; rating++) {
+                ratings.put(String.valueOf(rating), histogram[rating - 1]);
+            }
+
+            Map<String, Object> row = new HashMap<>();
+            row.put("value", aggregate.getDimensionValue());
+            row.put("rating_count", aggregate.getRatingCount());
+            row.put("average_rating", aggregate.getAverageRating());
+            row.put("histogram", ratings);
+            row.put("generations", aggregate.getGenerations());
+            row.put("average_generation_ms", aggregate.getAverageGenerationMs());
+            aggregates.add(row);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("dimension", ratingDimension.name().toLowerCase(Locale.ROOT));
+        response.put("aggregates", aggregates);
+
+        return ResponseEntity.ok(response);
+    }
+}
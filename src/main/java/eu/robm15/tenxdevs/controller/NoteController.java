@@ -1,17 +1,33 @@
 package eu.robm15.tenxdevs.controller;
 
+import eu.robm15.tenxdevs.config.PaginationProperties;
 import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.NoteChanges;
+import eu.robm15.tenxdevs.model.NoteDeletion;
+import eu.robm15.tenxdevs.model.NoteSummary;
+import eu.robm15.tenxdevs.service.NoteImportService;
 import eu.robm15.tenxdevs.service.NoteService;
+import eu.robm15.tenxdevs.service.NoteSyncService;
 import eu.robm15.tenxdevs.service.SupabaseJwtService;
+import eu.robm15.tenxdevs.service.SyncCursorExpiredException;
+import eu.robm15.tenxdevs.service.VersionConflictException;
+import eu.robm15.tenxdevs.util.EntityTags;
+import eu.robm15.tenxdevs.util.KeysetPage;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * REST Controller for managing travel notes.
@@ -21,28 +37,142 @@ import java.util.Map;
 @RequestMapping("/api/notes")
 public class NoteController {
 
+    /**
+     * Response header carrying the cursor of the next page (absent on the last page)
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Response header of the first page carrying the cursor for GET /api/notes/changes
+     */
+    public static final String SYNC_CURSOR_HEADER = "X-Sync-Cursor";
+
     @Autowired
     private NoteService noteService;
 
+    @Autowired
+    private NoteImportService noteImportService;
+
+    @Autowired
+    private NoteSyncService noteSyncService;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
     @Autowired(required = false) // Optional for localh2 profile
     private SupabaseJwtService jwtService;
 
     /**
-     * Get all notes for the authenticated user.
+     * Get note summaries for the authenticated user, newest first, one page at a time.
+     * Summaries contain a content snippet; the full content is returned by GET /api/notes/{id}.
+     * The cursor for the next page is returned in the X-Next-Cursor header; the first page also
+     * carries an X-Sync-Cursor header for keeping the list up to date with GET /api/notes/changes.
+     * All pages share a weak ETag of the whole list; with a matching If-None-Match
+     * the answer is 304 and no page is loaded (a 304 for the first page still carries X-Sync-Cursor).
      *
+     * @param cursor Token from the previous page's X-Next-Cursor header, omitted for the first page
+     * @param size Page size (defaults to app.pagination.default-page-size)
      * @param request HTTP request containing JWT token
-     * @return List of notes belonging to the user
+     * @return Page of note summaries belonging to the user
      */
     @GetMapping
-    public ResponseEntity<List<Note>> getAllNotes(HttpServletRequest request) {
+    public ResponseEntity<List<NoteSummary>> getAllNotes(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request
+    ) {
+        String userId = extractUserId(request);
+
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        // Taken before the list is read, so changes made while it loads are picked up by the first sync
+        String syncCursor = cursor == null ? noteSyncService.currentCursor() : null;
+
+        String eTag = noteService.getNotesETag(userId);
+        if (EntityTags.isNotModified(request, eTag)) {
+            // The client's copy is current, so it can sync from now on as well
+            ResponseEntity.HeadersBuilder<?> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag).cacheControl(EntityTags.REVALIDATE);
+            if (syncCursor != null) {
+                notModified.header(SYNC_CURSOR_HEADER, syncCursor);
+            }
+            return notModified.build();
+        }
+
+        KeysetPage<NoteSummary> page;
+        try {
+            page = noteService.getNotesPage(userId, cursor, paginationProperties.pageSize(size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag).cacheControl(EntityTags.REVALIDATE);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        if (syncCursor != null) {
+            response.header(SYNC_CURSOR_HEADER, syncCursor);
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Get the changes to the authenticated user's notes since a sync cursor (delta sync):
+     * notes created or updated after it, oldest change first, and the IDs of notes deleted since.
+     * Clients apply the changes to their local copy and keep next_cursor for the next sync;
+     * with has_more set they sync again right away. A change may be delivered more than once.
+     *
+     * @param since Cursor from the X-Sync-Cursor header of GET /api/notes or from the previous sync;
+     *              omitted to get every note
+     * @param size Maximum number of changed notes (defaults to app.pagination.default-page-size)
+     * @param request HTTP request containing JWT token
+     * @return Changed notes, deleted note IDs and the next cursor; 410 Gone if the cursor is too old
+     *         and the client has to reload the full list
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<Map<String, Object>> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request
+    ) {
         String userId = extractUserId(request);
 
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        List<Note> notes = noteService.getAllNotesByUserId(userId);
-        return ResponseEntity.ok(notes);
+        NoteChanges changes;
+        try {
+            changes = noteSyncService.getChanges(userId, since, paginationProperties.pageSize(size));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (SyncCursorExpiredException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage() + ". Reload all notes.");
+            return ResponseEntity.status(HttpStatus.GONE).body(errorResponse);
+        }
+
+        List<Map<String, Object>> deleted = new ArrayList<>(changes.deleted().size());
+        for (NoteDeletion deletion : changes.deleted()) {
+            Map<String, Object> tombstone = new HashMap<>();
+            tombstone.put("id", deletion.getNoteId());
+            tombstone.put("deleted_at", deletion.getDeletedAt());
+            deleted.add(tombstone);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("notes", changes.notes());
+        response.put("deleted", deleted);
+        response.put("next_cursor", changes.nextCursor());
+        response.put("has_more", changes.hasMore());
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(response);
     }
 
     /**
@@ -51,7 +181,8 @@ public class NoteController {
      *
      * @param id The note ID
      * @param request HTTP request containing JWT token
-     * @return The requested note if found and owned by the user
+     * @return The requested note if found and owned by the user, with its version as ETag
+     *         (304 without loading the note if If-None-Match has the current version)
      */
     @GetMapping("/{id}")
     public ResponseEntity<Note> getNoteById(@PathVariable Long id, HttpServletRequest request) {
@@ -61,8 +192,23 @@ public class NoteController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
+        // Revalidation only needs the version; the note is loaded if it changed
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = noteService.getNoteVersion(id, userId);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            String eTag = EntityTags.of(version.get());
+            if (EntityTags.isNotModified(request, eTag)) {
+                return EntityTags.notModified(eTag);
+            }
+        }
+
         return noteService.getNoteByIdAndUserId(id, userId)
-                .map(ResponseEntity::ok)
+                .map(note -> ResponseEntity.ok()
+                        .eTag(EntityTags.of(note.getVersion()))
+                        .cacheControl(EntityTags.REVALIDATE)
+                        .body(note))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -117,19 +263,62 @@ public class NoteController {
         }
     }
 
+    /**
+     * Import many notes at once for the authenticated user.
+     * Accepts a JSON array of {"title", "content"} objects or NDJSON (one object per line).
+     * The body is read as a stream and saved in batches; invalid rows are skipped and reported.
+     *
+     * @param request HTTP request containing JWT token and the notes to import
+     * @return Number of imported notes and per-row errors
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Map<String, Object>> importNotes(HttpServletRequest request) {
+        String userId = extractUserId(request);
+
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            NoteImportService.ImportResult result = noteImportService.importNotes(userId, request.getInputStream());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", !result.isAborted() && result.getFailed() == 0);
+            response.put("message", "Imported " + result.getImported() + " notes");
+            response.put("imported", result.getImported());
+            response.put("failed", result.getFailed());
+            response.put("aborted", result.isAborted());
+            response.put("errors", result.getErrors());
+
+            // Malformed input is a client error even if some notes were saved before it
+            HttpStatus status = result.isAborted() ? HttpStatus.BAD_REQUEST : HttpStatus.OK;
+            return ResponseEntity.status(status).body(response);
+        } catch (IOException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to import notes: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     /**
      * Update an existing note.
      * Ensures the note belongs to the authenticated user.
+     * With an If-Match header (the ETag from GET /api/notes/{id}) the update only succeeds if
+     * nobody changed the note in the meantime; otherwise 412 Precondition Failed is returned.
      *
      * @param id The note ID
      * @param noteRequest The updated note data
+     * @param ifMatch ETag of the version the client edited, optional
      * @param request HTTP request containing JWT token
-     * @return The updated note
+     * @return The updated note, with its new version as ETag
      */
     @PutMapping("/{id}")
     public ResponseEntity<Map<String, Object>> updateNote(
             @PathVariable Long id,
             @RequestBody NoteRequest noteRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             HttpServletRequest request
     ) {
         String userId = extractUserId(request);
@@ -138,6 +327,16 @@ public class NoteController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
+        Long expectedVersion;
+        try {
+            expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
         // Validate input
         if (noteRequest.getTitle() == null || noteRequest.getTitle().trim().isEmpty()) {
             Map<String, Object> errorResponse = new HashMap<>();
@@ -154,13 +353,13 @@ public class NoteController {
         }
 
         try {
-            return noteService.updateNote(id, userId, noteRequest.getTitle(), noteRequest.getContent())
+            return noteService.updateNote(id, userId, noteRequest.getTitle(), noteRequest.getContent(), expectedVersion)
                     .map(note -> {
                         Map<String, Object> response = new HashMap<>();
                         response.put("success", true);
                         response.put("message", "Note updated successfully");
                         response.put("note", note);
-                        return ResponseEntity.ok(response);
+                        return ResponseEntity.ok().eTag(EntityTags.of(note.getVersion())).body(response);
                     })
                     .orElseGet(() -> {
                         Map<String, Object> errorResponse = new HashMap<>();
@@ -168,6 +367,12 @@ public class NoteController {
                         errorResponse.put("message", "Note not found");
                         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
                     });
+        } catch (VersionConflictException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage() + ". Reload the note and apply your changes again.");
+
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -3,8 +3,12 @@ package eu.robm15.tenxdevs.controller;
 import eu.robm15.tenxdevs.model.*;
 import eu.robm15.tenxdevs.service.SupabaseJwtService;
 import eu.robm15.tenxdevs.service.TravelPreferencesService;
+import eu.robm15.tenxdevs.service.VersionConflictException;
+import eu.robm15.tenxdevs.util.EntityTags;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -40,7 +44,8 @@ public class PreferencesController {
     }
 
     /**
-     * Get current user's travel preferences
+     * Get current user's travel preferences, with their version as ETag
+     * (304 without loading them if If-None-Match has the current version)
      */
     @GetMapping
     public ResponseEntity<TravelPreferences> getPreferences(HttpServletRequest request) {
@@ -50,19 +55,37 @@ public class PreferencesController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
+        // Revalidation only needs the version; the preferences are loaded if they changed
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = preferencesService.getPreferencesVersion(userId);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            String eTag = EntityTags.of(version.get());
+            if (EntityTags.isNotModified(request, eTag)) {
+                return EntityTags.notModified(eTag);
+            }
+        }
+
         Optional<TravelPreferences> preferences = preferencesService.getPreferencesByUserId(userId);
 
         return preferences
-            .map(ResponseEntity::ok)
+            .map(prefs -> ResponseEntity.ok()
+                .eTag(EntityTags.of(prefs.getVersion()))
+                .cacheControl(EntityTags.REVALIDATE)
+                .body(prefs))
             .orElse(ResponseEntity.notFound().build());
     }
 
     /**
-     * Save or update current user's travel preferences
+     * Save or update current user's travel preferences.
+     * With an If-Match header (the ETag from GET /api/preferences) the save only succeeds if
+     * nobody changed the preferences in the meantime; otherwise 412 Precondition Failed is returned.
      */
     @PostMapping
     public ResponseEntity<Map<String, Object>> savePreferences(
         @RequestBody TravelPreferences preferences,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
         HttpServletRequest request
     ) {
         String userId = extractUserId(request);
@@ -71,15 +94,33 @@ public class PreferencesController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
+        Long expectedVersion;
+        try {
+            expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
         try {
-            TravelPreferences savedPreferences = preferencesService.savePreferences(userId, preferences);
+            TravelPreferences savedPreferences = preferencesService.savePreferences(userId, preferences, expectedVersion);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Preferences saved successfully");
             response.put("preferences", savedPreferences);
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(EntityTags.of(savedPreferences.getVersion())).body(response);
+        } catch (VersionConflictException | OptimisticLockingFailureException e) {
+            // Either the If-Match version is stale, or another request updated the row concurrently
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Your preferences were changed elsewhere. Reload the page and save again.");
+
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -0,0 +1,99 @@
+package eu.robm15.tenxdevs.controller;
+
+import eu.robm15.tenxdevs.config.PaginationProperties;
+import eu.robm15.tenxdevs.model.SearchHit;
+import eu.robm15.tenxdevs.service.SearchService;
+import eu.robm15.tenxdevs.service.SupabaseJwtService;
+import eu.robm15.tenxdevs.util.KeysetPage;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller for full-text search across the user's notes and trip plans.
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    @Autowired(required = false) // Optional for localh2 profile
+    private SupabaseJwtService jwtService;
+
+    /**
+     * Search notes (title and content) and trip plans (content), best match first.
+     * Each result has an HTML snippet with the matched words wrapped in &lt;mark&gt;.
+     * The cursor for the next page is returned in the X-Next-Cursor header.
+     *
+     * @param q Search words - all of them must match
+     * @param cursor Token from the previous page's X-Next-Cursor header, omitted for the first page
+     * @param size Page size (defaults to app.pagination.default-page-size)
+     * @param request HTTP request containing JWT token
+     * @return Page of matching notes and plans
+     */
+    @GetMapping
+    public ResponseEntity<List<SearchHit>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request
+    ) {
+        String userId = extractUserId(request);
+
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        String query = q.trim();
+        if (query.isEmpty() || query.length() > SearchService.MAX_QUERY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        KeysetPage<SearchHit> page;
+        try {
+            page = searchService.search(userId, query, cursor, paginationProperties.pageSize(size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NoteController.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Extract user ID from JWT token in the request.
+     *
+     * @param request HTTP request
+     * @return User ID from JWT or mock user ID for localh2 profile
+     */
+    private String extractUserId(HttpServletRequest request) {
+        // For localh2 profile (mock auth), return a default user ID
+        if (jwtService == null) {
+            return "mock-user-id";
+        }
+
+        String authHeader = request.getHeader("Authorization");
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            return jwtService.extractSubject(token);
+        }
+
+        return null;
+    }
+}
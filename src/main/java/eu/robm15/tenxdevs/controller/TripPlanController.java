@@ -1,13 +1,22 @@
 package eu.robm15.tenxdevs.controller;
 
+import eu.robm15.tenxdevs.config.PaginationProperties;
 import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.NotePlanStats;
 import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.model.TripPlanSummary;
 import eu.robm15.tenxdevs.service.AIUsageLimitService;
 import eu.robm15.tenxdevs.service.NoteService;
+import eu.robm15.tenxdevs.service.RateLimitExceededException;
+import eu.robm15.tenxdevs.service.RateLimitService;
 import eu.robm15.tenxdevs.service.SupabaseJwtService;
 import eu.robm15.tenxdevs.service.TripPlanService;
+import eu.robm15.tenxdevs.util.EntityTags;
+import eu.robm15.tenxdevs.util.KeysetPage;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -34,6 +43,12 @@ public class TripPlanController {
     @Autowired
     private AIUsageLimitService aiUsageLimitService;
 
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
     @Autowired(required = false) // Optional for localh2 profile
     private SupabaseJwtService jwtService;
 
@@ -41,16 +56,18 @@ public class TripPlanController {
      * Check if user can generate a plan for a specific note.
      * Validates:
      * - User has at least 3 preferences filled
-     * - User has not exceeded AI usage limit
+     * - User has not exceeded AI usage limits (daily and short-window rate limits)
      *
-     * @param noteId  Note ID to generate plan for
-     * @param request HTTP request containing JWT token
+     * @param noteId       Note ID to generate plan for
+     * @param request      HTTP request containing JWT token
+     * @param httpResponse HTTP response, receives X-RateLimit-* headers
      * @return Validation result with can_generate flag and messages
      */
     @GetMapping("/can-generate")
     public ResponseEntity<Map<String, Object>> canGeneratePlan(
             @RequestParam Long noteId,
-            HttpServletRequest request
+            HttpServletRequest request,
+            HttpServletResponse httpResponse
     ) {
         String userId = extractUserId(request);
 
@@ -77,10 +94,12 @@ public class TripPlanController {
             return ResponseEntity.ok(response);
         }
 
+        rateLimitService.writeHeaders(httpResponse, userId);
+
         // Check AI usage limit
         boolean canUseAI = aiUsageLimitService.canGeneratePlan(userId);
         if (!canUseAI) {
-            int dailyLimit = aiUsageLimitService.getDailyLimit();
+            int dailyLimit = aiUsageLimitService.getDailyLimit(userId);
             response.put("can_generate", false);
             response.put("reason", "Daily AI usage limit exceeded (" + dailyLimit + " plans per day)");
             response.put("limit_exceeded", true);
@@ -88,10 +107,21 @@ public class TripPlanController {
             return ResponseEntity.ok(response);
         }
 
+        // Check short-window rate limits
+        long waitNanos = rateLimitService.nanosUntilAvailable(userId);
+        if (waitNanos > 0) {
+            long retryAfterSeconds = RateLimitService.toSeconds(waitNanos);
+            response.put("can_generate", false);
+            response.put("reason", "Too many plans generated in a short time. Try again in " + retryAfterSeconds + " seconds");
+            response.put("rate_limited", true);
+            response.put("retry_after_seconds", retryAfterSeconds);
+            return ResponseEntity.ok(response);
+        }
+
         // All checks passed
         response.put("can_generate", true);
         response.put("remaining_usage", aiUsageLimitService.getRemainingUsage(userId));
-        response.put("daily_limit", aiUsageLimitService.getDailyLimit());
+        response.put("daily_limit", aiUsageLimitService.getDailyLimit(userId));
 
         return ResponseEntity.ok(response);
     }
@@ -99,13 +129,15 @@ public class TripPlanController {
     /**
      * Generate a trip plan for a note (US-009)
      *
-     * @param request HTTP request containing JWT token
+     * @param request      HTTP request containing JWT token
+     * @param httpResponse HTTP response, receives X-RateLimit-* headers
      * @return Generated trip plan or error
      */
     @PostMapping("/generate")
     public ResponseEntity<Map<String, Object>> generatePlan(
             @RequestBody GeneratePlanRequest generateRequest,
-            HttpServletRequest request
+            HttpServletRequest request,
+            HttpServletResponse httpResponse
     ) {
         String userId = extractUserId(request);
 
@@ -133,9 +165,22 @@ public class TripPlanController {
             response.put("message", "Trip plan generated successfully");
             response.put("trip_plan", tripPlan);
             response.put("remaining_usage", aiUsageLimitService.getRemainingUsage(userId));
+            rateLimitService.writeHeaders(httpResponse, userId);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
+        } catch (RateLimitExceededException e) {
+            // Short-window rate limit - the client may retry after the given delay
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            response.put("rate_limited", true);
+            response.put("retry_after_seconds", e.getRetryAfterSeconds());
+            rateLimitService.writeHeaders(httpResponse, userId);
+
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+
         } catch (IllegalStateException e) {
             // Validation errors (insufficient preferences, limit exceeded)
             response.put("success", false);
@@ -145,7 +190,8 @@ public class TripPlanController {
                 response.put("missing_preferences", true);
             } else if (e.getMessage().contains("limit")) {
                 response.put("limit_exceeded", true);
-                response.put("daily_limit", aiUsageLimitService.getDailyLimit());
+                response.put("daily_limit", aiUsageLimitService.getDailyLimit(userId));
+                rateLimitService.writeHeaders(httpResponse, userId);
             }
 
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
@@ -159,15 +205,23 @@ public class TripPlanController {
     }
 
     /**
-     * Get all trip plans for a specific note
+     * Get trip plan summaries for a specific note, newest first, one page at a time.
+     * Summaries contain metadata and a one-line preview; the full plan is returned by GET /api/trip-plans/{id}.
+     * The cursor for the next page is returned in the X-Next-Cursor header.
+     * All pages share a weak ETag of the note's plan list; with a matching If-None-Match
+     * the answer is 304 and no page is loaded.
      *
      * @param noteId  Note ID
+     * @param cursor  Token from the previous page's X-Next-Cursor header, omitted for the first page
+     * @param size    Page size (defaults to app.pagination.default-page-size)
      * @param request HTTP request containing JWT token
-     * @return List of trip plans
+     * @return Page of trip plan summaries
      */
     @GetMapping
-    public ResponseEntity<List<TripPlan>> getPlansByNote(
+    public ResponseEntity<List<TripPlanSummary>> getPlansByNote(
             @RequestParam Long noteId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
             HttpServletRequest request
     ) {
         String userId = extractUserId(request);
@@ -177,13 +231,61 @@ public class TripPlanController {
         }
 
         // Validate note exists and belongs to user
-        Optional<Note> noteOpt = noteService.getNoteByIdAndUserId(noteId, userId);
-        if (noteOpt.isEmpty()) {
+        if (!noteService.noteExists(noteId, userId)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        List<TripPlan> plans = tripPlanService.getPlansByNoteId(noteId);
-        return ResponseEntity.ok(plans);
+        String eTag = tripPlanService.getPlansETag(noteId);
+        if (EntityTags.isNotModified(request, eTag)) {
+            return EntityTags.notModified(eTag);
+        }
+
+        KeysetPage<TripPlanSummary> page;
+        try {
+            page = tripPlanService.getPlansPage(noteId, cursor, paginationProperties.pageSize(size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag).cacheControl(EntityTags.REVALIDATE);
+        if (page.nextCursor() != null) {
+            response.header(NoteController.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Get plan statistics for several notes at once (plan count, latest plan ID, latest rating,
+     * average rating), so the note list doesn't need one request per note.
+     *
+     * @param noteIds Note IDs (e.g. the current page of the note list); omit for all of the user's notes
+     * @param request HTTP request containing JWT token
+     * @return Statistics keyed by note ID
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getPlanStats(
+            @RequestParam(required = false) List<Long> noteIds,
+            HttpServletRequest request
+    ) {
+        String userId = extractUserId(request);
+
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+
+        int maxNotes = paginationProperties.getMaxPageSize();
+        if (noteIds != null && noteIds.size() > maxNotes) {
+            response.put("success", false);
+            response.put("message", "At most " + maxNotes + " note IDs can be requested at once");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        Map<Long, NotePlanStats> stats = tripPlanService.getPlanStats(userId, noteIds);
+        response.put("stats", stats);
+
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -225,7 +327,7 @@ public class TripPlanController {
      *
      * @param id      Plan ID
      * @param request HTTP request containing JWT token
-     * @return Updated trip plan
+     * @return Plan ID and its new rating
      */
     @PutMapping("/{id}/rate")
     public ResponseEntity<Map<String, Object>> ratePlan(
@@ -242,17 +344,16 @@ public class TripPlanController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Optional<TripPlan> updatedPlan = tripPlanService.ratePlan(id, userId, rateRequest.getRating());
+            int updated = tripPlanService.ratePlan(id, userId, rateRequest.getRating());
 
-            if (updatedPlan.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "Trip plan not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            if (updated == 0) {
+                return notUpdated(id, "Cannot rate plan owned by another user");
             }
 
             response.put("success", true);
             response.put("message", "Trip plan rated successfully");
-            response.put("trip_plan", updatedPlan.get());
+            response.put("trip_plan_id", id);
+            response.put("rating", rateRequest.getRating());
 
             return ResponseEntity.ok(response);
 
@@ -261,11 +362,6 @@ public class TripPlanController {
             response.put("message", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
 
-        } catch (IllegalStateException e) {
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
-
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Failed to rate trip plan: " + e.getMessage());
@@ -294,22 +390,15 @@ public class TripPlanController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            boolean deleted = tripPlanService.deletePlan(id, userId);
+            int deleted = tripPlanService.deletePlan(id, userId);
 
-            if (deleted) {
-                response.put("success", true);
-                response.put("message", "Trip plan deleted successfully");
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("success", false);
-                response.put("message", "Trip plan not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            if (deleted == 0) {
+                return notUpdated(id, "Cannot delete plan owned by another user");
             }
 
-        } catch (IllegalStateException e) {
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+            response.put("success", true);
+            response.put("message", "Trip plan deleted successfully");
+            return ResponseEntity.ok(response);
 
         } catch (Exception e) {
             response.put("success", false);
@@ -318,6 +407,23 @@ public class TripPlanController {
         }
     }
 
+    /**
+     * Response for an ownership-checked statement that changed no rows:
+     * 404 if the plan doesn't exist, 403 if it belongs to another user
+     */
+    private ResponseEntity<Map<String, Object>> notUpdated(Long id, String forbiddenMessage) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+
+        if (!tripPlanService.planExists(id)) {
+            response.put("message", "Trip plan not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+
+        response.put("message", forbiddenMessage);
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
     /**
      * Extract user ID from JWT token in the request
      */
@@ -0,0 +1,89 @@
+package eu.robm15.tenxdevs.controller;
+
+import eu.robm15.tenxdevs.model.DailyUsage;
+import eu.robm15.tenxdevs.service.AIUsageLimitService;
+import eu.robm15.tenxdevs.service.SupabaseJwtService;
+import eu.robm15.tenxdevs.service.UsageRollupService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for AI usage statistics.
+ * Reads only the pre-aggregated daily_usage rollup, never raw trip plans.
+ */
+@RestController
+@RequestMapping("/api/usage")
+public class UsageController {
+
+    private static final int MAX_HISTORY_DAYS = 366;
+
+    @Autowired
+    private UsageRollupService usageRollupService;
+
+    @Autowired
+    private AIUsageLimitService aiUsageLimitService;
+
+    @Autowired(required = false) // Optional for localh2 profile
+    private SupabaseJwtService jwtService;
+
+    /**
+     * Get the user's AI usage per day
+     *
+     * @param days    Number of days to return, including today (1-366, default 30)
+     * @param request HTTP request containing JWT token
+     * @return Daily usage rows plus the current daily limit and remaining usage
+     */
+    @GetMapping("/history")
+    public ResponseEntity<Map<String, Object>> getUsageHistory(
+            @RequestParam(defaultValue = "30") int days,
+            HttpServletRequest request
+    ) {
+        String userId = extractUserId(request);
+
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        if (days < 1 || days > MAX_HISTORY_DAYS) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Days must be between 1 and " + MAX_HISTORY_DAYS);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        List<DailyUsage> history = usageRollupService.getHistory(userId, days);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("history", history);
+        response.put("daily_limit", aiUsageLimitService.getDailyLimit(userId));
+        response.put("remaining_usage", aiUsageLimitService.getRemainingUsage(userId));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Extract user ID from JWT token in the request
+     */
+    private String extractUserId(HttpServletRequest request) {
+        // For localh2 profile (mock auth), return a default user ID
+        if (jwtService == null) {
+            return "mock-user-id";
+        }
+
+        String authHeader = request.getHeader("Authorization");
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            return jwtService.extractSubject(token);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Pre-aggregated AI usage of a user on one day.
+ * Maintained incrementally whenever a plan is generated, so usage history can be
+ * read without counting trip_plans rows. Days are the server-local dates of plan creation.
+ */
+@Entity
+@Table(name = "daily_usage")
+@IdClass(DailyUsage.Key.class)
+public class DailyUsage {
+
+    /**
+     * Supabase user ID
+     */
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /**
+     * Usage day (UTC, see {@link eu.robm15.tenxdevs.util.UsageDays}) the usage is aggregated for
+     */
+    @Id
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    /**
+     * Number of generated plans
+     */
+    @Column(name = "generations", nullable = false)
+    private int generations;
+
+    /**
+     * Total AI tokens (prompt + completion) used by the generations
+     */
+    @Column(name = "tokens", nullable = false)
+    private long tokens;
+
+    /**
+     * Plan generations answered without calling the AI model (replayed Idempotency-Key retries)
+     */
+    @Column(name = "cache_hits", nullable = false)
+    private int cacheHits;
+
+    // Constructors
+
+    public DailyUsage() {
+    }
+
+    // Getters and Setters
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getUsageDate() {
+        return usageDate;
+    }
+
+    public void setUsageDate(LocalDate usageDate) {
+        this.usageDate = usageDate;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public void setGenerations(int generations) {
+        this.generations = generations;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(long tokens) {
+        this.tokens = tokens;
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public void setCacheHits(int cacheHits) {
+        this.cacheHits = cacheHits;
+    }
+
+    /**
+     * Composite primary key (user, day)
+     */
+    public static class Key implements Serializable {
+
+        private String userId;
+        private LocalDate usageDate;
+
+        public Key() {
+        }
+
+        public Key(String userId, LocalDate usageDate) {
+            this.userId = userId;
+            this.usageDate = usageDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(usageDate, key.usageDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, usageDate);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.AttributeConverter;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Persists a set of enum constants as a single integer column, one bit per constant.
+ * The bit position is the constant's ordinal, so enums stored this way must only be
+ * extended by appending new constants - never reorder or remove existing ones.
+ *
+ * @param <E> Enum type (at most 31 constants)
+ */
+public abstract class EnumSetBitmaskConverter<E extends Enum<E>> implements AttributeConverter<Set<E>, Integer> {
+
+    private final Class<E> enumType;
+
+    protected EnumSetBitmaskConverter(Class<E> enumType) {
+        if (enumType.getEnumConstants().length > Integer.SIZE - 1) {
+            throw new IllegalArgumentException(enumType.getSimpleName() + " has too many constants for an INTEGER bitmask");
+        }
+        this.enumType = enumType;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(Set<E> values) {
+        int mask = 0;
+        if (values != null) {
+            for (E value : values) {
+                mask |= 1 << value.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public Set<E> convertToEntityAttribute(Integer mask) {
+        EnumSet<E> values = EnumSet.noneOf(enumType);
+        if (mask != null) {
+            for (E constant : enumType.getEnumConstants()) {
+                if ((mask & (1 << constant.ordinal())) != 0) {
+                    values.add(constant);
+                }
+            }
+        }
+        return values;
+    }
+
+    public static class Interests extends EnumSetBitmaskConverter<Interest> {
+        public Interests() {
+            super(Interest.class);
+        }
+    }
+
+    public static class Transports extends EnumSetBitmaskConverter<Transport> {
+        public Transports() {
+            super(Transport.class);
+        }
+    }
+
+    public static class FoodPreferences extends EnumSetBitmaskConverter<FoodPreference> {
+        public FoodPreferences() {
+            super(FoodPreference.class);
+        }
+    }
+}
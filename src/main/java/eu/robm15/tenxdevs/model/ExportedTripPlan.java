@@ -0,0 +1,23 @@
+package eu.robm15.tenxdevs.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trip plan as written to an account export. Read as a plain row from trip_plans and
+ * trip_plans_archive, so the lazily fetched plan content comes in the same row instead of
+ * one extra query per plan, and archived plans are exported too.
+ *
+ * @param id          Plan ID
+ * @param noteId      ID of the note the plan was generated for
+ * @param rating      User rating (1-5), null if not rated
+ * @param createdAt   Generation time
+ * @param planContent Full plan text
+ */
+public record ExportedTripPlan(
+    Long id,
+    Long noteId,
+    Integer rating,
+    LocalDateTime createdAt,
+    String planContent
+) {
+}
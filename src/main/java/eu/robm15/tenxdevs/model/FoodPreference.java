@@ -1,5 +1,9 @@
 package eu.robm15.tenxdevs.model;
 
+/**
+ * Stored in {@link TravelPreferences} as a bitmask keyed by ordinal -
+ * append new constants at the end, never reorder or remove them.
+ */
 public enum FoodPreference {
     LOCAL_CUISINE("Local Cuisine"),
     INTERNATIONAL("International"),
@@ -0,0 +1,187 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A request made with an Idempotency-Key header and, once it finished, its response.
+ * Retries with the same key get the stored response instead of running the request again.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@IdClass(IdempotencyRecord.Key.class)
+public class IdempotencyRecord {
+
+    /**
+     * Supabase user ID - keys are scoped per user
+     */
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /**
+     * Idempotency-Key header value chosen by the client
+     */
+    @Id
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    /**
+     * SHA-256 (hex) of method, path and body of the first request with this key
+     */
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    /**
+     * HTTP status of the stored response; null while the first request is still running
+     */
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    /**
+     * Content-Type of the stored response
+     */
+    @Column(name = "response_content_type")
+    private String responseContentType;
+
+    /**
+     * Body of the stored response, exactly as it was sent
+     */
+    @Column(name = "response_body")
+    private byte[] responseBody;
+
+    /**
+     * Headers of the stored response that are replayed with it, one "Name: value" per line
+     */
+    @Column(name = "response_headers")
+    private String responseHeaders;
+
+    /**
+     * When the key was claimed
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * When the key may be reused - the response TTL once completed, the lock timeout before
+     */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Constructors
+
+    public IdempotencyRecord() {
+    }
+
+    /**
+     * Whether the first request with this key finished and its response is stored
+     */
+    public boolean isCompleted() {
+        return responseStatus != null;
+    }
+
+    // Getters and Setters
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Integer getResponseStatus() {
+        return responseStatus;
+    }
+
+    public void setResponseStatus(Integer responseStatus) {
+        this.responseStatus = responseStatus;
+    }
+
+    public String getResponseContentType() {
+        return responseContentType;
+    }
+
+    public void setResponseContentType(String responseContentType) {
+        this.responseContentType = responseContentType;
+    }
+
+    public byte[] getResponseBody() {
+        return responseBody;
+    }
+
+    public void setResponseBody(byte[] responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public String getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    public void setResponseHeaders(String responseHeaders) {
+        this.responseHeaders = responseHeaders;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Composite primary key (user_id, idempotency_key)
+     */
+    public static class Key implements Serializable {
+
+        private String userId;
+        private String idempotencyKey;
+
+        public Key() {
+        }
+
+        public Key(String userId, String idempotencyKey) {
+            this.userId = userId;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(idempotencyKey, key.idempotencyKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, idempotencyKey);
+        }
+    }
+}
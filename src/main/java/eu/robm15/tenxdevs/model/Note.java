@@ -1,18 +1,29 @@
 package eu.robm15.tenxdevs.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.SQLRestriction;
+
 import java.time.LocalDateTime;
 
 /**
  * Entity representing a travel note created by a user.
  * Notes are simple text-based ideas for trips that can later be used to generate travel plans.
+ *
+ * Deleted notes keep their row (deletedAt is set) until NotePurgeService has removed their
+ * trip plans; the restriction hides them from every entity load and JPQL query.
+ * Native queries on notes must filter on deletedAt themselves.
  */
 @Entity
 @Table(name = "notes")
+@SQLRestriction("deletedAt IS NULL")
 public class Note {
 
+    /**
+     * Pooled sequence (50 IDs per round trip) - unlike IDENTITY it allows JDBC insert batching
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notes_seq")
+    @SequenceGenerator(name = "notes_seq", sequenceName = "notes_seq", allocationSize = 50)
     @Column(nullable = false)
     private Long id;
 
@@ -48,6 +59,13 @@ public class Note {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    /**
+     * Optimistic lock version, exposed to clients as the note's ETag.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     /**
      * Automatically set timestamps before persisting.
      */
@@ -124,6 +142,14 @@ public class Note {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Note{" +
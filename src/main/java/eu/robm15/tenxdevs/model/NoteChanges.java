@@ -0,0 +1,21 @@
+package eu.robm15.tenxdevs.model;
+
+import java.util.List;
+
+/**
+ * One delta sync response: notes created or updated after the cursor, and tombstones of
+ * notes deleted since then. Clients may see a change twice (the cursor overlaps a little
+ * to cover in-flight transactions), so applying changes must be idempotent.
+ *
+ * @param notes      Changed notes, oldest change first
+ * @param deleted    Notes deleted since the cursor
+ * @param nextCursor Cursor for the next sync (or the next batch if {@code hasMore})
+ * @param hasMore    Whether more changes are waiting - sync again right away with the next cursor
+ */
+public record NoteChanges(
+    List<NoteSummary> notes,
+    List<NoteDeletion> deleted,
+    String nextCursor,
+    boolean hasMore
+) {
+}
@@ -0,0 +1,69 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Tombstone of a deleted note, served by the delta sync (GET /api/notes/changes)
+ * so clients can drop the note from their local copy.
+ */
+@Entity
+@Table(name = "note_deletions")
+public class NoteDeletion {
+
+    /**
+     * ID of the deleted note
+     */
+    @Id
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    /**
+     * Supabase user ID of the note's owner
+     */
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /**
+     * When the note was deleted
+     */
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    // Constructors
+
+    public NoteDeletion() {
+    }
+
+    public NoteDeletion(Long noteId, String userId, LocalDateTime deletedAt) {
+        this.noteId = noteId;
+        this.userId = userId;
+        this.deletedAt = deletedAt;
+    }
+
+    // Getters and Setters
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
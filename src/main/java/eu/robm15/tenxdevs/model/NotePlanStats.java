@@ -0,0 +1,26 @@
+package eu.robm15.tenxdevs.model;
+
+/**
+ * Trip plan statistics of one note, used for badges on the note list.
+ *
+ * @param noteId        Note ID
+ * @param planCount     Number of plans generated for the note
+ * @param latestPlanId  ID of the most recent plan (by creation time), null if there are none
+ * @param latestRating  Rating of the most recent plan, null if not rated (or no plans)
+ * @param averageRating Average over the rated plans, null if none is rated
+ */
+public record NotePlanStats(
+    Long noteId,
+    long planCount,
+    Long latestPlanId,
+    Integer latestRating,
+    Double averageRating
+) {
+
+    /**
+     * Statistics of a note without plans
+     */
+    public static NotePlanStats empty(Long noteId) {
+        return new NotePlanStats(noteId, 0, null, null, null);
+    }
+}
@@ -0,0 +1,55 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Pending removal of a deleted note's trip plans and of the note row itself.
+ * Enqueued together with the soft delete, or by the orphan sweep for plans whose
+ * note no longer exists; processed by NotePurgeService.
+ */
+@Entity
+@Table(name = "note_purge_jobs")
+public class NotePurgeJob {
+
+    /**
+     * ID of the deleted note
+     */
+    @Id
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    /**
+     * When the job was enqueued - oldest jobs are processed first
+     */
+    @Column(name = "enqueued_at", nullable = false)
+    private LocalDateTime enqueuedAt;
+
+    // Constructors
+
+    public NotePurgeJob() {
+    }
+
+    public NotePurgeJob(Long noteId, LocalDateTime enqueuedAt) {
+        this.noteId = noteId;
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    // Getters and Setters
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public LocalDateTime getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public void setEnqueuedAt(LocalDateTime enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
+}
@@ -0,0 +1,43 @@
+package eu.robm15.tenxdevs.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * List view of a {@link Note}: everything except the full content, which is replaced
+ * by a short snippet cut by the database.
+ *
+ * @param id        Note ID
+ * @param title     Note title
+ * @param snippet   First {@value #SNIPPET_LENGTH} characters of the content
+ * @param truncated Whether the content is longer than the snippet
+ * @param createdAt Creation time
+ * @param updatedAt Last update time
+ */
+public record NoteSummary(
+    Long id,
+    String title,
+    String snippet,
+    boolean truncated,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt
+) {
+
+    public static final int SNIPPET_LENGTH = 150;
+
+    /**
+     * Constructor used by JPQL constructor expressions. The query selects one character
+     * more than the snippet length, so truncation is detected without reading the whole content.
+     *
+     * @param contentPrefix First {@code SNIPPET_LENGTH + 1} characters of the content
+     */
+    public NoteSummary(Long id, String title, String contentPrefix, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(
+            id,
+            title,
+            contentPrefix.length() > SNIPPET_LENGTH ? contentPrefix.substring(0, SNIPPET_LENGTH) : contentPrefix,
+            contentPrefix.length() > SNIPPET_LENGTH,
+            createdAt,
+            updatedAt
+        );
+    }
+}
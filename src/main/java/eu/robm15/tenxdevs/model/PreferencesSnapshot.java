@@ -0,0 +1,87 @@
+package eu.robm15.tenxdevs.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Immutable copy of a user's {@link TravelPreferences}, safe to cache and share between threads.
+ * Multi-select sets are never null (empty when nothing is selected).
+ */
+public record PreferencesSnapshot(
+    String userId,
+    Budget budget,
+    Pace pace,
+    Set<Interest> interests,
+    AccommodationStyle accommodationStyle,
+    Set<Transport> transport,
+    Set<FoodPreference> foodPreferences,
+    Season season
+) {
+
+    /**
+     * Copy the current state of a preferences entity
+     *
+     * @param preferences Managed or detached entity
+     * @return immutable snapshot
+     */
+    public static PreferencesSnapshot of(TravelPreferences preferences) {
+        return new PreferencesSnapshot(
+            preferences.getUserId(),
+            preferences.getBudget(),
+            preferences.getPace(),
+            copyOf(preferences.getInterests(), Interest.class),
+            preferences.getAccommodationStyle(),
+            copyOf(preferences.getTransport(), Transport.class),
+            copyOf(preferences.getFoodPreferences(), FoodPreference.class),
+            preferences.getSeason()
+        );
+    }
+
+    /**
+     * Number of the seven preference categories that are filled in
+     */
+    public int filledCategoryCount() {
+        int filledCount = 0;
+
+        if (budget != null) filledCount++;
+        if (pace != null) filledCount++;
+        if (!interests.isEmpty()) filledCount++;
+        if (accommodationStyle != null) filledCount++;
+        if (!transport.isEmpty()) filledCount++;
+        if (!foodPreferences.isEmpty()) filledCount++;
+        if (season != null) filledCount++;
+
+        return filledCount;
+    }
+
+    /**
+     * Short stable hash of the preference values that go into the plan prompt (not the user),
+     * so plans generated for the same preference profile can be grouped
+     *
+     * @return 16 hex characters
+     */
+    public String fingerprint() {
+        // EnumSets iterate in declaration order, so equal preferences give equal strings
+        String profile = budget + "|" + pace + "|" + interests + "|" + accommodationStyle + "|"
+            + transport + "|" + foodPreferences + "|" + season;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(profile.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static <E extends Enum<E>> Set<E> copyOf(Set<E> values, Class<E> type) {
+        EnumSet<E> copy = EnumSet.noneOf(type);
+        if (values != null) {
+            copy.addAll(values);
+        }
+        return Collections.unmodifiableSet(copy);
+    }
+}
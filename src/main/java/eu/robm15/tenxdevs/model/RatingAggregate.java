@@ -0,0 +1,151 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Running totals of generated plans and their ratings for one value of one dimension
+ * (a user, a prompt version, a model or a preferences fingerprint).
+ * Maintained incrementally when plans are generated and rated, so plan quality and AI latency
+ * can be compared without scanning trip_plans. Ratings stay counted when plans are deleted.
+ */
+@Entity
+@Table(name = "rating_aggregates")
+@IdClass(RatingAggregate.Key.class)
+public class RatingAggregate {
+
+    /**
+     * Value used for plans generated before the dimension was recorded
+     */
+    public static final String UNKNOWN = "unknown";
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", nullable = false)
+    private RatingDimension dimension;
+
+    @Id
+    @Column(name = "dimension_value", nullable = false)
+    private String dimensionValue;
+
+    /**
+     * Number of generated plans (since generation totals were introduced)
+     */
+    @Column(name = "generations", nullable = false)
+    private long generations;
+
+    /**
+     * Total duration of their AI calls in milliseconds
+     */
+    @Column(name = "generation_ms_sum", nullable = false)
+    private long generationMsSum;
+
+    /**
+     * Number of rated plans
+     */
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+
+    /**
+     * Sum of their ratings
+     */
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    /**
+     * Number of plans rated 1 to 5
+     */
+    @Column(name = "rating_1", nullable = false)
+    private long rating1;
+
+    @Column(name = "rating_2", nullable = false)
+    private long rating2;
+
+    @Column(name = "rating_3", nullable = false)
+    private long rating3;
+
+    @Column(name = "rating_4", nullable = false)
+    private long rating4;
+
+    @Column(name = "rating_5", nullable = false)
+    private long rating5;
+
+    // Constructors
+
+    public RatingAggregate() {
+    }
+
+    /**
+     * Average rating, or null if no plan was rated
+     */
+    public Double getAverageRating() {
+        return ratingCount == 0 ? null : (double) ratingSum / ratingCount;
+    }
+
+    /**
+     * Average AI call duration in milliseconds, or null if no generation was recorded
+     */
+    public Double getAverageGenerationMs() {
+        return generations == 0 ? null : (double) generationMsSum / generations;
+    }
+
+    /**
+     * Number of plans per rating, index 0 for rating 1
+     */
+    public long[] getHistogram() {
+        return new long[] {rating1, rating2, rating3, rating4, rating5};
+    }
+
+    // Getters
+
+    public RatingDimension getDimension() {
+        return dimension;
+    }
+
+    public String getDimensionValue() {
+        return dimensionValue;
+    }
+
+    public long getGenerations() {
+        return generations;
+    }
+
+    public long getGenerationMsSum() {
+        return generationMsSum;
+    }
+
+    public long getRatingCount() {
+        return ratingCount;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public static class Key implements Serializable {
+
+        private RatingDimension dimension;
+        private String dimensionValue;
+
+        public Key() {
+        }
+
+        public Key(RatingDimension dimension, String dimensionValue) {
+            this.dimension = dimension;
+            this.dimensionValue = dimensionValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return dimension == key.dimension && Objects.equals(dimensionValue, key.dimensionValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, dimensionValue);
+        }
+    }
+}
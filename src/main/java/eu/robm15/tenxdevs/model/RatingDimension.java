@@ -0,0 +1,15 @@
+package eu.robm15.tenxdevs.model;
+
+/**
+ * What a {@link RatingAggregate} row groups plans by
+ */
+public enum RatingDimension {
+    /** Supabase user ID */
+    USER,
+    /** Prompt template version, see {@link TripPlan#getPromptVersion()} */
+    PROMPT_VERSION,
+    /** AI model */
+    MODEL,
+    /** Preferences fingerprint, see {@link PreferencesSnapshot#fingerprint()} */
+    PREFERENCES
+}
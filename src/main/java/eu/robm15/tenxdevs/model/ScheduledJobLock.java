@@ -0,0 +1,77 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Cluster-wide claim of a scheduled job, see ScheduledJobLockService.
+ * The job is held by {@code lockedBy} until {@code lockedUntil}, or until it releases the claim.
+ */
+@Entity
+@Table(name = "scheduled_job_locks")
+public class ScheduledJobLock {
+
+    /**
+     * Job name, e.g. note-purge
+     */
+    @Id
+    @Column(name = "name", nullable = false, length = 64)
+    private String name;
+
+    /**
+     * End of the claim - another node may take the job over from then on
+     */
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    /**
+     * When the current (or last) claim was made
+     */
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+
+    /**
+     * Node that made the claim
+     */
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    // Constructors
+
+    public ScheduledJobLock() {
+    }
+
+    // Getters and Setters
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public LocalDateTime getLockedAt() {
+        return lockedAt;
+    }
+
+    public void setLockedAt(LocalDateTime lockedAt) {
+        this.lockedAt = lockedAt;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+}
@@ -0,0 +1,43 @@
+package eu.robm15.tenxdevs.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One full-text search result - a note or a trip plan matching the query.
+ *
+ * @param type      {@value #TYPE_NOTE} or {@value #TYPE_TRIP_PLAN}
+ * @param id        ID of the note or plan
+ * @param noteId    ID of the note (the note itself, or the note the plan was generated for)
+ * @param title     Title of the note
+ * @param snippet   Fragment of the matching text around the matched words, see {@link #HIGHLIGHT_START}
+ * @param rank      Relevance, higher is better; only comparable within one search
+ * @param createdAt Creation time of the note or plan
+ */
+public record SearchHit(
+    String type,
+    Long id,
+    Long noteId,
+    String title,
+    String snippet,
+    double rank,
+    LocalDateTime createdAt
+) {
+
+    public static final String TYPE_NOTE = "note";
+    public static final String TYPE_TRIP_PLAN = "trip_plan";
+
+    /**
+     * Marks the start of a matched word in snippets returned by the repository.
+     * Control characters can't clash with user text; the service turns them into HTML.
+     */
+    public static final String HIGHLIGHT_START = "\u0002";
+
+    /**
+     * Marks the end of a matched word in snippets returned by the repository
+     */
+    public static final String HIGHLIGHT_END = "\u0003";
+
+    public SearchHit withSnippet(String snippet) {
+        return new SearchHit(type, id, noteId, title, snippet, rank, createdAt);
+    }
+}
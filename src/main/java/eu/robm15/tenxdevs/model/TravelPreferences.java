@@ -1,7 +1,7 @@
 package eu.robm15.tenxdevs.model;
 
 import jakarta.persistence.*;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.Set;
 
 /**
@@ -12,8 +12,12 @@ import java.util.Set;
 @Table(name = "travel_preferences")
 public class TravelPreferences {
 
+    /**
+     * Pooled sequence (50 IDs per round trip) - unlike IDENTITY it allows JDBC insert batching
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "travel_preferences_seq")
+    @SequenceGenerator(name = "travel_preferences_seq", sequenceName = "travel_preferences_seq", allocationSize = 50)
     @Column(nullable = false)
     private Long id;
 
@@ -38,13 +42,11 @@ public class TravelPreferences {
     private Pace pace;
 
     /**
-     * Interests/hobbies - allows multiple selections
+     * Interests/hobbies - allows multiple selections (stored as a bitmask)
      */
-    @ElementCollection(targetClass = Interest.class)
-    @CollectionTable(name = "travel_preferences_interests", joinColumns = @JoinColumn(name = "travel_preferences_id"))
-    @Enumerated(EnumType.STRING)
-    @Column(name = "interest")
-    private Set<Interest> interests = new HashSet<>();
+    @Convert(converter = EnumSetBitmaskConverter.Interests.class)
+    @Column(nullable = false)
+    private Set<Interest> interests = EnumSet.noneOf(Interest.class);
 
     /**
      * Accommodation style preference
@@ -54,22 +56,18 @@ public class TravelPreferences {
     private AccommodationStyle accommodationStyle;
 
     /**
-     * Preferred transport methods - allows multiple selections
+     * Preferred transport methods - allows multiple selections (stored as a bitmask)
      */
-    @ElementCollection(targetClass = Transport.class)
-    @CollectionTable(name = "travel_preferences_transport", joinColumns = @JoinColumn(name = "travel_preferences_id"))
-    @Enumerated(EnumType.STRING)
-    @Column(name = "transport")
-    private Set<Transport> transport = new HashSet<>();
+    @Convert(converter = EnumSetBitmaskConverter.Transports.class)
+    @Column(nullable = false)
+    private Set<Transport> transport = EnumSet.noneOf(Transport.class);
 
     /**
-     * Food preferences - allows multiple selections
+     * Food preferences - allows multiple selections (stored as a bitmask)
      */
-    @ElementCollection(targetClass = FoodPreference.class)
-    @CollectionTable(name = "travel_preferences_food", joinColumns = @JoinColumn(name = "travel_preferences_id"))
-    @Enumerated(EnumType.STRING)
-    @Column(name = "food_preference")
-    private Set<FoodPreference> foodPreferences = new HashSet<>();
+    @Convert(converter = EnumSetBitmaskConverter.FoodPreferences.class)
+    @Column(nullable = false)
+    private Set<FoodPreference> foodPreferences = EnumSet.noneOf(FoodPreference.class);
 
     /**
      * Preferred travel season
@@ -78,6 +76,13 @@ public class TravelPreferences {
     @Column(length = 50)
     private Season season;
 
+    /**
+     * Optimistic lock version, exposed to clients as the ETag of the preferences
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // Getters and Setters
 
     public Long getId() {
@@ -151,4 +156,12 @@ public class TravelPreferences {
     public void setSeason(Season season) {
         this.season = season;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -11,8 +11,12 @@ import java.time.LocalDateTime;
 @Table(name = "trip_plans")
 public class TripPlan {
 
+    /**
+     * Pooled sequence (50 IDs per round trip) - unlike IDENTITY it allows JDBC insert batching
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trip_plans_seq")
+    @SequenceGenerator(name = "trip_plans_seq", sequenceName = "trip_plans_seq", allocationSize = 50)
     @Column(nullable = false)
     private Long id;
 
@@ -29,8 +33,10 @@ public class TripPlan {
     private Long noteId;
 
     /**
-     * The generated plan content (formatted text with activities per day)
+     * The generated plan content (formatted text with activities per day).
+     * Loaded lazily on first access (requires Hibernate bytecode enhancement, see build.gradle.kts).
      */
+    @Basic(fetch = FetchType.LAZY)
     @Column(nullable = false, columnDefinition = "TEXT")
     private String planContent;
 
@@ -46,6 +52,30 @@ public class TripPlan {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * Version of the prompt template the plan was generated with (null for plans from before it was recorded)
+     */
+    @Column(length = 32)
+    private String promptVersion;
+
+    /**
+     * AI model that generated the plan, as reported by the provider
+     */
+    @Column(length = 100)
+    private String model;
+
+    /**
+     * Fingerprint of the preferences that went into the prompt, see {@link PreferencesSnapshot#fingerprint()}
+     */
+    @Column(length = 64)
+    private String preferencesFingerprint;
+
+    /**
+     * Duration of the AI call in milliseconds
+     */
+    @Column
+    private Long generationMs;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -111,4 +141,36 @@ public class TripPlan {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public String getPromptVersion() {
+        return promptVersion;
+    }
+
+    public void setPromptVersion(String promptVersion) {
+        this.promptVersion = promptVersion;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public String getPreferencesFingerprint() {
+        return preferencesFingerprint;
+    }
+
+    public void setPreferencesFingerprint(String preferencesFingerprint) {
+        this.preferencesFingerprint = preferencesFingerprint;
+    }
+
+    public Long getGenerationMs() {
+        return generationMs;
+    }
+
+    public void setGenerationMs(Long generationMs) {
+        this.generationMs = generationMs;
+    }
 }
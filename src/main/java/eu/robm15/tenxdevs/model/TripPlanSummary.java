@@ -0,0 +1,47 @@
+package eu.robm15.tenxdevs.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * List view of a {@link TripPlan}: metadata and a one-line preview instead of the full plan.
+ * The full content is returned by GET /api/trip-plans/{id}.
+ *
+ * @param id            Plan ID
+ * @param noteId        ID of the note the plan was generated for
+ * @param rating        User rating (1-5), null if not rated yet
+ * @param createdAt     Generation time
+ * @param contentLength Length of the full plan in characters
+ * @param preview       First non-blank line of the plan, at most {@value #PREVIEW_LENGTH} characters
+ */
+public record TripPlanSummary(
+    Long id,
+    Long noteId,
+    Integer rating,
+    LocalDateTime createdAt,
+    Integer contentLength,
+    String preview
+) {
+
+    public static final int PREVIEW_LENGTH = 120;
+
+    /**
+     * The summary queries pass the first {@code PREVIEW_LENGTH} characters of the plan
+     * as {@code preview}; only its first non-blank line is kept.
+     */
+    public TripPlanSummary {
+        preview = firstLine(preview);
+    }
+
+    private static String firstLine(String text) {
+        if (text == null) {
+            return null;
+        }
+        for (String line : text.split("\\R")) {
+            if (!line.isBlank()) {
+                String trimmed = line.strip();
+                return trimmed.length() > PREVIEW_LENGTH ? trimmed.substring(0, PREVIEW_LENGTH) : trimmed;
+            }
+        }
+        return "";
+    }
+}
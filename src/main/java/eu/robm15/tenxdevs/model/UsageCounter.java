@@ -0,0 +1,98 @@
+package eu.robm15.tenxdevs.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Number of AI plan generations reserved by a user on a given day.
+ * Rows are written only through the conditional upsert in
+ * {@link eu.robm15.tenxdevs.repository.UsageCounterRepositoryCustom}, which makes
+ * the daily limit check and the increment a single atomic statement.
+ */
+@Entity
+@Table(name = "usage_counters")
+@IdClass(UsageCounter.Key.class)
+public class UsageCounter {
+
+    /**
+     * Supabase user ID
+     */
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /**
+     * Day the usage is counted for
+     */
+    @Id
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    /**
+     * Number of generations reserved on that day (including in-flight ones)
+     */
+    @Column(name = "used", nullable = false)
+    private int used;
+
+    // Constructors
+
+    public UsageCounter() {
+    }
+
+    // Getters and Setters
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getUsageDate() {
+        return usageDate;
+    }
+
+    public void setUsageDate(LocalDate usageDate) {
+        this.usageDate = usageDate;
+    }
+
+    public int getUsed() {
+        return used;
+    }
+
+    public void setUsed(int used) {
+        this.used = used;
+    }
+
+    /**
+     * Composite primary key (user, day)
+     */
+    public static class Key implements Serializable {
+
+        private String userId;
+        private LocalDate usageDate;
+
+        public Key() {
+        }
+
+        public Key(String userId, LocalDate usageDate) {
+            this.userId = userId;
+            this.usageDate = usageDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(usageDate, key.usageDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, usageDate);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.DailyUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyUsageRepository extends JpaRepository<DailyUsage, DailyUsage.Key>, DailyUsageRepositoryCustom {
+
+    /**
+     * Find a user's rollup rows from the given day onwards (newest first)
+     */
+    List<DailyUsage> findByUserIdAndUsageDateGreaterThanEqualOrderByUsageDateDesc(String userId, LocalDate from);
+}
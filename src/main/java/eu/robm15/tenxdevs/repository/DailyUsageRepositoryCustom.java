@@ -0,0 +1,30 @@
+package eu.robm15.tenxdevs.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Custom fragment for {@link DailyUsageRepository} with vendor-specific upserts.
+ */
+public interface DailyUsageRepositoryCustom {
+
+    /**
+     * Add to the user's rollup row for the day, creating it if needed (single statement).
+     *
+     * @param userId Supabase user ID
+     * @param usageDate Day to aggregate into
+     * @param generations Generations to add
+     * @param tokens Tokens to add
+     * @param cacheHits Cache hits to add
+     */
+    void addUsage(String userId, LocalDate usageDate, int generations, long tokens, int cacheHits);
+
+    /**
+     * Raise the day's generation count to at least the given value (used by the reconciler).
+     * Never lowers it, so plans deleted later still count as generated.
+     *
+     * @param userId Supabase user ID
+     * @param usageDate Day to reconcile
+     * @param generations Generation count observed in trip_plans
+     */
+    void raiseGenerations(String userId, LocalDate usageDate, int generations);
+}
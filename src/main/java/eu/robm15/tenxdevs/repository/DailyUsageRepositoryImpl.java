@@ -0,0 +1,75 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.config.DatabasePlatform;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+
+/**
+ * Single-statement upserts on daily_usage:
+ * INSERT ... ON CONFLICT DO UPDATE on PostgreSQL, MERGE on H2.
+ */
+public class DailyUsageRepositoryImpl implements DailyUsageRepositoryCustom {
+
+    private static final String POSTGRES_ADD =
+        "INSERT INTO daily_usage (user_id, usage_date, generations, tokens, cache_hits) VALUES (?1, ?2, ?3, ?4, ?5) " +
+        "ON CONFLICT (user_id, usage_date) DO UPDATE SET " +
+        "generations = daily_usage.generations + EXCLUDED.generations, " +
+        "tokens = daily_usage.tokens + EXCLUDED.tokens, " +
+        "cache_hits = daily_usage.cache_hits + EXCLUDED.cache_hits";
+
+    private static final String H2_ADD =
+        "MERGE INTO daily_usage d " +
+        "USING (SELECT CAST(?1 AS VARCHAR(255)) AS user_id, CAST(?2 AS DATE) AS usage_date, " +
+        "CAST(?3 AS INTEGER) AS generations, CAST(?4 AS BIGINT) AS tokens, CAST(?5 AS INTEGER) AS cache_hits) s " +
+        "ON d.user_id = s.user_id AND d.usage_date = s.usage_date " +
+        "WHEN MATCHED THEN UPDATE SET generations = d.generations + s.generations, " +
+        "tokens = d.tokens + s.tokens, cache_hits = d.cache_hits + s.cache_hits " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, usage_date, generations, tokens, cache_hits) " +
+        "VALUES (s.user_id, s.usage_date, s.generations, s.tokens, s.cache_hits)";
+
+    private static final String POSTGRES_RAISE =
+        "INSERT INTO daily_usage (user_id, usage_date, generations, tokens, cache_hits) VALUES (?1, ?2, ?3, 0, 0) " +
+        "ON CONFLICT (user_id, usage_date) DO UPDATE SET " +
+        "generations = GREATEST(daily_usage.generations, EXCLUDED.generations) " +
+        "WHERE daily_usage.generations < EXCLUDED.generations";
+
+    private static final String H2_RAISE =
+        "MERGE INTO daily_usage d " +
+        "USING (SELECT CAST(?1 AS VARCHAR(255)) AS user_id, CAST(?2 AS DATE) AS usage_date, " +
+        "CAST(?3 AS INTEGER) AS generations) s " +
+        "ON d.user_id = s.user_id AND d.usage_date = s.usage_date " +
+        "WHEN MATCHED AND d.generations < s.generations THEN UPDATE SET generations = s.generations " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, usage_date, generations, tokens, cache_hits) " +
+        "VALUES (s.user_id, s.usage_date, s.generations, 0, 0)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public DailyUsageRepositoryImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public void addUsage(String userId, LocalDate usageDate, int generations, long tokens, int cacheHits) {
+        entityManager.createNativeQuery(databasePlatform.isPostgres() ? POSTGRES_ADD : H2_ADD)
+            .setParameter(1, userId)
+            .setParameter(2, usageDate)
+            .setParameter(3, generations)
+            .setParameter(4, tokens)
+            .setParameter(5, cacheHits)
+            .executeUpdate();
+    }
+
+    @Override
+    public void raiseGenerations(String userId, LocalDate usageDate, int generations) {
+        entityManager.createNativeQuery(databasePlatform.isPostgres() ? POSTGRES_RAISE : H2_RAISE)
+            .setParameter(1, userId)
+            .setParameter(2, usageDate)
+            .setParameter(3, generations)
+            .executeUpdate();
+    }
+}
@@ -0,0 +1,51 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository
+    extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key>, IdempotencyRecordRepositoryCustom {
+
+    /**
+     * Store the response of a claimed key that is still in progress
+     *
+     * @return number of updated rows (0 if the claim was lost, e.g. taken over after expiring)
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseStatus = :status, r.responseContentType = :contentType, " +
+           "r.responseBody = :body, r.responseHeaders = :headers, r.expiresAt = :expiresAt " +
+           "WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.requestHash = :requestHash " +
+           "AND r.responseStatus IS NULL")
+    int complete(@Param("userId") String userId, @Param("key") String idempotencyKey,
+                 @Param("requestHash") String requestHash, @Param("status") int status,
+                 @Param("contentType") String contentType, @Param("body") byte[] body,
+                 @Param("headers") String headers, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Give up a claimed key that is still in progress, so a retry runs the request again
+     *
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r " +
+           "WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.requestHash = :requestHash " +
+           "AND r.responseStatus IS NULL")
+    int release(@Param("userId") String userId, @Param("key") String idempotencyKey,
+                @Param("requestHash") String requestHash);
+
+    /**
+     * Remove keys that expired before the given time
+     *
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :before")
+    int deleteByExpiresAtBefore(@Param("before") LocalDateTime before);
+}
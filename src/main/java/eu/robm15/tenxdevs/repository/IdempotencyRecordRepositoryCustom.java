@@ -0,0 +1,24 @@
+package eu.robm15.tenxdevs.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Custom fragment for {@link IdempotencyRecordRepository} with the vendor-specific claim.
+ */
+public interface IdempotencyRecordRepositoryCustom {
+
+    /**
+     * Atomically claim an idempotency key: insert it as in progress, or take over an expired row
+     * (an old response, or a request whose node died before finishing). Safe across multiple
+     * application nodes - of concurrent requests with the same key exactly one claims it.
+     *
+     * @param userId Supabase user ID
+     * @param idempotencyKey Idempotency-Key header value
+     * @param requestHash Hash of the request, to detect the key being reused for another request
+     * @param now Current time
+     * @param lockExpiresAt Until when the claim blocks other requests with the key if never completed
+     * @return true if the key was claimed and the request should run, false if another request holds it
+     */
+    boolean tryClaim(String userId, String idempotencyKey, String requestHash, LocalDateTime now,
+                     LocalDateTime lockExpiresAt);
+}
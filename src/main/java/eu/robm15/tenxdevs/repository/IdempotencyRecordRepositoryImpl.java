@@ -0,0 +1,59 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.config.DatabasePlatform;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency key claim in a single statement:
+ * PostgreSQL uses INSERT ... ON CONFLICT DO UPDATE ... WHERE, H2 uses MERGE.
+ * Both report one affected row when the key was inserted or an expired row was taken over,
+ * and zero rows when the key is still held.
+ */
+public class IdempotencyRecordRepositoryImpl implements IdempotencyRecordRepositoryCustom {
+
+    private static final String POSTGRES_UPSERT =
+        "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at, expires_at) " +
+        "VALUES (?1, ?2, ?3, ?4, ?5) " +
+        "ON CONFLICT (user_id, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+        "response_status = NULL, response_content_type = NULL, response_body = NULL, " +
+        "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+        "WHERE idempotency_keys.expires_at <= ?4";
+
+    private static final String H2_MERGE =
+        "MERGE INTO idempotency_keys k " +
+        "USING (SELECT CAST(?1 AS VARCHAR(255)) AS user_id, CAST(?2 AS VARCHAR(255)) AS idempotency_key) s " +
+        "ON k.user_id = s.user_id AND k.idempotency_key = s.idempotency_key " +
+        "WHEN MATCHED AND k.expires_at <= ?4 THEN UPDATE SET request_hash = ?3, " +
+        "response_status = NULL, response_content_type = NULL, response_body = NULL, " +
+        "created_at = ?4, expires_at = ?5 " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, idempotency_key, request_hash, created_at, expires_at) " +
+        "VALUES (s.user_id, s.idempotency_key, ?3, ?4, ?5)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public IdempotencyRecordRepositoryImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public boolean tryClaim(String userId, String idempotencyKey, String requestHash, LocalDateTime now,
+                            LocalDateTime lockExpiresAt) {
+        String sql = databasePlatform.isPostgres() ? POSTGRES_UPSERT : H2_MERGE;
+
+        int affectedRows = entityManager.createNativeQuery(sql)
+            .setParameter(1, userId)
+            .setParameter(2, idempotencyKey)
+            .setParameter(3, requestHash)
+            .setParameter(4, now)
+            .setParameter(5, lockExpiresAt)
+            .executeUpdate();
+
+        return affectedRows > 0;
+    }
+}
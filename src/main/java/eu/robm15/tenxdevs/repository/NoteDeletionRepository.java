@@ -0,0 +1,29 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.NoteDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NoteDeletionRepository extends JpaRepository<NoteDeletion, Long> {
+
+    /**
+     * Find a user's tombstones from the given time on, oldest first
+     */
+    List<NoteDeletion> findByUserIdAndDeletedAtGreaterThanEqualOrderByDeletedAt(String userId, LocalDateTime since);
+
+    /**
+     * Remove tombstones older than the given time
+     *
+     * @return Number of removed rows
+     */
+    @Modifying
+    @Query("DELETE FROM NoteDeletion d WHERE d.deletedAt < :before")
+    int deleteByDeletedAtBefore(@Param("before") LocalDateTime before);
+}
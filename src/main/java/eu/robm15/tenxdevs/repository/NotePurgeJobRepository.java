@@ -0,0 +1,17 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.NotePurgeJob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NotePurgeJobRepository extends JpaRepository<NotePurgeJob, Long> {
+
+    /**
+     * Find the oldest pending jobs
+     */
+    List<NotePurgeJob> findAllByOrderByEnqueuedAtAsc(Limit limit);
+}
@@ -1,26 +1,151 @@
 package eu.robm15.tenxdevs.repository;
 
 import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.NoteSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Note entity.
  * Provides CRUD operations and custom query methods for notes.
  */
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
+public interface NoteRepository extends JpaRepository<Note, Long>, NoteRepositoryCustom {
 
     /**
-     * Find all notes belonging to a specific user, ordered by creation date (newest first).
+     * Rows fetched per round trip when streaming (account export)
+     */
+    String STREAM_FETCH_SIZE = "200";
+
+    /**
+     * Find the first page of a user's note summaries, newest first.
+     * Only a prefix of the content is read (see {@link NoteSummary}).
+     *
+     * @param userId The Supabase user ID
+     * @param limit Maximum number of notes to return
+     * @return Note summaries for the user
+     */
+    @Query("SELECT new eu.robm15.tenxdevs.model.NoteSummary(n.id, n.title, " +
+           "SUBSTRING(n.content, 1, " + (NoteSummary.SNIPPET_LENGTH + 1) + "), n.createdAt, n.updatedAt) " +
+           "FROM Note n WHERE n.userId = :userId " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NoteSummary> findSummariesByUserId(@Param("userId") String userId, Limit limit);
+
+    /**
+     * Find the next page of a user's note summaries, starting after the given (createdAt, id) position.
+     *
+     * @param userId The Supabase user ID
+     * @param createdAt Creation time of the last note of the previous page
+     * @param id ID of the last note of the previous page
+     * @param limit Maximum number of notes to return
+     * @return Note summaries for the user
+     */
+    @Query("SELECT new eu.robm15.tenxdevs.model.NoteSummary(n.id, n.title, " +
+           "SUBSTRING(n.content, 1, " + (NoteSummary.SNIPPET_LENGTH + 1) + "), n.createdAt, n.updatedAt) " +
+           "FROM Note n WHERE n.userId = :userId " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NoteSummary> findSummariesByUserIdAfter(@Param("userId") String userId,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Limit limit);
+
+    /**
+     * Find a user's note summaries created or updated after the given (updatedAt, id) position,
+     * oldest change first (delta sync; served by the (userId, updatedAt, id) index).
+     *
+     * @param userId The Supabase user ID
+     * @param updatedAt Update time of the sync position
+     * @param id ID of the last note at exactly that update time, or 0
+     * @param limit Maximum number of notes to return
+     * @return Note summaries changed after the position
+     */
+    @Query("SELECT new eu.robm15.tenxdevs.model.NoteSummary(n.id, n.title, " +
+           "SUBSTRING(n.content, 1, " + (NoteSummary.SNIPPET_LENGTH + 1) + "), n.createdAt, n.updatedAt) " +
+           "FROM Note n WHERE n.userId = :userId " +
+           "AND (n.updatedAt > :updatedAt OR (n.updatedAt = :updatedAt AND n.id > :id)) " +
+           "ORDER BY n.updatedAt, n.id")
+    List<NoteSummary> findSummariesChangedAfter(@Param("userId") String userId,
+                                                @Param("updatedAt") LocalDateTime updatedAt,
+                                                @Param("id") Long id,
+                                                Limit limit);
+
+    /**
+     * Stream a user's notes changed since the given time, oldest ID first.
+     * Must be consumed inside a (read-only) transaction and closed afterwards;
+     * rows are fetched from the database in chunks of {@link #STREAM_FETCH_SIZE}.
+     *
+     * @param userId The Supabase user ID
+     * @param since Only notes updated at or after this time
+     * @return Stream of read-only notes
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Note> streamByUserIdAndUpdatedAtGreaterThanEqualOrderById(String userId, LocalDateTime since);
+
+    /**
+     * Check whether any of the user's notes changed since the given time
+     *
+     * @param userId The Supabase user ID
+     * @param since Point in time
+     * @return true if a note was created or updated at or after that time
+     */
+    boolean existsByUserIdAndUpdatedAtGreaterThanEqual(String userId, LocalDateTime since);
+
+    /**
+     * Summary of all of a user's notes that changes whenever a note is created, updated or deleted
+     * (collection ETag of GET /api/notes)
      *
      * @param userId The Supabase user ID
-     * @return List of notes for the user
+     * @return Note count, latest update time and sum of versions
+     */
+    @Query("SELECT COUNT(n) AS count, MAX(n.updatedAt) AS lastUpdatedAt, SUM(n.version) AS versions " +
+           "FROM Note n WHERE n.userId = :userId")
+    NotesState findStateByUserId(@Param("userId") String userId);
+
+    /**
+     * Find only the version of a user's note (ETag check without loading the note)
+     *
+     * @param id The note ID
+     * @param userId The user ID
+     * @return The version if the note exists and belongs to the user
      */
-    List<Note> findByUserIdOrderByCreatedAtDesc(String userId);
+    @Query("SELECT n.version FROM Note n WHERE n.id = :id AND n.userId = :userId")
+    Optional<Long> findVersionByIdAndUserId(@Param("id") Long id, @Param("userId") String userId);
+
+    /**
+     * Find the version of a note's plan list (collection ETag of GET /api/trip-plans?noteId=)
+     *
+     * @param id The note ID
+     * @return The plans version if the note exists
+     */
+    @Query(value = "SELECT plansVersion FROM notes WHERE id = :id", nativeQuery = true)
+    Optional<Long> findPlansVersionById(@Param("id") Long id);
+
+    /**
+     * Bump the version of a note's plan list after a plan of the note was added
+     * (ratings and deletes bump it in TripPlanRepositoryImpl, in the same statement)
+     *
+     * @param id The note ID
+     * @return Number of updated rows - 0 if the note no longer exists
+     */
+    @Modifying
+    @Query(value = "UPDATE notes SET plansVersion = plansVersion + 1 WHERE id = :id", nativeQuery = true)
+    int incrementPlansVersion(@Param("id") Long id);
 
     /**
      * Find a specific note by ID and user ID.
@@ -33,13 +158,31 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     Optional<Note> findByIdAndUserId(Long id, String userId);
 
     /**
-     * Delete a note by ID and user ID.
-     * This ensures users can only delete their own notes.
+     * Mark a note as deleted by ID and user ID in a single statement.
+     * This ensures users can only delete their own notes. The row stays (hidden from all
+     * entity queries) until the note's purge job has removed its trip plans.
      *
      * @param id The note ID
      * @param userId The user ID
+     * @param deletedAt Deletion time
+     * @return Number of marked rows - 0 if the note doesn't exist, is already deleted or belongs to another user
      */
-    void deleteByIdAndUserId(Long id, String userId);
+    @Modifying
+    @Query(value = "UPDATE notes SET deletedAt = :deletedAt " +
+                   "WHERE id = :id AND userId = :userId AND deletedAt IS NULL", nativeQuery = true)
+    int markDeletedByIdAndUserId(@Param("id") Long id, @Param("userId") String userId,
+                                 @Param("deletedAt") LocalDateTime deletedAt);
+
+    /**
+     * Remove the row of a deleted note (last step of its purge job).
+     * Notes that aren't marked deleted are never removed.
+     *
+     * @param id The note ID
+     * @return Number of removed rows
+     */
+    @Modifying
+    @Query(value = "DELETE FROM notes WHERE id = :id AND deletedAt IS NOT NULL", nativeQuery = true)
+    int purgeDeletedById(@Param("id") Long id);
 
     /**
      * Check if a note exists for a specific user.
@@ -49,4 +192,15 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
      * @return true if the note exists and belongs to the user
      */
     boolean existsByIdAndUserId(Long id, String userId);
+
+    /**
+     * Projection of {@link #findStateByUserId(String)}
+     */
+    interface NotesState {
+        long getCount();
+
+        LocalDateTime getLastUpdatedAt();
+
+        Long getVersions();
+    }
 }
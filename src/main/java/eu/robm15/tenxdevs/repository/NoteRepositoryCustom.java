@@ -0,0 +1,44 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.SearchHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Custom fragment for {@link NoteRepository} with vendor-specific full-text search and updates.
+ */
+public interface NoteRepositoryCustom {
+
+    /**
+     * Full-text search over a user's notes (title and content) and trip plans (content).
+     * All words of the query must match. Results are ordered by relevance, best first.
+     *
+     * @param userId The Supabase user ID
+     * @param query Search words as typed by the user
+     * @param offset Number of results to skip
+     * @param limit Maximum number of results
+     * @return Matching notes and plans; snippets carry {@link SearchHit#HIGHLIGHT_START} /
+     *         {@link SearchHit#HIGHLIGHT_END} markers around matched words
+     */
+    List<SearchHit> search(String userId, String query, int offset, int limit);
+
+    /**
+     * Update a note's title and content if it belongs to the user, and return the updated row,
+     * in a single statement (UPDATE ... RETURNING on PostgreSQL, FINAL TABLE on H2).
+     * The version is incremented like a Hibernate-managed update would.
+     *
+     * @param id The note ID
+     * @param userId The Supabase user ID
+     * @param title New title
+     * @param content New content
+     * @param updatedAt New last update time (entity callbacks don't run for this statement)
+     * @param expectedVersion Only update if the note still has this version; null for an unconditional update
+     * @return The updated note, or empty if no note with this ID belongs to the user
+     *         (or, with an expected version, the note has a different version)
+     */
+    Optional<Note> updateByIdAndUserId(Long id, String userId, String title, String content, LocalDateTime updatedAt,
+                                       Long expectedVersion);
+}
@@ -0,0 +1,282 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.config.DatabasePlatform;
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.SearchHit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search on notes and trip plans (see the V6 migrations):
+ * GIN-indexed tsvector columns with ts_rank / ts_headline on PostgreSQL;
+ * on H2 the native full-text index finds the matching rows, which are ranked
+ * and highlighted here with the same weighting (title above content).
+ *
+ * Also the ownership-checked note update that returns the updated row in the same statement.
+ * Being native, these queries skip deleted notes (and their plans) explicitly.
+ */
+public class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+    /**
+     * ts_headline options: up to two fragments around the matches, marked with the SearchHit markers
+     */
+    private static final String HEADLINE_OPTIONS =
+        "StartSel=\"" + SearchHit.HIGHLIGHT_START + "\", StopSel=\"" + SearchHit.HIGHLIGHT_END + "\", " +
+        "MinWords=10, MaxWords=30, MaxFragments=2, FragmentDelimiter=\" … \"";
+
+    /**
+     * Ranks and paginates first, so headlines (which re-parse the text) are only built for one page
+     */
+    private static final String POSTGRES_SEARCH =
+        "WITH q AS (SELECT websearch_to_tsquery('simple', ?1) AS query), " +
+        "hits AS (" +
+        "  SELECT 'note' AS type, n.id, n.id AS note_id, ts_rank(n.search_vector, q.query, 1) AS rank " +
+        "  FROM notes n, q WHERE n.userId = ?2 AND n.deletedAt IS NULL AND n.search_vector @@ q.query " +
+        "  UNION ALL " +
+        "  SELECT 'trip_plan', p.id, p.noteId, ts_rank(p.search_vector, q.query, 1) " +
+        "  FROM trip_plans p, q WHERE p.userId = ?2 AND p.search_vector @@ q.query " +
+        "  AND EXISTS (SELECT 1 FROM notes pn WHERE pn.id = p.noteId AND pn.deletedAt IS NULL) " +
+        "  ORDER BY rank DESC, type, id DESC LIMIT ?3 OFFSET ?4" +
+        ") " +
+        "SELECT h.type, h.id, h.note_id, n.title, " +
+        "  ts_headline('simple', CASE WHEN h.type = 'note' THEN n.content ELSE p.planContent END, q.query, ?5), " +
+        "  h.rank, COALESCE(p.createdAt, n.createdAt) " +
+        "FROM hits h CROSS JOIN q " +
+        "LEFT JOIN notes n ON n.id = h.note_id " +
+        "LEFT JOIN trip_plans p ON h.type = 'trip_plan' AND p.id = h.id " +
+        "ORDER BY h.rank DESC, h.type, h.id DESC";
+
+    private static final String H2_NOTE_MATCHES =
+        "SELECT n.id FROM FT_SEARCH_DATA(?1, 0, 0) ft " +
+        "JOIN notes n ON n.id = CAST(ft.KEYS[1] AS BIGINT) " +
+        "WHERE ft.\"TABLE\" = 'NOTES' AND n.userId = ?2 AND n.deletedAt IS NULL";
+
+    private static final String H2_PLAN_MATCHES =
+        "SELECT p.id FROM FT_SEARCH_DATA(?1, 0, 0) ft " +
+        "JOIN trip_plans p ON p.id = CAST(ft.KEYS[1] AS BIGINT) " +
+        "WHERE ft.\"TABLE\" = 'TRIP_PLANS' AND p.userId = ?2 " +
+        "AND EXISTS (SELECT 1 FROM notes pn WHERE pn.id = p.noteId AND pn.deletedAt IS NULL)";
+
+    private static final String UPDATE_NOTE =
+        "UPDATE notes SET title = ?3, content = ?4, updatedAt = ?5, version = version + 1 " +
+        "WHERE id = ?1 AND userId = ?2 AND deletedAt IS NULL";
+
+    private static final String VERSION_MATCHES = " AND version = ?6";
+
+    /**
+     * Title matches count this many times more than content matches (setweight 'A' vs 'B' in PostgreSQL)
+     */
+    private static final int TITLE_WEIGHT = 2;
+
+    /**
+     * Characters of context shown before the first match, and total snippet length (H2)
+     */
+    private static final int SNIPPET_CONTEXT = 40;
+    private static final int SNIPPET_LENGTH = 200;
+
+    private static final Pattern WORD_DELIMITERS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public NoteRepositoryImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public List<SearchHit> search(String userId, String query, int offset, int limit) {
+        return databasePlatform.isPostgres()
+            ? searchPostgres(userId, query, offset, limit)
+            : searchH2(userId, query, offset, limit);
+    }
+
+    @Override
+    public Optional<Note> updateByIdAndUserId(Long id, String userId, String title, String content,
+                                              LocalDateTime updatedAt, Long expectedVersion) {
+        String update = expectedVersion == null ? UPDATE_NOTE : UPDATE_NOTE + VERSION_MATCHES;
+        String sql = databasePlatform.isPostgres()
+            ? update + " RETURNING *"
+            : "SELECT * FROM FINAL TABLE (" + update + ")";
+
+        Query query = entityManager.createNativeQuery(sql, Note.class)
+            .setParameter(1, id)
+            .setParameter(2, userId)
+            .setParameter(3, title)
+            .setParameter(4, content)
+            .setParameter(5, updatedAt);
+        if (expectedVersion != null) {
+            query.setParameter(6, expectedVersion);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Note> updated = query.getResultList();
+        return updated.stream().findFirst();
+    }
+
+    private List<SearchHit> searchPostgres(String userId, String query, int offset, int limit) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(POSTGRES_SEARCH)
+            .setParameter(1, query)
+            .setParameter(2, userId)
+            .setParameter(3, limit)
+            .setParameter(4, offset)
+            .setParameter(5, HEADLINE_OPTIONS)
+            .getResultList();
+
+        List<SearchHit> hits = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            hits.add(new SearchHit(
+                (String) row[0],
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).longValue(),
+                (String) row[3],
+                (String) row[4],
+                ((Number) row[5]).doubleValue(),
+                toLocalDateTime(row[6])
+            ));
+        }
+        return hits;
+    }
+
+    private List<SearchHit> searchH2(String userId, String query, int offset, int limit) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        // The H2 index only tells which rows match; rank every match, then cut the page
+        String ftQuery = String.join(" ", terms);
+        List<Pattern> termPatterns = terms.stream().map(NoteRepositoryImpl::wordPattern).toList();
+        List<Object[]> matches = new ArrayList<>();
+
+        List<Long> noteIds = matchingIds(H2_NOTE_MATCHES, ftQuery, userId);
+        if (!noteIds.isEmpty()) {
+            matches.addAll(entityManager.createQuery(
+                    "SELECT 'note', n.id, n.id, n.title, n.content, n.createdAt FROM Note n WHERE n.id IN :ids",
+                    Object[].class)
+                .setParameter("ids", noteIds)
+                .getResultList());
+        }
+
+        List<Long> planIds = matchingIds(H2_PLAN_MATCHES, ftQuery, userId);
+        if (!planIds.isEmpty()) {
+            matches.addAll(entityManager.createQuery(
+                    "SELECT 'trip_plan', p.id, p.noteId, n.title, p.planContent, p.createdAt " +
+                    "FROM TripPlan p LEFT JOIN Note n ON n.id = p.noteId WHERE p.id IN :ids",
+                    Object[].class)
+                .setParameter("ids", planIds)
+                .getResultList());
+        }
+
+        List<Ranked> ranked = new ArrayList<>(matches.size());
+        for (Object[] match : matches) {
+            String type = (String) match[0];
+            String title = (String) match[3];
+            String text = (String) match[4];
+            // Plan hits are matched on the plan content only, not on the note title
+            double rank = rank(termPatterns, SearchHit.TYPE_NOTE.equals(type) ? title : null, text);
+            ranked.add(new Ranked(new SearchHit(type, (Long) match[1], (Long) match[2], title, null, rank,
+                (LocalDateTime) match[5]), text));
+        }
+        ranked.sort(Comparator.comparingDouble((Ranked r) -> r.hit().rank()).reversed()
+            .thenComparing(r -> r.hit().type())
+            .thenComparing(r -> r.hit().id(), Comparator.reverseOrder()));
+
+        Pattern anyTerm = Pattern.compile(termPatterns.stream().map(Pattern::pattern).collect(Collectors.joining("|")),
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return ranked.stream()
+            .skip(offset)
+            .limit(limit)
+            .map(r -> r.hit().withSnippet(snippet(anyTerm, r.text())))
+            .toList();
+    }
+
+    private List<Long> matchingIds(String sql, String ftQuery, String userId) {
+        List<?> ids = entityManager.createNativeQuery(sql)
+            .setParameter(1, ftQuery)
+            .setParameter(2, userId)
+            .getResultList();
+        return ids.stream().map(id -> ((Number) id).longValue()).distinct().toList();
+    }
+
+    /**
+     * Split a query into lower-case words the way both full-text indexes do (letters and digits)
+     */
+    private static List<String> terms(String query) {
+        return Arrays.stream(WORD_DELIMITERS.split(query.toLowerCase(Locale.ROOT)))
+            .filter(term -> !term.isEmpty())
+            .distinct()
+            .toList();
+    }
+
+    private static Pattern wordPattern(String term) {
+        return Pattern.compile("(?<![\\p{L}\\p{N}])" + Pattern.quote(term) + "(?![\\p{L}\\p{N}])",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    /**
+     * Weighted number of matched words, divided by 1 + log(text length) like ts_rank normalization 1,
+     * so long texts don't outrank short ones just by size
+     */
+    private static double rank(Collection<Pattern> termPatterns, String title, String text) {
+        double score = 0;
+        for (Pattern term : termPatterns) {
+            score += TITLE_WEIGHT * count(term, title) + count(term, text);
+        }
+        return score / (1 + Math.log(1 + WORD_DELIMITERS.split(text).length));
+    }
+
+    private static int count(Pattern term, String text) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        Matcher matcher = term.matcher(text);
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Fragment around the first match with all matched words marked
+     */
+    private static String snippet(Pattern anyTerm, String text) {
+        Matcher first = anyTerm.matcher(text);
+        int start = first.find() ? Math.max(0, first.start() - SNIPPET_CONTEXT) : 0;
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+
+        String marked = anyTerm.matcher(text.substring(start, end))
+            .replaceAll(SearchHit.HIGHLIGHT_START + "$0" + SearchHit.HIGHLIGHT_END);
+        return (start > 0 ? "…" : "") + marked + (end < text.length() ? "…" : "");
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    /**
+     * Search hit (without snippet yet) and the text it matched in
+     */
+    private record Ranked(SearchHit hit, String text) {
+    }
+}
@@ -0,0 +1,19 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.RatingAggregate;
+import eu.robm15.tenxdevs.model.RatingDimension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RatingAggregateRepository
+    extends JpaRepository<RatingAggregate, RatingAggregate.Key>, RatingAggregateRepositoryCustom {
+
+    /**
+     * Find the aggregates of one dimension, most rated first
+     */
+    List<RatingAggregate> findByDimensionOrderByRatingCountDescDimensionValueAsc(RatingDimension dimension, Limit limit);
+}
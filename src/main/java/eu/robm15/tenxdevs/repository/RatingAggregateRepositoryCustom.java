@@ -0,0 +1,25 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.RatingDimension;
+
+/**
+ * Custom fragment for {@link RatingAggregateRepository} with the vendor-specific upsert.
+ */
+public interface RatingAggregateRepositoryCustom {
+
+    /**
+     * Add the same deltas to the aggregate rows of a plan's value in every dimension in one statement,
+     * creating rows on first use. Rows are written in {@link RatingDimension} order, so concurrent
+     * callers queue on the row locks instead of deadlocking; safe across multiple application nodes.
+     *
+     * @param values User ID, prompt version, model and preferences fingerprint, indexed by
+     *               {@link RatingDimension#ordinal()}
+     * @param generations Generated plans to add
+     * @param generationMs AI call milliseconds to add
+     * @param ratingCount Rated plans to add (0 when an existing rating changes)
+     * @param ratingSum Rating points to add (may be negative when a rating is lowered)
+     * @param histogram Deltas for the plans rated 1 to 5 (index 0 for rating 1)
+     */
+    void addDeltas(String[] values, long generations, long generationMs,
+                   long ratingCount, long ratingSum, long[] histogram);
+}
@@ -0,0 +1,90 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.config.DatabasePlatform;
+import eu.robm15.tenxdevs.model.RatingDimension;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Incremental update of rating_aggregates in a single statement for all dimensions:
+ * PostgreSQL uses INSERT ... ON CONFLICT DO UPDATE, H2 uses MERGE.
+ * Parameters ?1 to ?8 are the (dimension, value) pairs in {@link RatingDimension} order,
+ * ?9 to ?17 the deltas shared by all rows.
+ */
+public class RatingAggregateRepositoryImpl implements RatingAggregateRepositoryCustom {
+
+    private static final int FIRST_DELTA = 9;
+
+    private static final String DELTAS = "?9, ?10, ?11, ?12, ?13, ?14, ?15, ?16, ?17";
+
+    private static final String POSTGRES_UPSERT =
+        "INSERT INTO rating_aggregates (dimension, dimension_value, generations, generation_ms_sum, " +
+        "rating_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5) VALUES " +
+        rows(dimension -> "(?" + (2 * dimension + 1) + ", ?" + (2 * dimension + 2) + ", " + DELTAS + ")") + " " +
+        "ON CONFLICT (dimension, dimension_value) DO UPDATE SET " +
+        "generations = rating_aggregates.generations + EXCLUDED.generations, " +
+        "generation_ms_sum = rating_aggregates.generation_ms_sum + EXCLUDED.generation_ms_sum, " +
+        "rating_count = rating_aggregates.rating_count + EXCLUDED.rating_count, " +
+        "rating_sum = rating_aggregates.rating_sum + EXCLUDED.rating_sum, " +
+        "rating_1 = rating_aggregates.rating_1 + EXCLUDED.rating_1, " +
+        "rating_2 = rating_aggregates.rating_2 + EXCLUDED.rating_2, " +
+        "rating_3 = rating_aggregates.rating_3 + EXCLUDED.rating_3, " +
+        "rating_4 = rating_aggregates.rating_4 + EXCLUDED.rating_4, " +
+        "rating_5 = rating_aggregates.rating_5 + EXCLUDED.rating_5";
+
+    private static final String H2_MERGE =
+        "MERGE INTO rating_aggregates a " +
+        "USING (VALUES " + rows(dimension -> "(CAST(?" + (2 * dimension + 1) + " AS VARCHAR(32)), " +
+            "CAST(?" + (2 * dimension + 2) + " AS VARCHAR(255)))") + ") s (dimension, dimension_value) " +
+        "ON a.dimension = s.dimension AND a.dimension_value = s.dimension_value " +
+        "WHEN MATCHED THEN UPDATE SET generations = a.generations + ?9, " +
+        "generation_ms_sum = a.generation_ms_sum + ?10, rating_count = a.rating_count + ?11, " +
+        "rating_sum = a.rating_sum + ?12, rating_1 = a.rating_1 + ?13, rating_2 = a.rating_2 + ?14, " +
+        "rating_3 = a.rating_3 + ?15, rating_4 = a.rating_4 + ?16, rating_5 = a.rating_5 + ?17 " +
+        "WHEN NOT MATCHED THEN INSERT (dimension, dimension_value, generations, generation_ms_sum, " +
+        "rating_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5) " +
+        "VALUES (s.dimension, s.dimension_value, " + DELTAS + ")";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public RatingAggregateRepositoryImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public void addDeltas(String[] values, long generations, long generationMs,
+                          long ratingCount, long ratingSum, long[] histogram) {
+        String sql = databasePlatform.isPostgres() ? POSTGRES_UPSERT : H2_MERGE;
+
+        Query query = entityManager.createNativeQuery(sql);
+        for (RatingDimension dimension : RatingDimension.values()) {
+            query.setParameter(2 * dimension.ordinal() + 1, dimension.name())
+                .setParameter(2 * dimension.ordinal() + 2, values[dimension.ordinal()]);
+        }
+        query.setParameter(FIRST_DELTA, generations)
+            .setParameter(FIRST_DELTA + 1, generationMs)
+            .setParameter(FIRST_DELTA + 2, ratingCount)
+            .setParameter(FIRST_DELTA + 3, ratingSum);
+        for (int i = 0; i < 5; i++) {
+            query.setParameter(FIRST_DELTA + 4 + i, histogram[i]);
+        }
+        query.executeUpdate();
+    }
+
+    /**
+     * One source row per dimension, in {@link RatingDimension} order
+     */
+    private static String rows(IntFunction<String> row) {
+        return Arrays.stream(RatingDimension.values())
+            .map(dimension -> row.apply(dimension.ordinal()))
+            .collect(Collectors.joining(", "));
+    }
+}
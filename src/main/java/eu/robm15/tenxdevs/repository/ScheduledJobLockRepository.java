@@ -0,0 +1,25 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.ScheduledJobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ScheduledJobLockRepository
+    extends JpaRepository<ScheduledJobLock, String>, ScheduledJobLockRepositoryCustom {
+
+    /**
+     * End a claim made by the given node
+     *
+     * @return number of updated rows (0 if the claim expired and was taken over)
+     */
+    @Modifying
+    @Query("UPDATE ScheduledJobLock l SET l.lockedUntil = :now " +
+           "WHERE l.name = :name AND l.lockedBy = :owner AND l.lockedUntil > :now")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,21 @@
+package eu.robm15.tenxdevs.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Custom fragment for {@link ScheduledJobLockRepository} with the vendor-specific claim.
+ */
+public interface ScheduledJobLockRepositoryCustom {
+
+    /**
+     * Atomically claim a job: insert its row, or take over a row whose claim has ended.
+     * Of concurrent claims from several nodes exactly one succeeds.
+     *
+     * @param name Job name
+     * @param owner Claiming node
+     * @param now Current time
+     * @param lockedUntil End of the claim if it isn't released earlier
+     * @return true if the job was claimed and should run, false if another node holds it
+     */
+    boolean tryClaim(String name, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+}
@@ -0,0 +1,51 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.config.DatabasePlatform;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+
+/**
+ * Job claim in a single statement, like the idempotency key claim:
+ * PostgreSQL uses INSERT ... ON CONFLICT DO UPDATE ... WHERE, H2 uses MERGE.
+ * Both report one affected row when the job was claimed and zero rows while another node holds it.
+ */
+public class ScheduledJobLockRepositoryImpl implements ScheduledJobLockRepositoryCustom {
+
+    private static final String POSTGRES_UPSERT =
+        "INSERT INTO scheduled_job_locks (name, locked_until, locked_at, locked_by) " +
+        "VALUES (?1, ?4, ?3, ?2) " +
+        "ON CONFLICT (name) DO UPDATE SET locked_until = EXCLUDED.locked_until, " +
+        "locked_at = EXCLUDED.locked_at, locked_by = EXCLUDED.locked_by " +
+        "WHERE scheduled_job_locks.locked_until <= ?3";
+
+    private static final String H2_MERGE =
+        "MERGE INTO scheduled_job_locks l " +
+        "USING (SELECT CAST(?1 AS VARCHAR(64)) AS name) s ON l.name = s.name " +
+        "WHEN MATCHED AND l.locked_until <= ?3 THEN UPDATE SET locked_until = ?4, locked_at = ?3, locked_by = ?2 " +
+        "WHEN NOT MATCHED THEN INSERT (name, locked_until, locked_at, locked_by) VALUES (s.name, ?4, ?3, ?2)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public ScheduledJobLockRepositoryImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public boolean tryClaim(String name, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        String sql = databasePlatform.isPostgres() ? POSTGRES_UPSERT : H2_MERGE;
+
+        int affectedRows = entityManager.createNativeQuery(sql)
+            .setParameter(1, name)
+            .setParameter(2, owner)
+            .setParameter(3, now)
+            .setParameter(4, lockedUntil)
+            .executeUpdate();
+
+        return affectedRows > 0;
+    }
+}
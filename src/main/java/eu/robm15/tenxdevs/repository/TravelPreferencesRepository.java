@@ -2,6 +2,8 @@ package eu.robm15.tenxdevs.repository;
 
 import eu.robm15.tenxdevs.model.TravelPreferences;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,6 +16,12 @@ public interface TravelPreferencesRepository extends JpaRepository<TravelPrefere
      */
     Optional<TravelPreferences> findByUserId(String userId);
 
+    /**
+     * Find only the version of a user's preferences (ETag check without loading them)
+     */
+    @Query("SELECT p.version FROM TravelPreferences p WHERE p.userId = :userId")
+    Optional<Long> findVersionByUserId(@Param("userId") String userId);
+
     /**
      * Check if preferences exist for a given user ID
      */
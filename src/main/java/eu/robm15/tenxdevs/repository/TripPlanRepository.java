@@ -1,33 +1,132 @@
 package eu.robm15.tenxdevs.repository;
 
 import eu.robm15.tenxdevs.model.TripPlan;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TripPlanRepository extends JpaRepository<TripPlan, Long> {
+public interface TripPlanRepository extends JpaRepository<TripPlan, Long>, TripPlanRepositoryCustom {
 
     /**
-     * Find all trip plans for a specific user
+     * Find all trip plans for a specific user, leaving out plans of deleted notes
+     * (the Note restriction applies to the subquery)
      */
-    List<TripPlan> findByUserId(String userId);
+    @Query("SELECT p FROM TripPlan p WHERE p.userId = :userId " +
+           "AND EXISTS (SELECT 1 FROM Note n WHERE n.id = p.noteId)")
+    List<TripPlan> findByUserId(@Param("userId") String userId);
 
     /**
-     * Find all trip plans for a specific note
+     * Find all trip plans for a specific user and note
      */
-    List<TripPlan> findByNoteId(Long noteId);
+    List<TripPlan> findByUserIdAndNoteId(String userId, Long noteId);
 
     /**
-     * Find all trip plans for a specific user and note
+     * Check whether the user generated any plan since the given time
      */
-    List<TripPlan> findByUserIdAndNoteId(String userId, Long noteId);
+    boolean existsByUserIdAndCreatedAtGreaterThanEqual(String userId, LocalDateTime since);
+
+    /**
+     * Lock up to {@code limit} rated plans of a note (note purge, before they are deleted)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id AS id, p.userId AS userId, p.rating AS rating, p.promptVersion AS promptVersion, " +
+           "p.model AS model, p.preferencesFingerprint AS preferencesFingerprint " +
+           "FROM TripPlan p WHERE p.noteId = :noteId AND p.rating IS NOT NULL")
+    List<RatedPlan> findRatedByNoteIdForUpdate(@Param("noteId") Long noteId, Limit limit);
+
+    /**
+     * Delete plans by ID (the rated plans of a purge batch)
+     *
+     * @return Number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM TripPlan p WHERE p.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Delete up to {@code limit} plans of a note (one batch of a note purge)
+     *
+     * @return Number of deleted rows - fewer than the limit once the note has no plans left
+     */
+    @Modifying
+    @Query(value = "DELETE FROM trip_plans WHERE id IN " +
+                   "(SELECT id FROM trip_plans WHERE noteId = :noteId LIMIT :limit)", nativeQuery = true)
+    int deleteBatchByNoteId(@Param("noteId") Long noteId, @Param("limit") int limit);
+
+    /**
+     * Delete up to {@code limit} archived plans of a note (note purge, after the live plans)
+     *
+     * @return Number of deleted rows - fewer than the limit once the note has no archived plans left
+     */
+    @Modifying
+    @Query(value = "DELETE FROM trip_plans_archive WHERE id IN " +
+                   "(SELECT id FROM trip_plans_archive WHERE noteId = :noteId LIMIT :limit)", nativeQuery = true)
+    int deleteArchivedBatchByNoteId(@Param("noteId") Long noteId, @Param("limit") int limit);
+
+    /**
+     * Find notes that have plans but no longer exist (not even soft-deleted),
+     * e.g. deleted before purge jobs existed, or a plan saved while its note was being purged
+     */
+    @Query(value = "SELECT DISTINCT p.noteId FROM trip_plans p " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM notes n WHERE n.id = p.noteId) LIMIT :limit", nativeQuery = true)
+    List<Long> findOrphanedNoteIds(@Param("limit") int limit);
 
     /**
      * Count trip plans created by a user after a certain date
-     * (useful for tracking AI usage limits)
+     * (useful for reconciling AI usage counters)
      */
     long countByUserIdAndCreatedAtAfter(String userId, LocalDateTime date);
+
+    /**
+     * Count generated plans per user created in [from, until)
+     * (used by the daily usage rollup reconciler, one usage day at a time)
+     */
+    @Query("SELECT p.userId AS userId, COUNT(p) AS generations " +
+           "FROM TripPlan p WHERE p.createdAt >= :from AND p.createdAt < :until " +
+           "GROUP BY p.userId")
+    List<GenerationCount> countGenerationsPerUser(@Param("from") LocalDateTime from,
+                                                  @Param("until") LocalDateTime until);
+
+    /**
+     * What the rating aggregates need of a plan: its rating and the dimensions it counts under
+     * (see {@link TripPlanRepositoryCustom#updateRating(Long, String, int)})
+     */
+    interface RatingContext {
+        Integer getRating();
+
+        String getPromptVersion();
+
+        String getModel();
+
+        String getPreferencesFingerprint();
+    }
+
+    /**
+     * Projection of {@link #findRatedByNoteIdForUpdate(Long, Limit)} rows
+     */
+    interface RatedPlan extends RatingContext {
+        Long getId();
+
+        String getUserId();
+    }
+
+    /**
+     * Projection of {@link #countGenerationsPerUser(LocalDateTime, LocalDateTime)} rows
+     */
+    interface GenerationCount {
+        String getUserId();
+
+        long getGenerations();
+    }
 }
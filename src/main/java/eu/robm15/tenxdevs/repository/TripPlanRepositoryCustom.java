@@ -0,0 +1,138 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.ExportedTripPlan;
+import eu.robm15.tenxdevs.model.NotePlanStats;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.model.TripPlanSummary;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Custom fragment for {@link TripPlanRepository}: partition maintenance, the plan archive
+ * and queries JPQL can't express - among them every read that has to include archived plans
+ * (trip_plans UNION ALL trip_plans_archive).
+ */
+public interface TripPlanRepositoryCustom {
+
+    /**
+     * Create the monthly trip_plans partitions up to {@code monthsAhead} months after the
+     * current one (PostgreSQL; H2 tables are not partitioned and nothing happens)
+     *
+     * @param monthsAhead Number of future months to prepare
+     * @return Number of partitions created
+     */
+    int createPartitions(int monthsAhead);
+
+    /**
+     * Move one batch of unrated plans created before the given time to trip_plans_archive.
+     * Must run in a transaction; the moved rows are locked until it ends.
+     *
+     * @param createdBefore Only plans created before this time
+     * @param archivedAt Archive time stored with the moved plans
+     * @param limit Maximum number of plans to move
+     * @return Number of moved plans - fewer than the limit when no more plans qualify
+     */
+    int archiveUnratedBatch(LocalDateTime createdBefore, LocalDateTime archivedAt, int limit);
+
+    /**
+     * Find a plan by ID among live and archived plans.
+     * Archived plans are returned detached - they can be read but not modified.
+     *
+     * @param id The plan ID
+     * @return The plan, or empty if it exists in neither table
+     */
+    Optional<TripPlan> findByIdIncludingArchive(Long id);
+
+    /**
+     * Move an archived plan back to trip_plans if it belongs to the user and its note isn't deleted
+     * (e.g. before rating it)
+     *
+     * @param id The plan ID
+     * @param userId The Supabase user ID
+     * @return true if the plan was restored
+     */
+    boolean restoreArchived(Long id, String userId);
+
+    /**
+     * Rate a user's live plan and return its state from before the rating, bumping the note's plans
+     * version. One statement on PostgreSQL (UPDATE ... RETURNING; CTEs lock the row, read the old rating
+     * and bump the version), a row lock and updates by ID on H2. Must run in a transaction.
+     *
+     * @param id The plan ID
+     * @param userId The Supabase user ID - only the owner's plan is rated
+     * @param rating New rating (1-5)
+     * @return The plan's previous rating and the dimensions it counts under, or empty if the plan isn't
+     *         live, belongs to another user or its note is deleted
+     */
+    Optional<TripPlanRepository.RatingContext> updateRating(Long id, String userId, int rating);
+
+    /**
+     * Delete a user's live plan and return what its rating aggregates need, bumping the note's plans
+     * version. One statement on PostgreSQL (DELETE ... RETURNING in a CTE), a row lock, a delete by ID
+     * and an update on H2. Must run in a transaction.
+     * Unlike rating, this works for plans of deleted notes too.
+     *
+     * @param id The plan ID
+     * @param userId The Supabase user ID - only the owner's plan is deleted
+     * @return The deleted plan's rating and dimensions, or empty if the plan isn't live or belongs to another user
+     */
+    Optional<TripPlanRepository.RatingContext> deleteLive(Long id, String userId);
+
+    /**
+     * Delete a user's archived plan, bumping the note's plans version, the same way as {@link #deleteLive}
+     *
+     * @param id The plan ID
+     * @param userId The Supabase user ID - only the owner's plan is deleted
+     * @return Number of deleted plans - 0 if no such archived plan belongs to the user
+     */
+    int deleteArchived(Long id, String userId);
+
+    /**
+     * Find the first page of plan summaries for a specific note, live and archived, newest first.
+     * The plan content is not loaded - only its length and a prefix for the preview.
+     *
+     * @param noteId The note ID
+     * @param limit Maximum number of summaries
+     * @return Plan summaries ordered by createdAt and ID, descending
+     */
+    List<TripPlanSummary> findSummariesByNoteId(Long noteId, Limit limit);
+
+    /**
+     * Find the next page of plan summaries for a specific note,
+     * starting after the given (createdAt, id) position
+     *
+     * @param noteId The note ID
+     * @param createdAt Creation time of the last plan of the previous page
+     * @param id ID of the last plan of the previous page
+     * @param limit Maximum number of summaries
+     * @return Plan summaries ordered by createdAt and ID, descending
+     */
+    List<TripPlanSummary> findSummariesByNoteIdAfter(Long noteId, LocalDateTime createdAt, Long id, Limit limit);
+
+    /**
+     * Stream a user's plans (including content), live and archived, created since the given time,
+     * oldest ID first. Plans of deleted notes are left out.
+     * Must be consumed inside a (read-only) transaction and closed afterwards.
+     *
+     * @param userId The Supabase user ID
+     * @param since Only plans created at or after this time
+     * @return Stream of exported plans
+     */
+    Stream<ExportedTripPlan> streamForExport(String userId, LocalDateTime since);
+
+    /**
+     * Plan statistics per note of a user in one grouped query: plan count, the latest plan
+     * (newest createdAt, then highest ID) with its rating, and the average rating.
+     * Archived plans are counted too.
+     *
+     * @param userId The Supabase user ID - only the user's plans are counted
+     * @param noteIds Notes to report on, or null for every note of the user that has plans
+     * @return Statistics of the notes that have plans
+     */
+    List<NotePlanStats> findPlanStats(String userId, Collection<Long> noteIds);
+}
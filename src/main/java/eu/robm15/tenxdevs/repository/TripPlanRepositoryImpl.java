@@ -0,0 +1,413 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.config.DatabasePlatform;
+import eu.robm15.tenxdevs.model.ExportedTripPlan;
+import eu.robm15.tenxdevs.model.NotePlanStats;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.model.TripPlanSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Partition maintenance and archiving for trip plans (see the V9 migrations).
+ * Old unrated plans move to trip_plans_archive, which has the same columns as trip_plans,
+ * so moving is a plain INSERT ... SELECT plus DELETE on both databases, and reads that cover
+ * archived plans select the same columns from both tables with UNION ALL.
+ */
+public class TripPlanRepositoryImpl implements TripPlanRepositoryCustom {
+
+    private static final String PLAN_COLUMNS =
+        "id, userId, noteId, planContent, rating, createdAt, promptVersion, model, preferencesFingerprint, generationMs";
+
+    /**
+     * Oldest qualifying plans first; locked so a concurrent rating waits instead of being lost
+     */
+    private static final String LOCK_UNRATED =
+        "SELECT id FROM trip_plans WHERE rating IS NULL AND createdAt < ?1 " +
+        "ORDER BY createdAt LIMIT ?2 FOR UPDATE";
+
+    private static final String ARCHIVE_PLANS =
+        "INSERT INTO trip_plans_archive (" + PLAN_COLUMNS + ", archivedAt) " +
+        "SELECT " + PLAN_COLUMNS + ", ?2 FROM trip_plans WHERE id IN (?1)";
+
+    /**
+     * Plans of deleted notes stay archived until the purge job removes them
+     */
+    private static final String RESTORE_PLAN =
+        "INSERT INTO trip_plans (" + PLAN_COLUMNS + ") " +
+        "SELECT " + PLAN_COLUMNS + " FROM trip_plans_archive a WHERE id = ?1 AND userId = ?2 " +
+        "AND EXISTS (SELECT 1 FROM notes n WHERE n.id = a.noteId AND n.deletedAt IS NULL)";
+
+    private static final String RATING_CONTEXT_COLUMNS = "rating, promptVersion, model, preferencesFingerprint";
+
+    /**
+     * CTE that bumps the plans version of the note of the plan in the CTE named by %1$s
+     */
+    private static final String BUMP_PLANS_VERSION =
+        "bumped AS (UPDATE notes n SET plansVersion = n.plansVersion + 1 FROM %1$s WHERE n.id = %1$s.noteId)";
+
+    /**
+     * The CTE locks the row, so it reads the latest committed rating even if a concurrent rating
+     * changed it after this statement's snapshot; plans of deleted notes are not rated
+     */
+    private static final String POSTGRES_RATE =
+        "WITH previous AS (SELECT id, noteId, rating FROM trip_plans t WHERE id = ?1 AND userId = ?2 " +
+        "AND EXISTS (SELECT 1 FROM notes n WHERE n.id = t.noteId AND n.deletedAt IS NULL) FOR UPDATE), " +
+        BUMP_PLANS_VERSION.formatted("previous") + " " +
+        "UPDATE trip_plans p SET rating = ?3 FROM previous WHERE p.id = previous.id " +
+        "RETURNING previous.rating, p.promptVersion, p.model, p.preferencesFingerprint";
+
+    private static final String H2_LOCK_FOR_RATING =
+        "SELECT " + RATING_CONTEXT_COLUMNS + ", noteId FROM trip_plans t WHERE id = ?1 AND userId = ?2 " +
+        "AND EXISTS (SELECT 1 FROM notes n WHERE n.id = t.noteId AND n.deletedAt IS NULL) FOR UPDATE";
+
+    private static final String POSTGRES_DELETE =
+        "WITH deleted AS (DELETE FROM trip_plans WHERE id = ?1 AND userId = ?2 " +
+        "RETURNING noteId, " + RATING_CONTEXT_COLUMNS + "), " + BUMP_PLANS_VERSION.formatted("deleted") + " " +
+        "SELECT " + RATING_CONTEXT_COLUMNS + " FROM deleted";
+
+    private static final String H2_LOCK_FOR_DELETE =
+        "SELECT " + RATING_CONTEXT_COLUMNS + ", noteId FROM trip_plans WHERE id = ?1 AND userId = ?2 FOR UPDATE";
+
+    private static final String POSTGRES_DELETE_ARCHIVED =
+        "WITH deleted AS (DELETE FROM trip_plans_archive WHERE id = ?1 AND userId = ?2 RETURNING noteId), " +
+        BUMP_PLANS_VERSION.formatted("deleted") + " SELECT COUNT(*) FROM deleted";
+
+    /**
+     * Live and archived plans of a note; %1$s is the optional keyset condition (next page),
+     * %2$s the limit parameter. Only the length and a prefix of the content are read.
+     */
+    private static final String PLAN_SUMMARIES =
+        "SELECT id, noteId, rating, createdAt, contentLength, preview " +
+        "FROM (" + summaryBranch("trip_plans") + " UNION ALL " + summaryBranch("trip_plans_archive") + ") p " +
+        "ORDER BY createdAt DESC, id DESC LIMIT %2$s";
+
+    private static final String AFTER_POSITION = " AND (t.createdAt < ?2 OR (t.createdAt = ?2 AND t.id < ?3))";
+
+    private static final String EXPORT_PLANS =
+        "SELECT id, noteId, rating, createdAt, planContent " +
+        "FROM (SELECT id, noteId, rating, createdAt, planContent FROM trip_plans WHERE userId = ?1 AND createdAt >= ?2 " +
+        "UNION ALL SELECT id, noteId, rating, createdAt, planContent FROM trip_plans_archive " +
+        "WHERE userId = ?1 AND createdAt >= ?2) p " +
+        "WHERE EXISTS (SELECT 1 FROM notes n WHERE n.id = p.noteId AND n.deletedAt IS NULL) ORDER BY id";
+
+    /**
+     * Plans are numbered per note, newest first, so the latest plan and its rating come out of the
+     * same GROUP BY as the count and average; %1$s is the optional note filter.
+     * Archived plans are counted; plans of deleted notes are left out.
+     */
+    private static final String PLAN_STATS =
+        "SELECT noteId, COUNT(*), MAX(CASE WHEN recency = 1 THEN id END), " +
+        "MAX(CASE WHEN recency = 1 THEN rating END), AVG(rating) " +
+        "FROM (SELECT id, noteId, rating, " +
+        "ROW_NUMBER() OVER (PARTITION BY noteId ORDER BY createdAt DESC, id DESC) AS recency " +
+        "FROM (SELECT id, noteId, rating, createdAt FROM trip_plans WHERE userId = ?1%1$s " +
+        "UNION ALL SELECT id, noteId, rating, createdAt FROM trip_plans_archive WHERE userId = ?1%1$s) t " +
+        "WHERE EXISTS (SELECT 1 FROM notes n WHERE n.id = t.noteId AND n.deletedAt IS NULL)) p " +
+        "GROUP BY noteId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public TripPlanRepositoryImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public int createPartitions(int monthsAhead) {
+        if (!databasePlatform.isPostgres()) {
+            return 0;
+        }
+        Object created = entityManager.createNativeQuery("SELECT create_trip_plans_partitions(CURRENT_DATE, ?1)")
+            .setParameter(1, monthsAhead)
+            .getSingleResult();
+        return ((Number) created).intValue();
+    }
+
+    @Override
+    public int archiveUnratedBatch(LocalDateTime createdBefore, LocalDateTime archivedAt, int limit) {
+        List<?> rows = entityManager.createNativeQuery(LOCK_UNRATED)
+            .setParameter(1, createdBefore)
+            .setParameter(2, limit)
+            .getResultList();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = rows.stream().map(id -> ((Number) id).longValue()).toList();
+
+        entityManager.createNativeQuery(ARCHIVE_PLANS)
+            .setParameter(1, ids)
+            .setParameter(2, archivedAt)
+            .executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM trip_plans WHERE id IN (?1)")
+            .setParameter(1, ids)
+            .executeUpdate();
+        return ids.size();
+    }
+
+    @Override
+    public Optional<TripPlan> findByIdIncludingArchive(Long id) {
+        TripPlan live = entityManager.find(TripPlan.class, id);
+        if (live != null) {
+            return Optional.of(live);
+        }
+
+        // Built by hand rather than mapped as an entity: a managed TripPlan would be
+        // lazy-loaded and flushed against trip_plans, where this row doesn't exist
+        List<?> rows = entityManager.createNativeQuery(
+                "SELECT " + PLAN_COLUMNS + " FROM trip_plans_archive WHERE id = ?1")
+            .setParameter(1, id)
+            .getResultList();
+        return rows.stream().findFirst().map(row -> toTripPlan((Object[]) row));
+    }
+
+    @Override
+    public boolean restoreArchived(Long id, String userId) {
+        int restored = entityManager.createNativeQuery(RESTORE_PLAN)
+            .setParameter(1, id)
+            .setParameter(2, userId)
+            .executeUpdate();
+        if (restored == 0) {
+            return false;
+        }
+        entityManager.createNativeQuery("DELETE FROM trip_plans_archive WHERE id = ?1")
+            .setParameter(1, id)
+            .executeUpdate();
+        return true;
+    }
+
+    @Override
+    public Optional<TripPlanRepository.RatingContext> updateRating(Long id, String userId, int rating) {
+        if (databasePlatform.isPostgres()) {
+            return firstRatingContext(entityManager.createNativeQuery(POSTGRES_RATE)
+                .setParameter(1, id)
+                .setParameter(2, userId)
+                .setParameter(3, rating)
+                .getResultList());
+        }
+
+        // The row is locked and owned - the update needs no ownership check of its own
+        List<?> rows = entityManager.createNativeQuery(H2_LOCK_FOR_RATING)
+            .setParameter(1, id)
+            .setParameter(2, userId)
+            .getResultList();
+        if (!rows.isEmpty()) {
+            entityManager.createNativeQuery("UPDATE trip_plans SET rating = ?2 WHERE id = ?1")
+                .setParameter(1, id)
+                .setParameter(2, rating)
+                .executeUpdate();
+            bumpPlansVersion(((Object[]) rows.get(0))[4]);
+        }
+        return firstRatingContext(rows);
+    }
+
+    @Override
+    public Optional<TripPlanRepository.RatingContext> deleteLive(Long id, String userId) {
+        if (databasePlatform.isPostgres()) {
+            return firstRatingContext(entityManager.createNativeQuery(POSTGRES_DELETE)
+                .setParameter(1, id)
+                .setParameter(2, userId)
+                .getResultList());
+        }
+
+        List<?> rows = entityManager.createNativeQuery(H2_LOCK_FOR_DELETE)
+            .setParameter(1, id)
+            .setParameter(2, userId)
+            .getResultList();
+        if (!rows.isEmpty()) {
+            entityManager.createNativeQuery("DELETE FROM trip_plans WHERE id = ?1")
+                .setParameter(1, id)
+                .executeUpdate();
+            bumpPlansVersion(((Object[]) rows.get(0))[4]);
+        }
+        return firstRatingContext(rows);
+    }
+
+    @Override
+    public int deleteArchived(Long id, String userId) {
+        if (databasePlatform.isPostgres()) {
+            Object deleted = entityManager.createNativeQuery(POSTGRES_DELETE_ARCHIVED)
+                .setParameter(1, id)
+                .setParameter(2, userId)
+                .getSingleResult();
+            return ((Number) deleted).intValue();
+        }
+
+        List<?> noteIds = entityManager.createNativeQuery(
+                "SELECT noteId FROM trip_plans_archive WHERE id = ?1 AND userId = ?2 FOR UPDATE")
+            .setParameter(1, id)
+            .setParameter(2, userId)
+            .getResultList();
+        if (noteIds.isEmpty()) {
+            return 0;
+        }
+        entityManager.createNativeQuery("DELETE FROM trip_plans_archive WHERE id = ?1")
+            .setParameter(1, id)
+            .executeUpdate();
+        bumpPlansVersion(noteIds.get(0));
+        return 1;
+    }
+
+    @Override
+    public List<TripPlanSummary> findSummariesByNoteId(Long noteId, Limit limit) {
+        List<?> rows = entityManager.createNativeQuery(PLAN_SUMMARIES.formatted("", "?2"))
+            .setParameter(1, noteId)
+            .setParameter(2, limit.max())
+            .getResultList();
+        return rows.stream().map(row -> toSummary((Object[]) row)).toList();
+    }
+
+    @Override
+    public List<TripPlanSummary> findSummariesByNoteIdAfter(Long noteId, LocalDateTime createdAt, Long id, Limit limit) {
+        List<?> rows = entityManager.createNativeQuery(PLAN_SUMMARIES.formatted(AFTER_POSITION, "?4"))
+            .setParameter(1, noteId)
+            .setParameter(2, createdAt)
+            .setParameter(3, id)
+            .setParameter(4, limit.max())
+            .getResultList();
+        return rows.stream().map(row -> toSummary((Object[]) row)).toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<ExportedTripPlan> streamForExport(String userId, LocalDateTime since) {
+        Stream<Object[]> rows = entityManager.createNativeQuery(EXPORT_PLANS)
+            .setParameter(1, userId)
+            .setParameter(2, since)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, NoteRepository.STREAM_FETCH_SIZE)
+            .getResultStream();
+        return rows.map(row -> new ExportedTripPlan(
+            ((Number) row[0]).longValue(),
+            ((Number) row[1]).longValue(),
+            row[2] == null ? null : ((Number) row[2]).intValue(),
+            toDateTime(row[3]),
+            toText(row[4])));
+    }
+
+    @Override
+    public List<NotePlanStats> findPlanStats(String userId, Collection<Long> noteIds) {
+        var query = entityManager.createNativeQuery(PLAN_STATS.formatted(noteIds == null ? "" : " AND noteId IN (?2)"))
+            .setParameter(1, userId);
+        if (noteIds != null) {
+            query.setParameter(2, noteIds);
+        }
+
+        List<?> rows = query.getResultList();
+        return rows.stream().map(row -> toPlanStats((Object[]) row)).toList();
+    }
+
+    /**
+     * H2 fallback for the bumped CTE of the PostgreSQL statements
+     */
+    private void bumpPlansVersion(Object noteId) {
+        entityManager.createNativeQuery("UPDATE notes SET plansVersion = plansVersion + 1 WHERE id = ?1")
+            .setParameter(1, ((Number) noteId).longValue())
+            .executeUpdate();
+    }
+
+    private static String summaryBranch(String table) {
+        return "SELECT t.id, t.noteId, t.rating, t.createdAt, LENGTH(t.planContent) AS contentLength, " +
+            "SUBSTRING(t.planContent, 1, " + TripPlanSummary.PREVIEW_LENGTH + ") AS preview " +
+            "FROM " + table + " t WHERE t.noteId = ?1%1$s";
+    }
+
+    private static Optional<TripPlanRepository.RatingContext> firstRatingContext(List<?> rows) {
+        return rows.stream().findFirst().map(row -> {
+            Object[] columns = (Object[]) row;
+            return new PlanRatingContext(
+                columns[0] == null ? null : ((Number) columns[0]).intValue(),
+                (String) columns[1],
+                (String) columns[2],
+                (String) columns[3]);
+        });
+    }
+
+    private static TripPlanSummary toSummary(Object[] row) {
+        return new TripPlanSummary(
+            ((Number) row[0]).longValue(),
+            ((Number) row[1]).longValue(),
+            row[2] == null ? null : ((Number) row[2]).intValue(),
+            toDateTime(row[3]),
+            ((Number) row[4]).intValue(),
+            toText(row[5]));
+    }
+
+    private static NotePlanStats toPlanStats(Object[] row) {
+        return new NotePlanStats(
+            ((Number) row[0]).longValue(),
+            ((Number) row[1]).longValue(),
+            row[2] == null ? null : ((Number) row[2]).longValue(),
+            row[3] == null ? null : ((Number) row[3]).intValue(),
+            row[4] == null ? null : ((Number) row[4]).doubleValue());
+    }
+
+    private static TripPlan toTripPlan(Object[] row) {
+        TripPlan plan = new TripPlan((String) row[1], ((Number) row[2]).longValue(), toText(row[3]));
+        plan.setId(((Number) row[0]).longValue());
+        plan.setRating(row[4] == null ? null : ((Number) row[4]).intValue());
+        plan.setCreatedAt(toDateTime(row[5]));
+        plan.setPromptVersion((String) row[6]);
+        plan.setModel((String) row[7]);
+        plan.setPreferencesFingerprint((String) row[8]);
+        plan.setGenerationMs(row[9] == null ? null : ((Number) row[9]).longValue());
+        return plan;
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    /**
+     * TEXT columns come back as String on PostgreSQL but as CLOB on H2
+     */
+    private static String toText(Object value) {
+        if (value instanceof Clob clob) {
+            try {
+                return clob.getSubString(1, (int) clob.length());
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not read plan content: " + e.getMessage(), e);
+            }
+        }
+        return (String) value;
+    }
+
+    /**
+     * {@link TripPlanRepository.RatingContext} returned by {@link #updateRating} and {@link #deleteLive}
+     */
+    private record PlanRatingContext(Integer rating, String promptVersion, String model,
+                                     String preferencesFingerprint) implements TripPlanRepository.RatingContext {
+
+        @Override
+        public Integer getRating() {
+            return rating;
+        }
+
+        @Override
+        public String getPromptVersion() {
+            return promptVersion;
+        }
+
+        @Override
+        public String getModel() {
+            return model;
+        }
+
+        @Override
+        public String getPreferencesFingerprint() {
+            return preferencesFingerprint;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.UsageCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface UsageCounterRepository extends JpaRepository<UsageCounter, UsageCounter.Key>, UsageCounterRepositoryCustom {
+
+    /**
+     * Give back one reserved generation (e.g. when the AI call failed)
+     *
+     * @return number of updated rows (0 if there was nothing to release)
+     */
+    @Modifying
+    @Query("UPDATE UsageCounter c SET c.used = c.used - 1 " +
+           "WHERE c.userId = :userId AND c.usageDate = :usageDate AND c.used > 0")
+    int decrement(@Param("userId") String userId, @Param("usageDate") LocalDate usageDate);
+}
@@ -0,0 +1,20 @@
+package eu.robm15.tenxdevs.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Custom fragment for {@link UsageCounterRepository} with the vendor-specific upsert.
+ */
+public interface UsageCounterRepositoryCustom {
+
+    /**
+     * Atomically increment the user's counter for the given day, but only while it is below the limit.
+     * Creates the counter row on first use. Safe across multiple application nodes.
+     *
+     * @param userId Supabase user ID
+     * @param usageDate Day to count the usage for
+     * @param limit Maximum allowed value of the counter
+     * @return The counter after the increment (quota reserved), or 0 if the limit was already reached
+     */
+    long tryIncrement(String userId, LocalDate usageDate, int limit);
+}
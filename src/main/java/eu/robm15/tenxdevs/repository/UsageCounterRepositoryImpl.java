@@ -0,0 +1,69 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.config.DatabasePlatform;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Conditional upsert on usage_counters in a single statement:
+ * PostgreSQL uses INSERT ... ON CONFLICT DO UPDATE ... WHERE ... RETURNING, H2 uses MERGE.
+ * Both touch one row when the counter was created or incremented, and none when the limit
+ * was already reached. PostgreSQL returns the new count with the upsert; H2 reads it back.
+ */
+public class UsageCounterRepositoryImpl implements UsageCounterRepositoryCustom {
+
+    private static final String POSTGRES_UPSERT =
+        "INSERT INTO usage_counters (user_id, usage_date, used) VALUES (?1, ?2, 1) " +
+        "ON CONFLICT (user_id, usage_date) DO UPDATE SET used = usage_counters.used + 1 " +
+        "WHERE usage_counters.used < ?3 RETURNING used";
+
+    private static final String H2_MERGE =
+        "MERGE INTO usage_counters c " +
+        "USING (SELECT CAST(?1 AS VARCHAR(255)) AS user_id, CAST(?2 AS DATE) AS usage_date) s " +
+        "ON c.user_id = s.user_id AND c.usage_date = s.usage_date " +
+        "WHEN MATCHED AND c.used < ?3 THEN UPDATE SET used = c.used + 1 " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, usage_date, used) VALUES (s.user_id, s.usage_date, 1)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DatabasePlatform databasePlatform;
+
+    public UsageCounterRepositoryImpl(DatabasePlatform databasePlatform) {
+        this.databasePlatform = databasePlatform;
+    }
+
+    @Override
+    public long tryIncrement(String userId, LocalDate usageDate, int limit) {
+        if (limit <= 0) {
+            return 0;
+        }
+
+        if (databasePlatform.isPostgres()) {
+            List<?> used = entityManager.createNativeQuery(POSTGRES_UPSERT)
+                .setParameter(1, userId)
+                .setParameter(2, usageDate)
+                .setParameter(3, limit)
+                .getResultList();
+            return used.isEmpty() ? 0 : ((Number) used.get(0)).longValue();
+        }
+
+        int affectedRows = entityManager.createNativeQuery(H2_MERGE)
+            .setParameter(1, userId)
+            .setParameter(2, usageDate)
+            .setParameter(3, limit)
+            .executeUpdate();
+        if (affectedRows == 0) {
+            return 0;
+        }
+        Object used = entityManager.createNativeQuery(
+                "SELECT used FROM usage_counters WHERE user_id = ?1 AND usage_date = ?2")
+            .setParameter(1, userId)
+            .setParameter(2, usageDate)
+            .getSingleResult();
+        return ((Number) used).longValue();
+    }
+}
@@ -1,40 +1,45 @@
 package eu.robm15.tenxdevs.service;
 
-import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import eu.robm15.tenxdevs.config.AiUsageProperties;
+import eu.robm15.tenxdevs.repository.UsageCounterRepository;
+import eu.robm15.tenxdevs.util.UsageDays;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.util.Optional;
 
 /**
  * Service for managing AI usage limits per user.
  * Prevents abuse and controls costs by limiting the number of AI-generated plans.
+ * Quota is reserved atomically in the usage_counters table before each AI call
+ * and mirrored in in-memory counters for cheap reads, see {@link UsageCounterService}.
+ * Days are UTC days ({@link UsageDays}) for every user, so the quota can't be stretched by
+ * claiming another time zone. Every quota resets at midnight UTC; how fast a fresh quota can be
+ * spent is bounded by the per-minute and per-hour buckets of {@link RateLimitService}.
  */
 @Service
 public class AIUsageLimitService {
 
     @Autowired
-    private TripPlanRepository tripPlanRepository;
+    private UsageCounterRepository usageCounterRepository;
 
-    /**
-     * Maximum number of plans a user can generate per day
-     * Default: 10 plans per day
-     */
-    @Value("${ai.usage.limit.daily:10}")
-    private int dailyLimit;
+    @Autowired
+    private UsageCounterService usageCounterService;
+
+    @Autowired
+    private AiUsageProperties usageProperties;
 
     /**
-     * Check if user has exceeded their daily AI usage limit
+     * Check if user has exceeded their daily AI usage limit.
+     * This is an advisory check for the UI - use {@link #tryReserve(String)} before generating.
      *
      * @param userId Supabase user ID
      * @return true if user can generate more plans, false if limit exceeded
      */
     public boolean canGeneratePlan(String userId) {
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        long todayCount = tripPlanRepository.countByUserIdAndCreatedAtAfter(userId, startOfDay);
-
-        return todayCount < dailyLimit;
+        return getTodayUsageCount(userId) < getDailyLimit(userId);
     }
 
     /**
@@ -44,8 +49,42 @@ public class AIUsageLimitService {
      * @return number of plans generated today
      */
     public long getTodayUsageCount(String userId) {
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        return tripPlanRepository.countByUserIdAndCreatedAtAfter(userId, startOfDay);
+        return usageCounterService.getCount(userId, UsageDays.today());
+    }
+
+    /**
+     * Atomically reserve one plan generation from the user's daily quota.
+     * Check and increment happen in a single conditional upsert, so concurrent
+     * requests (also on other nodes) can never overshoot the limit. The upsert returns
+     * the new count, which refreshes this node's counter without another query.
+     *
+     * @param userId Supabase user ID
+     * @return The usage day the generation was charged to, or empty if the daily limit is already reached
+     */
+    @Transactional
+    public Optional<LocalDate> tryReserve(String userId) {
+        LocalDate today = UsageDays.today();
+        long used = usageCounterRepository.tryIncrement(userId, today, getDailyLimit(userId));
+        if (used == 0) {
+            usageCounterService.reconcile(userId, today);
+            return Optional.empty();
+        }
+        usageCounterService.update(userId, today, used);
+        return Optional.of(today);
+    }
+
+    /**
+     * Give back a reservation made by {@link #tryReserve(String)}, e.g. when plan generation failed.
+     * The refund goes to the day that was charged, even if the generation ran past midnight UTC.
+     *
+     * @param userId Supabase user ID
+     * @param day    Usage day returned by {@link #tryReserve(String)}
+     */
+    @Transactional
+    public void releaseReservation(String userId, LocalDate day) {
+        if (usageCounterRepository.decrement(userId, day) > 0) {
+            usageCounterService.reconcile(userId, day);
+        }
     }
 
     /**
@@ -56,15 +95,25 @@ public class AIUsageLimitService {
      */
     public int getRemainingUsage(String userId) {
         long used = getTodayUsageCount(userId);
-        return Math.max(0, dailyLimit - (int) used);
+        return Math.max(0, getDailyLimit(userId) - (int) used);
     }
 
     /**
-     * Get the daily limit for plan generation
+     * Get the daily limit for plan generation of the user's tier
      *
+     * @param userId Supabase user ID
      * @return daily limit
      */
-    public int getDailyLimit() {
-        return dailyLimit;
+    public int getDailyLimit(String userId) {
+        return usageProperties.dailyLimitFor(userId);
+    }
+
+    /**
+     * Get the number of seconds until the daily quota resets (midnight UTC)
+     *
+     * @return seconds until reset
+     */
+    public long getSecondsUntilDailyReset() {
+        return UsageDays.secondsUntilNextDay();
     }
 }
@@ -0,0 +1,179 @@
+package eu.robm15.tenxdevs.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import eu.robm15.tenxdevs.model.ExportedTripPlan;
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streaming export of a user's notes and trip plans.
+ * Rows are read through database cursors (fetch-size chunks), written one at a time and
+ * then dropped from the persistence context, so memory use doesn't grow with the account size.
+ *
+ * Incremental exports include notes updated and plans created since a given time;
+ * deletions and later rating changes are not part of an incremental export.
+ * Timestamps are written as UTC with an explicit offset (e.g. 2026-10-19T08:15:30Z), not in the server's zone.
+ */
+@Service
+public class ExportService {
+
+    /**
+     * Lower bound used for a full export
+     */
+    public static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final NoteRepository noteRepository;
+
+    private final TripPlanRepository tripPlanRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * Writes one JSON document per call without closing or flushing the target stream
+     */
+    private final ObjectWriter writer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public ExportService(NoteRepository noteRepository, TripPlanRepository tripPlanRepository,
+                         PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.noteRepository = noteRepository;
+        this.tripPlanRepository = tripPlanRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writer = objectMapper.copy()
+            .registerModule(new SimpleModule().addSerializer(LocalDateTime.class, new UtcTimestampSerializer()))
+            .writer()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Check whether anything would be exported
+     *
+     * @param userId User ID
+     * @param since  Lower bound of the incremental export
+     * @return true if a note was updated or a plan generated at or after {@code since}
+     */
+    public boolean hasChangesSince(String userId, LocalDateTime since) {
+        return noteRepository.existsByUserIdAndUpdatedAtGreaterThanEqual(userId, since)
+            || tripPlanRepository.existsByUserIdAndCreatedAtGreaterThanEqual(userId, since);
+    }
+
+    /**
+     * Write notes, then plans, as NDJSON: one {"type": "note"|"trip_plan", "data": {...}} object per line
+     *
+     * @param userId User ID
+     * @param since  Lower bound of the export ({@link #BEGINNING} for everything)
+     * @param out    Target stream (not closed)
+     */
+    public void writeNdjson(String userId, LocalDateTime since, OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            writeNotes(userId, since, out, true);
+            writePlans(userId, since, out, true);
+        });
+    }
+
+    /**
+     * Write a ZIP archive with notes.ndjson and trip_plans.ndjson (one object per line)
+     *
+     * @param userId User ID
+     * @param since  Lower bound of the export ({@link #BEGINNING} for everything)
+     * @param out    Target stream (not closed)
+     */
+    public void writeZip(String userId, LocalDateTime since, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try {
+                zip.putNextEntry(new ZipEntry("notes.ndjson"));
+                writeNotes(userId, since, zip, false);
+                zip.closeEntry();
+
+                zip.putNextEntry(new ZipEntry("trip_plans.ndjson"));
+                writePlans(userId, since, zip, false);
+                zip.closeEntry();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // Writes the central directory without closing the response stream
+        zip.finish();
+    }
+
+    private void writeNotes(String userId, LocalDateTime since, OutputStream out, boolean typed) {
+        try (Stream<Note> notes = noteRepository.streamByUserIdAndUpdatedAtGreaterThanEqualOrderById(userId, since)) {
+            notes.forEach(note -> {
+                writeLine(out, typed ? new ExportLine("note", note) : note);
+                entityManager.detach(note);
+            });
+        }
+    }
+
+    private void writePlans(String userId, LocalDateTime since, OutputStream out, boolean typed) {
+        // Plans are read as plain rows (live and archived), not managed entities - nothing to detach
+        try (Stream<ExportedTripPlan> plans = tripPlanRepository.streamForExport(userId, since)) {
+            plans.forEach(plan -> writeLine(out, typed ? new ExportLine("trip_plan", plan) : plan));
+        }
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            writer.writeValue(out, value);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One line of the NDJSON export
+     */
+    private record ExportLine(String type, Object data) {
+    }
+
+    /**
+     * Writes a LocalDateTime (in the JVM's zone, like all entity timestamps) as a UTC timestamp
+     */
+    private static class UtcTimestampSerializer extends StdSerializer<LocalDateTime> {
+
+        UtcTimestampSerializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeString(TIMESTAMP.format(value.atZone(ZoneId.systemDefault())));
+        }
+    }
+}
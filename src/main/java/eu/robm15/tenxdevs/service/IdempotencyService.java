@@ -0,0 +1,154 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.config.IdempotencyProperties;
+import eu.robm15.tenxdevs.model.IdempotencyRecord;
+import eu.robm15.tenxdevs.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Store of Idempotency-Key requests and their responses, shared by all nodes through the database.
+ * The first request with a key claims it; duplicates arriving meanwhile wait for its response,
+ * later retries get the stored response until it expires.
+ *
+ * Every step is a short transaction of its own (not read-only, so lookups never go to a lagging
+ * read replica), and the claim is committed before the request runs so other nodes see it.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    /**
+     * Pause between lookups while waiting for a concurrent request with the same key
+     */
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final IdempotencyProperties properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ScheduledJobLockService jobLocks;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              IdempotencyProperties properties, PlatformTransactionManager transactionManager,
+                              ScheduledJobLockService jobLocks) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLocks = jobLocks;
+    }
+
+    /**
+     * Claim the key for this request, or find out what happened to the request that holds it.
+     * Waits up to app.idempotency.wait-timeout while another request with the key is in progress.
+     *
+     * @param userId The user ID
+     * @param idempotencyKey Idempotency-Key header value
+     * @param requestHash Hash of method, path and body of this request
+     * @return What to do with the request
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Claim claim(String userId, String idempotencyKey, String requestHash) throws InterruptedException {
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            Boolean claimed = transactionTemplate.execute(status -> idempotencyRecordRepository.tryClaim(
+                userId, idempotencyKey, requestHash, now, now.plus(properties.getLockTimeout())));
+            if (Boolean.TRUE.equals(claimed)) {
+                return new Claim(Outcome.CLAIMED, null);
+            }
+
+            Optional<IdempotencyRecord> existing = transactionTemplate.execute(status ->
+                idempotencyRecordRepository.findById(new IdempotencyRecord.Key(userId, idempotencyKey)));
+
+            // Released or expired in between - try to claim it again
+            if (existing != null && existing.isPresent()) {
+                IdempotencyRecord record = existing.get();
+                if (!record.getRequestHash().equals(requestHash)) {
+                    return new Claim(Outcome.MISMATCH, record);
+                }
+                if (record.isCompleted()) {
+                    return new Claim(Outcome.REPLAY, record);
+                }
+                if (System.nanoTime() >= deadline) {
+                    return new Claim(Outcome.IN_PROGRESS, record);
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        }
+    }
+
+    /**
+     * Store the response of a claimed request, to be replayed for app.idempotency.ttl
+     *
+     * @return true if stored, false if the claim was lost in the meantime
+     */
+    public boolean complete(String userId, String idempotencyKey, String requestHash,
+                            int status, String contentType, byte[] body, String headers) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(properties.getTtl());
+        Integer updated = transactionTemplate.execute(tx -> idempotencyRecordRepository.complete(
+            userId, idempotencyKey, requestHash, status, contentType, body, headers, expiresAt));
+        return updated != null && updated > 0;
+    }
+
+    /**
+     * Give up a claim without storing a response (the request failed in a way worth retrying)
+     */
+    public void release(String userId, String idempotencyKey, String requestHash) {
+        transactionTemplate.executeWithoutResult(tx ->
+            idempotencyRecordRepository.release(userId, idempotencyKey, requestHash));
+    }
+
+    /**
+     * Remove expired keys (on one node at a time)
+     *
+     * @return Number of removed keys
+     */
+    @Scheduled(cron = "${app.idempotency.purge-cron:0 30 4 * * *}")
+    public int purgeExpired() {
+        return jobLocks.callExclusively("idempotency-keys-purge", () -> {
+            Integer purged = transactionTemplate.execute(tx ->
+                idempotencyRecordRepository.deleteByExpiresAtBefore(LocalDateTime.now()));
+            if (purged != null && purged > 0) {
+                log.info("Purged {} expired idempotency keys", purged);
+            }
+            return purged == null ? 0 : purged;
+        }).orElse(0);
+    }
+
+    /**
+     * What to do with a request carrying an Idempotency-Key
+     */
+    public enum Outcome {
+        /** The key is ours - run the request and store its response */
+        CLAIMED,
+        /** A request with the key already finished - replay its response */
+        REPLAY,
+        /** The key was used for a different request */
+        MISMATCH,
+        /** A request with the key is still running after waiting */
+        IN_PROGRESS
+    }
+
+    /**
+     * Result of {@link #claim}
+     *
+     * @param outcome What to do with the request
+     * @param record  The stored request/response for REPLAY, MISMATCH and IN_PROGRESS, otherwise null
+     */
+    public record Claim(Outcome outcome, IdempotencyRecord record) {
+    }
+}
@@ -0,0 +1,197 @@
+package eu.robm15.tenxdevs.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk import of notes from a JSON array or NDJSON (one JSON object per line).
+ * The input is parsed as a stream and persisted in batches, each in its own transaction,
+ * so memory use doesn't depend on the size of the upload and JDBC batching applies.
+ */
+@Service
+public class NoteImportService {
+
+    /**
+     * Row errors listed in the result; further errors are only counted
+     */
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private final NoteRepository noteRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${notes.import.batch-size:50}")
+    private int batchSize;
+
+    @Value("${notes.import.max-rows:10000}")
+    private int maxRows;
+
+    @Autowired
+    public NoteImportService(NoteRepository noteRepository, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.noteRepository = noteRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Import notes for a user. Invalid rows are skipped and reported; valid rows are saved
+     * even if other rows fail. Malformed JSON stops the import - rows before it are kept.
+     *
+     * @param userId The user ID
+     * @param input  Request body - a JSON array of {title, content} objects, or NDJSON
+     * @return Number of imported rows and per-row errors (1-based row numbers)
+     * @throws IOException if reading the input fails
+     */
+    public ImportResult importNotes(String userId, InputStream input) throws IOException {
+        ImportResult result = new ImportResult();
+        List<Note> batch = new ArrayList<>(batchSize);
+        int row = 0;
+        // Row blamed if the JSON turns out to be malformed
+        int parsingRow = 1;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && token != JsonToken.END_ARRAY) {
+                row++;
+                if (row > maxRows) {
+                    result.stop(row, "Import is limited to " + maxRows + " notes per request");
+                    break;
+                }
+
+                parsingRow = row;
+                JsonNode node = objectMapper.readTree(parser);
+                String error = validate(node);
+                if (error != null) {
+                    result.addError(row, error);
+                } else {
+                    batch.add(new Note(userId, node.get("title").asText().trim(), node.get("content").asText()));
+                    if (batch.size() >= batchSize) {
+                        persist(batch, result);
+                    }
+                }
+
+                parsingRow = row + 1;
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            result.stop(parsingRow, "Malformed JSON: " + e.getOriginalMessage());
+        }
+
+        persist(batch, result);
+        return result;
+    }
+
+    private String validate(JsonNode node) {
+        if (!node.isObject()) {
+            return "Expected a JSON object";
+        }
+        JsonNode title = node.get("title");
+        if (title == null || !title.isTextual() || title.asText().trim().isEmpty()) {
+            return "Title is required";
+        }
+        if (title.asText().trim().length() > 255) {
+            return "Title must be at most 255 characters";
+        }
+        JsonNode content = node.get("content");
+        if (content == null || !content.isTextual() || content.asText().trim().isEmpty()) {
+            return "Content is required";
+        }
+        return null;
+    }
+
+    /**
+     * Save one batch in its own transaction and detach it, so the persistence context
+     * (kept open for the whole request) doesn't grow with the import
+     */
+    private void persist(List<Note> batch, ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            noteRepository.saveAll(batch);
+            entityManager.flush();
+            entityManager.clear();
+        });
+        result.imported += batch.size();
+        batch.clear();
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static class ImportResult {
+
+        private int imported;
+        private int failed;
+        private boolean aborted;
+        private final List<RowError> errors = new ArrayList<>();
+
+        void addError(int row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(row, message));
+            }
+        }
+
+        void stop(int row, String message) {
+            aborted = true;
+            errors.add(new RowError(row, message));
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * True if the import stopped early (malformed JSON or row limit); rows after that point were not read
+         */
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        public List<RowError> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Problem with one input row
+     *
+     * @param row     1-based position in the input
+     * @param message What is wrong with the row
+     */
+    public record RowError(int row, String message) {
+    }
+}
@@ -0,0 +1,192 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.model.NotePurgeJob;
+import eu.robm15.tenxdevs.repository.NotePurgeJobRepository;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Background removal of deleted notes' trip plans.
+ * Each purge job deletes the note's plans (rated, unrated, then archived) in small batches, each in its
+ * own short transaction with a pause in between; rated plans leave the rating aggregates in the
+ * transaction that deletes them, so a note with many plans never holds locks
+ * for long or writes a burst of WAL; the note row and the job go last. A run stops after a bounded number of
+ * batches and continues on the next run.
+ *
+ * A periodic sweep enqueues jobs for plans whose note is gone without one
+ * (notes deleted before soft delete existed, or plans saved while their note was purged).
+ * Both jobs run on one node at a time ({@link ScheduledJobLockService}).
+ */
+@Service
+public class NotePurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotePurgeService.class);
+
+    /**
+     * Jobs fetched per run; a run may finish fewer of them if it runs out of batches
+     */
+    private static final int JOBS_PER_RUN = 50;
+
+    private final NotePurgeJobRepository notePurgeJobRepository;
+
+    private final NoteRepository noteRepository;
+
+    private final TripPlanRepository tripPlanRepository;
+
+    private final RatingAggregateService ratingAggregateService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ScheduledJobLockService jobLocks;
+
+    @Value("${notes.purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notes.purge.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${notes.purge.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${notes.purge.sweep-limit:1000}")
+    private int sweepLimit;
+
+    @Autowired
+    public NotePurgeService(NotePurgeJobRepository notePurgeJobRepository, NoteRepository noteRepository,
+                            TripPlanRepository tripPlanRepository, RatingAggregateService ratingAggregateService,
+                            PlatformTransactionManager transactionManager, ScheduledJobLockService jobLocks) {
+        this.notePurgeJobRepository = notePurgeJobRepository;
+        this.noteRepository = noteRepository;
+        this.tripPlanRepository = tripPlanRepository;
+        this.ratingAggregateService = ratingAggregateService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLocks = jobLocks;
+    }
+
+    /**
+     * Work through pending purge jobs, oldest first
+     *
+     * @return Number of jobs completed in this run
+     */
+    @Scheduled(fixedDelayString = "${notes.purge.interval-ms:60000}",
+               initialDelayString = "${notes.purge.interval-ms:60000}")
+    public int purge() {
+        return jobLocks.callExclusively("note-purge", this::purgePending).orElse(0);
+    }
+
+    private int purgePending() {
+        List<NotePurgeJob> jobs = notePurgeJobRepository.findAllByOrderByEnqueuedAtAsc(Limit.of(JOBS_PER_RUN));
+        int batches = 0;
+        int completed = 0;
+
+        for (NotePurgeJob job : jobs) {
+            Long noteId = job.getNoteId();
+            int deletedPlans = 0;
+
+            while (batches < maxBatchesPerRun) {
+                if (batches > 0 && !pause()) {
+                    return completed;
+                }
+                Integer deleted = transactionTemplate.execute(status -> {
+                    int batch = deleteRatedBatch(noteId, batchSize);
+                    if (batch < batchSize) {
+                        batch += tripPlanRepository.deleteBatchByNoteId(noteId, batchSize - batch);
+                    }
+                    // Archived plans go once the live ones are done
+                    return batch < batchSize
+                        ? batch + tripPlanRepository.deleteArchivedBatchByNoteId(noteId, batchSize - batch)
+                        : batch;
+                });
+                batches++;
+                deletedPlans += deleted;
+
+                if (deleted < batchSize) {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        noteRepository.purgeDeletedById(noteId);
+                        notePurgeJobRepository.deleteById(noteId);
+                    });
+                    completed++;
+                    log.debug("Purged note {} and {} trip plans", noteId, deletedPlans);
+                    break;
+                }
+            }
+
+            if (batches >= maxBatchesPerRun) {
+                break;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Delete up to {@code limit} rated plans of a note and take their ratings out of the aggregates.
+     * Archived plans are never rated, so they need no such step.
+     *
+     * @return Number of deleted plans
+     */
+    private int deleteRatedBatch(Long noteId, int limit) {
+        List<TripPlanRepository.RatedPlan> rated = tripPlanRepository.findRatedByNoteIdForUpdate(noteId, Limit.of(limit));
+        if (rated.isEmpty()) {
+            return 0;
+        }
+        rated.forEach(plan -> ratingAggregateService.recordRatingRemoval(plan.getUserId(), plan));
+        return tripPlanRepository.deleteByIdIn(rated.stream().map(TripPlanRepository.RatedPlan::getId).toList());
+    }
+
+    /**
+     * Enqueue purge jobs for trip plans whose note no longer exists
+     *
+     * @return Number of enqueued jobs
+     */
+    @Scheduled(cron = "${notes.purge.sweep-cron:0 30 3 * * *}")
+    public int sweepOrphans() {
+        return jobLocks.callExclusively("note-orphan-sweep", this::enqueueOrphans).orElse(0);
+    }
+
+    private int enqueueOrphans() {
+        Integer enqueued = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<NotePurgeJob> jobs = tripPlanRepository.findOrphanedNoteIds(sweepLimit).stream()
+                .filter(noteId -> !notePurgeJobRepository.existsById(noteId))
+                .map(noteId -> new NotePurgeJob(noteId, now))
+                .toList();
+            notePurgeJobRepository.saveAll(jobs);
+            return jobs.size();
+        });
+
+        if (enqueued > 0) {
+            log.info("Enqueued purge jobs for {} notes with orphaned trip plans", enqueued);
+        }
+        return enqueued;
+    }
+
+    /**
+     * Throttle between batches
+     *
+     * @return false if the thread was interrupted (the run should stop)
+     */
+    private boolean pause() {
+        if (batchPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package eu.robm15.tenxdevs.service;
 
 import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.NoteDeletion;
+import eu.robm15.tenxdevs.model.NotePurgeJob;
+import eu.robm15.tenxdevs.model.NoteSummary;
+import eu.robm15.tenxdevs.repository.NoteDeletionRepository;
+import eu.robm15.tenxdevs.repository.NotePurgeJobRepository;
 import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.util.EntityTags;
+import eu.robm15.tenxdevs.util.KeysetCursor;
+import eu.robm15.tenxdevs.util.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,9 +29,16 @@ public class NoteService {
 
     private final NoteRepository noteRepository;
 
+    private final NotePurgeJobRepository notePurgeJobRepository;
+
+    private final NoteDeletionRepository noteDeletionRepository;
+
     @Autowired
-    public NoteService(NoteRepository noteRepository) {
+    public NoteService(NoteRepository noteRepository, NotePurgeJobRepository notePurgeJobRepository,
+                       NoteDeletionRepository noteDeletionRepository) {
         this.noteRepository = noteRepository;
+        this.notePurgeJobRepository = notePurgeJobRepository;
+        this.noteDeletionRepository = noteDeletionRepository;
     }
 
     /**
@@ -38,13 +56,29 @@ public class NoteService {
     }
 
     /**
-     * Get all notes for a specific user, ordered by creation date (newest first).
+     * Get one page of note summaries for a specific user, ordered by creation date (newest first).
+     * Summaries carry a content snippet only; the full note is loaded by {@link #getNoteByIdAndUserId}.
      *
      * @param userId The user ID
-     * @return List of notes
+     * @param cursor Token returned with the previous page, or null for the first page
+     * @param pageSize Maximum number of notes on the page
+     * @return Page of note summaries with the token for the next page
+     * @throws IllegalArgumentException if the cursor is malformed
      */
-    public List<Note> getAllNotesByUserId(String userId) {
-        return noteRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    @Transactional(readOnly = true)
+    public KeysetPage<NoteSummary> getNotesPage(String userId, String cursor, int pageSize) {
+        // Fetch one extra row to find out whether another page exists
+        Limit limit = Limit.of(pageSize + 1);
+        List<NoteSummary> notes;
+
+        if (cursor == null) {
+            notes = noteRepository.findSummariesByUserId(userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            notes = noteRepository.findSummariesByUserIdAfter(userId, after.createdAt(), after.id(), limit);
+        }
+
+        return KeysetPage.of(notes, pageSize, note -> new KeysetCursor(note.createdAt(), note.id()));
     }
 
     /**
@@ -54,38 +88,82 @@ public class NoteService {
      * @param userId The user ID
      * @return Optional containing the note if found and owned by the user
      */
+    @Transactional(readOnly = true)
     public Optional<Note> getNoteByIdAndUserId(Long noteId, String userId) {
         return noteRepository.findByIdAndUserId(noteId, userId);
     }
 
+    /**
+     * Get a note's version without loading the note.
+     *
+     * @param noteId The note ID
+     * @param userId The user ID
+     * @return Optional containing the version if the note exists and is owned by the user
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> getNoteVersion(Long noteId, String userId) {
+        return noteRepository.findVersionByIdAndUserId(noteId, userId);
+    }
+
+    /**
+     * Check whether a note exists and belongs to the user, without loading it.
+     *
+     * @param noteId The note ID
+     * @param userId The user ID
+     * @return true if the note exists and is owned by the user
+     */
+    @Transactional(readOnly = true)
+    public boolean noteExists(Long noteId, String userId) {
+        return noteRepository.existsByIdAndUserId(noteId, userId);
+    }
+
+    /**
+     * Get the weak ETag of the user's note list; it changes whenever any of the user's
+     * notes is created, updated or deleted.
+     *
+     * @param userId The user ID
+     * @return Weak entity tag covering every page of the note list
+     */
+    @Transactional(readOnly = true)
+    public String getNotesETag(String userId) {
+        NoteRepository.NotesState state = noteRepository.findStateByUserId(userId);
+        LocalDateTime lastUpdatedAt = state.getLastUpdatedAt();
+        return EntityTags.weak(
+            state.getCount(),
+            lastUpdatedAt == null ? 0 : lastUpdatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+            state.getVersions() == null ? 0 : state.getVersions()
+        );
+    }
+
     /**
      * Update an existing note.
-     * Verifies that the note belongs to the user before updating.
+     * The ownership check and the update are one statement, which also returns the updated row.
      *
      * @param noteId The note ID
      * @param userId The user ID
      * @param title The new title
      * @param content The new content
+     * @param expectedVersion Version the client last saw (from If-Match), or null to update unconditionally
      * @return Optional containing the updated note if found and owned by the user
+     * @throws VersionConflictException if the note exists but was changed since the expected version
      */
     @Transactional
-    public Optional<Note> updateNote(Long noteId, String userId, String title, String content) {
-        Optional<Note> existingNote = noteRepository.findByIdAndUserId(noteId, userId);
-
-        if (existingNote.isPresent()) {
-            Note note = existingNote.get();
-            note.setTitle(title);
-            note.setContent(content);
-            Note updatedNote = noteRepository.save(note);
-            return Optional.of(updatedNote);
-        }
+    public Optional<Note> updateNote(Long noteId, String userId, String title, String content, Long expectedVersion) {
+        Optional<Note> updated = noteRepository.updateByIdAndUserId(
+            noteId, userId, title, content, LocalDateTime.now(), expectedVersion);
 
-        return Optional.empty();
+        // Only a failed conditional update needs the extra lookup to tell a conflict from "not found"
+        if (updated.isEmpty() && expectedVersion != null && noteRepository.existsByIdAndUserId(noteId, userId)) {
+            throw new VersionConflictException("The note was changed in the meantime");
+        }
+        return updated;
     }
 
     /**
      * Delete a note by ID.
-     * Verifies that the note belongs to the user before deleting.
+     * The note is only marked deleted (the ownership check is part of that statement);
+     * its trip plans and the row itself are removed in the background by {@link NotePurgeService}.
+     * The deletion is logged for delta sync clients ({@link NoteSyncService}).
      *
      * @param noteId The note ID
      * @param userId The user ID
@@ -93,10 +171,12 @@ public class NoteService {
      */
     @Transactional
     public boolean deleteNote(Long noteId, String userId) {
-        if (noteRepository.existsByIdAndUserId(noteId, userId)) {
-            noteRepository.deleteByIdAndUserId(noteId, userId);
-            return true;
+        LocalDateTime now = LocalDateTime.now();
+        if (noteRepository.markDeletedByIdAndUserId(noteId, userId, now) == 0) {
+            return false;
         }
-        return false;
+        notePurgeJobRepository.save(new NotePurgeJob(noteId, now));
+        noteDeletionRepository.save(new NoteDeletion(noteId, userId, now));
+        return true;
     }
 }
@@ -0,0 +1,146 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.config.ReplicaRoutingDataSource;
+import eu.robm15.tenxdevs.model.NoteChanges;
+import eu.robm15.tenxdevs.model.NoteDeletion;
+import eu.robm15.tenxdevs.model.NoteSummary;
+import eu.robm15.tenxdevs.repository.NoteDeletionRepository;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.util.KeysetCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Delta sync of a user's notes: instead of reloading the whole list, clients keep a local copy
+ * and ask for what changed since their sync cursor - notes created or updated after it
+ * (ordered by (updatedAt, id), so the {@link KeysetCursor} time is an update time here)
+ * and tombstones from the deletion log.
+ *
+ * Update times are taken before commit, so a slow transaction can commit a change dated
+ * slightly before a cursor already handed out. Caught-up cursors therefore point
+ * {@code notes.sync.overlap} back in time; clients may see a change twice, never miss one.
+ * That only holds against the primary: a replica lagging by more than the overlap would hand out
+ * cursors past changes it hasn't received yet, so sync reads always run on the primary.
+ */
+@Service
+public class NoteSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSyncService.class);
+
+    /**
+     * Start of a full sync (no cursor yet)
+     */
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final NoteRepository noteRepository;
+
+    private final NoteDeletionRepository noteDeletionRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ScheduledJobLockService jobLocks;
+
+    @Value("${notes.sync.overlap:10s}")
+    private Duration overlap;
+
+    @Value("${notes.sync.deletion-retention:30d}")
+    private Duration deletionRetention;
+
+    @Autowired
+    public NoteSyncService(NoteRepository noteRepository, NoteDeletionRepository noteDeletionRepository,
+                           PlatformTransactionManager transactionManager, ScheduledJobLockService jobLocks) {
+        this.noteRepository = noteRepository;
+        this.noteDeletionRepository = noteDeletionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLocks = jobLocks;
+    }
+
+    /**
+     * Get a cursor for changes from now on, for clients that have just loaded the full list.
+     * Take it before loading the list, so nothing changed in between is lost.
+     *
+     * @return Opaque sync cursor
+     */
+    public String currentCursor() {
+        return new KeysetCursor(LocalDateTime.now().minus(overlap), 0L).encode();
+    }
+
+    /**
+     * Get the changes to a user's notes since the cursor, oldest first.
+     *
+     * @param userId The user ID
+     * @param cursor Cursor from {@link #currentCursor()} or the previous sync, or null for everything
+     * @param pageSize Maximum number of changed notes in one response
+     * @return Changed notes, tombstones and the cursor for the next sync
+     * @throws IllegalArgumentException if the cursor is malformed
+     * @throws SyncCursorExpiredException if deletions since the cursor may already be pruned from the log
+     */
+    public NoteChanges getChanges(String userId, String cursor, int pageSize) {
+        return ReplicaRoutingDataSource.onPrimary(
+            () -> readOnlyTransaction.execute(status -> readChanges(userId, cursor, pageSize)));
+    }
+
+    private NoteChanges readChanges(String userId, String cursor, int pageSize) {
+        LocalDateTime syncStart = LocalDateTime.now();
+        KeysetCursor since = cursor == null ? new KeysetCursor(BEGINNING, 0L) : KeysetCursor.decode(cursor);
+
+        if (cursor != null && since.createdAt().isBefore(syncStart.minus(deletionRetention))) {
+            throw new SyncCursorExpiredException("Sync cursor is older than the deletion log");
+        }
+
+        // Fetch one extra row to find out whether more changes are waiting
+        List<NoteSummary> notes = noteRepository.findSummariesChangedAfter(
+            userId, since.createdAt(), since.id(), Limit.of(pageSize + 1));
+        boolean hasMore = notes.size() > pageSize;
+
+        KeysetCursor next;
+        if (hasMore) {
+            notes = notes.subList(0, pageSize);
+            NoteSummary last = notes.get(pageSize - 1);
+            next = new KeysetCursor(last.updatedAt(), last.id());
+        } else {
+            next = new KeysetCursor(syncStart.minus(overlap), 0L);
+        }
+
+        // Without a cursor the client replaces its copy, so there is nothing to delete from it
+        List<NoteDeletion> deleted = cursor == null
+            ? List.of()
+            : noteDeletionRepository.findByUserIdAndDeletedAtGreaterThanEqualOrderByDeletedAt(
+                userId, since.createdAt().minus(overlap));
+
+        return new NoteChanges(notes, deleted, next.encode(), hasMore);
+    }
+
+    /**
+     * Remove tombstones older than the retention (on one node at a time); cursors from before that get
+     * {@link SyncCursorExpiredException} and resync in full
+     *
+     * @return Number of removed tombstones
+     */
+    @Scheduled(cron = "${notes.sync.prune-cron:0 15 4 * * *}")
+    public int pruneDeletions() {
+        return jobLocks.callExclusively("note-deletions-prune", () -> {
+            Integer pruned = transactionTemplate.execute(status ->
+                noteDeletionRepository.deleteByDeletedAtBefore(LocalDateTime.now().minus(deletionRetention)));
+            if (pruned > 0) {
+                log.info("Pruned {} note deletions older than {}", pruned, deletionRetention);
+            }
+            return pruned;
+        }).orElse(0);
+    }
+}
@@ -0,0 +1,19 @@
+package eu.robm15.tenxdevs.service;
+
+/**
+ * Thrown when a user hits a short-window (per-minute or per-hour) AI rate limit.
+ * Unlike the daily limit, this clears up by itself after {@link #getRetryAfterSeconds()}.
+ */
+public class RateLimitExceededException extends IllegalStateException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
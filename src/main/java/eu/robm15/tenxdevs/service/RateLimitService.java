@@ -0,0 +1,238 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.config.AiUsageProperties;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-window AI rate limits (per minute and per hour) implemented as token buckets.
+ * Buckets refill continuously, so load is smoothed instead of resetting at fixed boundaries.
+ * The daily limit is enforced separately by {@link AIUsageLimitService}.
+ *
+ * Buckets live in memory on each node; {@link #tryAcquire(String)} allocates nothing once
+ * a user's buckets exist.
+ */
+@Service
+public class RateLimitService {
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long HOUR_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final AiUsageProperties usageProperties;
+
+    private final AIUsageLimitService aiUsageLimitService;
+
+    private final ConcurrentMap<String, UserBuckets> buckets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimitService(AiUsageProperties usageProperties, AIUsageLimitService aiUsageLimitService) {
+        this.usageProperties = usageProperties;
+        this.aiUsageLimitService = aiUsageLimitService;
+    }
+
+    /**
+     * Take one token from each of the user's short-window buckets.
+     *
+     * @param userId Supabase user ID
+     * @return 0 if the tokens were taken, otherwise nanoseconds until a token becomes available
+     */
+    public long tryAcquire(String userId) {
+        return bucketsFor(userId).tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Give back the tokens taken by {@link #tryAcquire(String)} when the request was rejected later on
+     *
+     * @param userId Supabase user ID
+     */
+    public void release(String userId) {
+        bucketsFor(userId).release(System.nanoTime());
+    }
+
+    /**
+     * Check how long the user would have to wait for a token, without taking it
+     *
+     * @param userId Supabase user ID
+     * @return 0 if a request would be allowed now, otherwise nanoseconds to wait
+     */
+    public long nanosUntilAvailable(String userId) {
+        return bucketsFor(userId).nanosUntilAvailable(System.nanoTime());
+    }
+
+    /**
+     * Write X-RateLimit-Limit / -Remaining / -Reset headers for the most constrained window
+     * (minute, hour or day).
+     *
+     * @param response HTTP response to add headers to
+     * @param userId   Supabase user ID
+     */
+    public void writeHeaders(HttpServletResponse response, String userId) {
+        long now = System.nanoTime();
+        UserBuckets userBuckets = bucketsFor(userId);
+
+        int limit = aiUsageLimitService.getDailyLimit(userId);
+        int remaining = aiUsageLimitService.getRemainingUsage(userId);
+        long resetSeconds = aiUsageLimitService.getSecondsUntilDailyReset();
+
+        synchronized (userBuckets) {
+            for (TokenBucket bucket : userBuckets.windows) {
+                if (bucket != null && bucket.available(now) < remaining) {
+                    limit = bucket.capacity;
+                    remaining = bucket.available(now);
+                    resetSeconds = toSeconds(bucket.nanosUntilFull(now));
+                }
+            }
+        }
+
+        response.setHeader("X-RateLimit-Limit", String.valueOf(limit));
+        response.setHeader("X-RateLimit-Remaining", String.valueOf(remaining));
+        response.setHeader("X-RateLimit-Reset", String.valueOf(resetSeconds));
+    }
+
+    /**
+     * Round nanoseconds up to whole seconds (for Retry-After and reset headers)
+     */
+    public static long toSeconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Forget buckets that have fully refilled - they carry no state a fresh bucket wouldn't have
+     */
+    @Scheduled(fixedDelayString = "${ai.usage.buckets.eviction-interval-ms:600000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(userBuckets -> userBuckets.isFull(now));
+    }
+
+    private UserBuckets bucketsFor(String userId) {
+        UserBuckets userBuckets = buckets.get(userId);
+        if (userBuckets != null) {
+            return userBuckets;
+        }
+        return buckets.computeIfAbsent(userId, this::createBuckets);
+    }
+
+    private UserBuckets createBuckets(String userId) {
+        AiUsageProperties.TierLimits limits = usageProperties.limitsFor(userId);
+        return new UserBuckets(
+            TokenBucket.of(limits.getPerMinute(), MINUTE_NANOS),
+            TokenBucket.of(limits.getPerHour(), HOUR_NANOS)
+        );
+    }
+
+    /**
+     * All short-window buckets of one user, updated together under the object's monitor.
+     * A null entry means the window is not limited for the user's tier.
+     */
+    private static final class UserBuckets {
+
+        private final TokenBucket[] windows;
+
+        private UserBuckets(TokenBucket minute, TokenBucket hour) {
+            this.windows = new TokenBucket[] {minute, hour};
+        }
+
+        synchronized long tryAcquire(long now) {
+            long wait = nanosUntilAvailable(now);
+            if (wait > 0) {
+                return wait;
+            }
+            for (TokenBucket bucket : windows) {
+                if (bucket != null) {
+                    bucket.consume();
+                }
+            }
+            return 0;
+        }
+
+        synchronized void release(long now) {
+            for (TokenBucket bucket : windows) {
+                if (bucket != null) {
+                    bucket.giveBack(now);
+                }
+            }
+        }
+
+        synchronized long nanosUntilAvailable(long now) {
+            long wait = 0;
+            for (TokenBucket bucket : windows) {
+                if (bucket != null) {
+                    wait = Math.max(wait, bucket.nanosUntilAvailable(now));
+                }
+            }
+            return wait;
+        }
+
+        synchronized boolean isFull(long now) {
+            for (TokenBucket bucket : windows) {
+                if (bucket != null && bucket.nanosUntilFull(now) > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Token bucket holding up to {@code capacity} tokens, refilled continuously so that
+     * a full bucket is restored after one window. Not thread-safe on its own -
+     * callers synchronize on the owning {@link UserBuckets}.
+     */
+    private static final class TokenBucket {
+
+        private final int capacity;
+        private final double nanosPerToken;
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(int capacity, long windowNanos) {
+            this.capacity = capacity;
+            this.nanosPerToken = (double) windowNanos / capacity;
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        static TokenBucket of(int capacity, long windowNanos) {
+            return capacity > 0 ? new TokenBucket(capacity, windowNanos) : null;
+        }
+
+        long nanosUntilAvailable(long now) {
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken);
+        }
+
+        long nanosUntilFull(long now) {
+            refill(now);
+            return (long) Math.ceil((capacity - tokens) * nanosPerToken);
+        }
+
+        int available(long now) {
+            refill(now);
+            return (int) tokens;
+        }
+
+        void consume() {
+            tokens -= 1;
+        }
+
+        void giveBack(long now) {
+            refill(now);
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        private void refill(long now) {
+            long elapsed = now - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed / nanosPerToken);
+                lastRefillNanos = now;
+            }
+        }
+    }
+}
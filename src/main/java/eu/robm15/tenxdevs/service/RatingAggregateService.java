@@ -0,0 +1,124 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.model.RatingAggregate;
+import eu.robm15.tenxdevs.model.RatingDimension;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.repository.RatingAggregateRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Incrementally maintained plan quality and latency per user, prompt version, model and
+ * preferences fingerprint (rating_aggregates). Each generation and each rating adds deltas
+ * to one row per dimension, and removing a rated plan takes its rating back out - one statement
+ * for all dimensions, writing the rows in {@link RatingDimension} order so concurrent updates
+ * can't deadlock on each other's rows.
+ */
+@Service
+public class RatingAggregateService {
+
+    private static final long[] NO_RATINGS = new long[5];
+
+    private final RatingAggregateRepository ratingAggregateRepository;
+
+    @Autowired
+    public RatingAggregateService(RatingAggregateRepository ratingAggregateRepository) {
+        this.ratingAggregateRepository = ratingAggregateRepository;
+    }
+
+    /**
+     * Count a newly generated plan and its AI call duration
+     *
+     * @param plan The saved plan
+     */
+    @Transactional
+    public void recordGeneration(TripPlan plan) {
+        long generationMs = plan.getGenerationMs() == null ? 0 : plan.getGenerationMs();
+        String[] values = dimensionValues(plan.getUserId(), plan.getPromptVersion(), plan.getModel(),
+            plan.getPreferencesFingerprint());
+
+        ratingAggregateRepository.addDeltas(values, 1, generationMs, 0, 0, NO_RATINGS);
+    }
+
+    /**
+     * Count a rating, replacing the plan's previous rating if it had one.
+     * Runs in the caller's transaction, so the aggregates change together with the rating.
+     *
+     * @param userId Owner of the plan
+     * @param plan The plan's state before the new rating (as read by the statement that changed it)
+     * @param rating New rating (1-5)
+     */
+    @Transactional
+    public void recordRating(String userId, TripPlanRepository.RatingContext plan, int rating) {
+        Integer previous = plan.getRating();
+        if (previous != null && previous == rating) {
+            return;
+        }
+
+        long[] histogram = new long[5];
+        histogram[rating - 1]++;
+        if (previous != null) {
+            histogram[previous - 1]--;
+        }
+        long ratingCount = previous == null ? 1 : 0;
+        long ratingSum = rating - (previous == null ? 0 : previous);
+
+        String[] values = dimensionValues(userId, plan.getPromptVersion(), plan.getModel(),
+            plan.getPreferencesFingerprint());
+        ratingAggregateRepository.addDeltas(values, 0, 0, ratingCount, ratingSum, histogram);
+    }
+
+    /**
+     * Take a removed plan's rating out of the aggregates (plan deleted or its note purged).
+     * The generation and its duration stay counted. Runs in the caller's transaction,
+     * so the aggregates change together with the delete.
+     *
+     * @param userId Owner of the plan
+     * @param plan The plan's state before it was deleted (as read by the statement that changed it)
+     */
+    @Transactional
+    public void recordRatingRemoval(String userId, TripPlanRepository.RatingContext plan) {
+        Integer rating = plan.getRating();
+        if (rating == null) {
+            return;
+        }
+
+        long[] histogram = new long[5];
+        histogram[rating - 1]--;
+
+        String[] values = dimensionValues(userId, plan.getPromptVersion(), plan.getModel(),
+            plan.getPreferencesFingerprint());
+        ratingAggregateRepository.addDeltas(values, 0, 0, -1, -rating, histogram);
+    }
+
+    /**
+     * Get the aggregates of one dimension, most rated first
+     *
+     * @param dimension What to group by
+     * @param limit Maximum number of rows
+     * @return Aggregates of the dimension's values
+     */
+    @Transactional(readOnly = true)
+    public List<RatingAggregate> getAggregates(RatingDimension dimension, int limit) {
+        return ratingAggregateRepository.findByDimensionOrderByRatingCountDescDimensionValueAsc(
+            dimension, Limit.of(limit));
+    }
+
+    /**
+     * Values of a plan per dimension, indexed by {@link RatingDimension#ordinal()}
+     */
+    private static String[] dimensionValues(String userId, String promptVersion, String model,
+                                            String preferencesFingerprint) {
+        return new String[] {
+            userId,
+            promptVersion == null ? RatingAggregate.UNKNOWN : promptVersion,
+            model == null ? RatingAggregate.UNKNOWN : model,
+            preferencesFingerprint == null ? RatingAggregate.UNKNOWN : preferencesFingerprint
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.repository.ScheduledJobLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Runs scheduled jobs on one node at a time. Every node schedules the jobs; a run first claims
+ * the job's row in scheduled_job_locks and is skipped while another node holds it.
+ * The claim is released when the run ends and expires after {@code scheduling.locks.lock-at-most-for},
+ * so a node that dies mid-run only delays the job. Set it well above the longest run.
+ *
+ * Only jobs on shared data need this; in-memory housekeeping (counter and bucket eviction) is per node.
+ */
+@Service
+public class ScheduledJobLockService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledJobLockService.class);
+
+    private final ScheduledJobLockRepository scheduledJobLockRepository;
+
+    /**
+     * Claims are committed on their own, before and after the job's transactions
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Identifies this node's claims (process name is pid@host; the suffix tells restarts apart)
+     */
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/"
+        + UUID.randomUUID().toString().substring(0, 8);
+
+    @Value("${scheduling.locks.lock-at-most-for:30m}")
+    private Duration lockAtMostFor;
+
+    @Autowired
+    public ScheduledJobLockService(ScheduledJobLockRepository scheduledJobLockRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.scheduledJobLockRepository = scheduledJobLockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Run a job unless another node is running it
+     *
+     * @param jobName Job name, the same on all nodes
+     * @param job     The job
+     * @return The job's result, or empty if it was skipped
+     */
+    public <T> Optional<T> callExclusively(String jobName, Supplier<T> job) {
+        LocalDateTime now = LocalDateTime.now();
+        Boolean claimed = transactionTemplate.execute(status ->
+            scheduledJobLockRepository.tryClaim(jobName, owner, now, now.plus(lockAtMostFor)));
+        if (!Boolean.TRUE.equals(claimed)) {
+            log.debug("Skipping {} - running on another node", jobName);
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.ofNullable(job.get());
+        } finally {
+            transactionTemplate.executeWithoutResult(status ->
+                scheduledJobLockRepository.release(jobName, owner, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Run a job without result unless another node is running it
+     *
+     * @param jobName Job name, the same on all nodes
+     * @param job     The job
+     * @return true if the job ran, false if it was skipped
+     */
+    public boolean runExclusively(String jobName, Runnable job) {
+        return callExclusively(jobName, () -> {
+            job.run();
+            return Boolean.TRUE;
+        }).isPresent();
+    }
+}
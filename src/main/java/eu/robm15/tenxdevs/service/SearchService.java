@@ -0,0 +1,88 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.model.SearchHit;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.util.KeysetPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Full-text search over a user's notes and trip plans.
+ */
+@Service
+public class SearchService {
+
+    /**
+     * Longest accepted query, in characters
+     */
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    private final NoteRepository noteRepository;
+
+    @Autowired
+    public SearchService(NoteRepository noteRepository) {
+        this.noteRepository = noteRepository;
+    }
+
+    /**
+     * Get one page of search results, best match first.
+     * Results are ordered by relevance rather than by a key, so the cursor is an opaque
+     * result offset; pages may shift if notes change between requests.
+     *
+     * @param userId The user ID
+     * @param query Search words (all must match)
+     * @param cursor Token returned with the previous page, or null for the first page
+     * @param pageSize Maximum number of results on the page
+     * @return Page of results with HTML snippets (text escaped, matches wrapped in &lt;mark&gt;)
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<SearchHit> search(String userId, String query, String cursor, int pageSize) {
+        int offset = cursor == null ? 0 : decodeOffset(cursor);
+
+        // Fetch one extra row to find out whether another page exists
+        List<SearchHit> rows = noteRepository.search(userId, query, offset, pageSize + 1);
+        String nextCursor = rows.size() > pageSize ? encodeOffset(offset + pageSize) : null;
+
+        List<SearchHit> items = rows.stream()
+            .limit(pageSize)
+            .map(hit -> hit.withSnippet(toHtml(hit.snippet())))
+            .toList();
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    /**
+     * Escape the snippet and turn the repository's highlight markers into &lt;mark&gt; tags
+     */
+    private String toHtml(String snippet) {
+        if (snippet == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(snippet)
+            .replace(SearchHit.HIGHLIGHT_START, "<mark>")
+            .replace(SearchHit.HIGHLIGHT_END, "</mark>");
+    }
+
+    private static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(Integer.toString(offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeOffset(String cursor) {
+        try {
+            int offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -12,13 +12,18 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 @Profile("!localh2") // Not active for localh2 profile
 public class SupabaseJwtService {
 
+    private static final String APP_METADATA = "app_metadata";
+    private static final String APP_ROLES = "roles";
+
     private final SupabaseConfigProperties supabaseConfig;
 
     public SupabaseJwtService(SupabaseConfigProperties supabaseConfig) {
@@ -43,12 +48,14 @@ public class SupabaseJwtService {
             // Extract user information from claims
             String userId = claims.getSubject(); // Supabase uses 'sub' for user ID
             String email = claims.get("email", String.class);
-            String role = claims.get("role", String.class);
 
-            // Create authorities based on role
-            List<SimpleGrantedAuthority> authorities = Collections.singletonList(
-                new SimpleGrantedAuthority("ROLE_" + (role != null ? role.toUpperCase() : "USER"))
-            );
+            // Every signed-in user is a USER; further roles come only from app_metadata.roles.
+            // The top-level "role" claim is the Postgres role (authenticated, anon, service_role), not an app role
+            List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+            authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+            for (String appRole : appRoles(claims)) {
+                authorities.add(new SimpleGrantedAuthority("ROLE_" + appRole.toUpperCase(Locale.ROOT)));
+            }
 
             // Create authentication object with user details
             // Using email as principal, or userId if email is not available
@@ -61,6 +68,23 @@ public class SupabaseJwtService {
         }
     }
 
+    /**
+     * Roles set in the user's app_metadata, which only the service role can write (unlike user_metadata)
+     */
+    private List<String> appRoles(Claims claims) {
+        if (!(claims.get(APP_METADATA) instanceof Map<?, ?> appMetadata)
+                || !(appMetadata.get(APP_ROLES) instanceof List<?> roles)) {
+            return List.of();
+        }
+        List<String> appRoles = new ArrayList<>();
+        for (Object role : roles) {
+            if (role instanceof String name && !name.isBlank()) {
+                appRoles.add(name);
+            }
+        }
+        return appRoles;
+    }
+
     /**
      * Extracts the subject (user ID) from a JWT token
      */
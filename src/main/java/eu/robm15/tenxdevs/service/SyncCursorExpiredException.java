@@ -0,0 +1,12 @@
+package eu.robm15.tenxdevs.service;
+
+/**
+ * Thrown when a delta sync cursor is older than the deletion log retention, so deletions
+ * since then may be missing. Controllers answer it with 410 Gone; the client starts over.
+ */
+public class SyncCursorExpiredException extends RuntimeException {
+
+    public SyncCursorExpiredException(String message) {
+        super(message);
+    }
+}
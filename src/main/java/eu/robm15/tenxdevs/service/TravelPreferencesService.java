@@ -1,42 +1,108 @@
 package eu.robm15.tenxdevs.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import eu.robm15.tenxdevs.config.ReplicaRoutingDataSource;
+import eu.robm15.tenxdevs.model.PreferencesSnapshot;
 import eu.robm15.tenxdevs.model.TravelPreferences;
 import eu.robm15.tenxdevs.repository.TravelPreferencesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.Optional;
 
 @Service
 public class TravelPreferencesService {
 
+    private final TravelPreferencesRepository travelPreferencesRepository;
+
+    /**
+     * Read-through cache of preference snapshots per user. Users without preferences are cached
+     * as Optional.empty(). Invalidation only reaches this node's cache, so entries also expire
+     * after expireAfterWrite - that bounds how long a change made on another node can go unnoticed here.
+     * Bound as the "preferences" cache metrics (cache.gets with result hit / miss, cache.evictions, ...).
+     */
+    private final Cache<String, Optional<PreferencesSnapshot>> snapshots;
+
     @Autowired
-    private TravelPreferencesRepository travelPreferencesRepository;
+    public TravelPreferencesService(
+            TravelPreferencesRepository travelPreferencesRepository,
+            MeterRegistry meterRegistry,
+            @Value("${preferences.cache.max-size:10000}") int maxSize,
+            @Value("${preferences.cache.expire-after-write:60s}") Duration expireAfterWrite
+    ) {
+        this.travelPreferencesRepository = travelPreferencesRepository;
+        this.snapshots = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "preferences");
+    }
 
     /**
      * Get travel preferences for a user
      * @param userId Supabase user ID
      * @return Optional containing TravelPreferences if found
      */
+    @Transactional(readOnly = true)
     public Optional<TravelPreferences> getPreferencesByUserId(String userId) {
         return travelPreferencesRepository.findByUserId(userId);
     }
 
     /**
-     * Save or update travel preferences for a user
+     * Get the version of a user's preferences without loading them
+     * @param userId Supabase user ID
+     * @return Optional containing the version if the user has preferences
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> getPreferencesVersion(String userId) {
+        return travelPreferencesRepository.findVersionByUserId(userId);
+    }
+
+    /**
+     * Get an immutable snapshot of the user's preferences, served from the cache when possible.
+     * Use this for read-only access (plan generation, limits); the entity is only needed for updates.
+     * @param userId Supabase user ID
+     * @return Optional containing the snapshot if the user has preferences
+     */
+    public Optional<PreferencesSnapshot> getPreferencesSnapshot(String userId) {
+        // The load runs atomically for the key, so an invalidation waits for it and then drops its result.
+        // From the primary: a stale replica row would be cached and served for the whole TTL
+        return snapshots.get(userId, key -> ReplicaRoutingDataSource.onPrimary(
+            () -> travelPreferencesRepository.findByUserId(key).map(PreferencesSnapshot::of)));
+    }
+
+    /**
+     * Save or update travel preferences for a user.
+     * Updates are optimistically locked: a concurrent update of the same row makes the
+     * second commit fail with an OptimisticLockingFailureException instead of overwriting.
      * @param userId Supabase user ID
      * @param preferences TravelPreferences object to save
+     * @param expectedVersion Version the client last saw (from If-Match), or null to save unconditionally
      * @return Saved TravelPreferences
+     * @throws VersionConflictException if the stored preferences don't have the expected version
      */
     @Transactional
-    public TravelPreferences savePreferences(String userId, TravelPreferences preferences) {
+    public TravelPreferences savePreferences(String userId, TravelPreferences preferences, Long expectedVersion) {
+        invalidate(userId);
+
         // Check if preferences already exist for this user
         Optional<TravelPreferences> existing = travelPreferencesRepository.findByUserId(userId);
 
         if (existing.isPresent()) {
             // Update existing preferences
             TravelPreferences existingPrefs = existing.get();
+            if (expectedVersion != null && !expectedVersion.equals(existingPrefs.getVersion())) {
+                throw new VersionConflictException("The preferences were changed in the meantime");
+            }
             existingPrefs.setBudget(preferences.getBudget());
             existingPrefs.setPace(preferences.getPace());
             existingPrefs.setInterests(preferences.getInterests());
@@ -46,7 +112,12 @@ public class TravelPreferencesService {
             existingPrefs.setSeason(preferences.getSeason());
             return travelPreferencesRepository.save(existingPrefs);
         } else {
-            // Create new preferences
+            if (expectedVersion != null) {
+                throw new VersionConflictException("The preferences were deleted in the meantime");
+            }
+            // Create new preferences - ignore any id or version sent by the client
+            preferences.setId(null);
+            preferences.setVersion(null);
             preferences.setUserId(userId);
             return travelPreferencesRepository.save(preferences);
         }
@@ -58,6 +129,7 @@ public class TravelPreferencesService {
      */
     @Transactional
     public void deletePreferences(String userId) {
+        invalidate(userId);
         travelPreferencesRepository.deleteByUserId(userId);
     }
 
@@ -67,6 +139,27 @@ public class TravelPreferencesService {
      * @return true if preferences exist
      */
     public boolean hasPreferences(String userId) {
-        return travelPreferencesRepository.existsByUserId(userId);
+        return getPreferencesSnapshot(userId).isPresent();
+    }
+
+    /**
+     * Drop the user's cached snapshot now and again after the surrounding transaction commits,
+     * so readers that loaded the old row in between don't keep it
+     */
+    private void invalidate(String userId) {
+        evict(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(String userId) {
+        snapshots.invalidate(userId);
     }
 }
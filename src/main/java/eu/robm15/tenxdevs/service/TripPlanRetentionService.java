@@ -0,0 +1,127 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps trip_plans small: creates the monthly partitions ahead of time (PostgreSQL) and
+ * moves old unrated plans to the compressed archive table. Archived plans can still be
+ * opened by ID, and are moved back when they get rated.
+ *
+ * Archiving works like the note purge: small batches, each in its own transaction,
+ * with a pause in between and a cap per run. Both jobs run on one node at a time
+ * ({@link ScheduledJobLockService}).
+ */
+@Service
+public class TripPlanRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(TripPlanRetentionService.class);
+
+    private final TripPlanRepository tripPlanRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ScheduledJobLockService jobLocks;
+
+    @Value("${trip-plans.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${trip-plans.archive.after:180d}")
+    private Duration archiveAfter;
+
+    @Value("${trip-plans.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${trip-plans.archive.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${trip-plans.archive.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Autowired
+    public TripPlanRetentionService(TripPlanRepository tripPlanRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ScheduledJobLockService jobLocks) {
+        this.tripPlanRepository = tripPlanRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLocks = jobLocks;
+    }
+
+    /**
+     * Make sure partitions exist for the current and the next months - on startup, so a
+     * deployment after a long pause has the current month, and daily afterwards
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${trip-plans.partitions.cron:0 0 2 * * *}")
+    public void createPartitions() {
+        jobLocks.runExclusively("trip-plans-partitions", () -> {
+            Integer created = transactionTemplate.execute(status -> tripPlanRepository.createPartitions(monthsAhead));
+            if (created > 0) {
+                log.info("Created {} trip_plans partitions", created);
+            }
+        });
+    }
+
+    /**
+     * Move unrated plans older than the retention period to the archive
+     *
+     * @return Number of archived plans
+     */
+    @Scheduled(cron = "${trip-plans.archive.cron:0 45 2 * * *}")
+    public int archiveOldPlans() {
+        return jobLocks.callExclusively("trip-plans-archive", this::archiveBatches).orElse(0);
+    }
+
+    private int archiveBatches() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(archiveAfter);
+        int archived = 0;
+
+        for (int batches = 0; batches < maxBatchesPerRun; batches++) {
+            if (batches > 0 && !pause()) {
+                break;
+            }
+            Integer moved = transactionTemplate.execute(
+                status -> tripPlanRepository.archiveUnratedBatch(cutoff, now, batchSize));
+            archived += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} unrated trip plans created before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * Throttle between batches
+     *
+     * @return false if the thread was interrupted (the run should stop)
+     */
+    private boolean pause() {
+        if (batchPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
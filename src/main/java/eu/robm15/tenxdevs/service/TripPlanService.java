@@ -1,15 +1,35 @@
 package eu.robm15.tenxdevs.service;
 
 import eu.robm15.tenxdevs.model.Note;
-import eu.robm15.tenxdevs.model.TravelPreferences;
+import eu.robm15.tenxdevs.model.NotePlanStats;
+import eu.robm15.tenxdevs.model.PreferencesSnapshot;
 import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.model.TripPlanSummary;
+import eu.robm15.tenxdevs.repository.NoteRepository;
 import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import eu.robm15.tenxdevs.util.EntityTags;
+import eu.robm15.tenxdevs.util.KeysetCursor;
+import eu.robm15.tenxdevs.util.KeysetPage;
+import eu.robm15.tenxdevs.util.UsageDays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -18,18 +38,47 @@ import java.util.Optional;
 @Service
 public class TripPlanService {
 
+    private static final Logger log = LoggerFactory.getLogger(TripPlanService.class);
+
+    /**
+     * Version of {@link #buildTripPlanPrompt} recorded on every plan - bump it whenever the prompt
+     * changes, so ratings of the old and new prompt can be compared in the rating aggregates
+     */
+    public static final String PROMPT_VERSION = "v1";
+
     @Autowired
     private TripPlanRepository tripPlanRepository;
 
+    @Autowired
+    private NoteRepository noteRepository;
+
     @Autowired
     private TravelPreferencesService preferencesService;
 
     @Autowired
     private AIUsageLimitService aiUsageLimitService;
 
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private UsageRollupService usageRollupService;
+
+    @Autowired
+    private RatingAggregateService ratingAggregateService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired(required = false) // Optional for localh2 profile without AI configured
     private OpenAiChatModel openAiChatModel;
 
+    /**
+     * Simulated AI call duration when no AI model is configured (load tests on the localh2 profile)
+     */
+    @Value("${ai.mock.latency-ms:0}")
+    private long mockLatencyMs;
+
     /**
      * Check if user has sufficient preferences filled (at least 3 categories)
      *
@@ -37,80 +86,136 @@ public class TripPlanService {
      * @return true if user has at least 3 preferences filled
      */
     public boolean hasMinimumPreferences(String userId) {
-        Optional<TravelPreferences> prefsOpt = preferencesService.getPreferencesByUserId(userId);
-
-        if (prefsOpt.isEmpty()) {
-            return false;
-        }
-
-        TravelPreferences prefs = prefsOpt.get();
-        int filledCount = 0;
-
-        if (prefs.getBudget() != null) filledCount++;
-        if (prefs.getPace() != null) filledCount++;
-        if (prefs.getInterests() != null && !prefs.getInterests().isEmpty()) filledCount++;
-        if (prefs.getAccommodationStyle() != null) filledCount++;
-        if (prefs.getTransport() != null && !prefs.getTransport().isEmpty()) filledCount++;
-        if (prefs.getFoodPreferences() != null && !prefs.getFoodPreferences().isEmpty()) filledCount++;
-        if (prefs.getSeason() != null) filledCount++;
-
-        return filledCount >= 3;
+        return preferencesService.getPreferencesSnapshot(userId)
+            .map(prefs -> prefs.filledCategoryCount() >= 3)
+            .orElse(false);
     }
 
     /**
-     * Generate a trip plan using AI based on note content and user preferences
+     * Generate a trip plan using AI based on note content and user preferences.
+     * Quota is reserved atomically before the AI call and released again if generation fails.
+     * Not transactional on purpose - no database connection is held during the AI call.
      *
      * @param userId Supabase user ID
      * @param note   The note to base the plan on
      * @return Generated TripPlan
-     * @throws IllegalStateException if user doesn't have minimum preferences or exceeded AI limit
-     * @throws RuntimeException      if AI generation fails
+     * @throws IllegalStateException      if user doesn't have minimum preferences or exceeded AI limit
+     * @throws RateLimitExceededException if user exceeded the per-minute or per-hour rate limit
+     * @throws RuntimeException           if AI generation fails
      */
-    @Transactional
     public TripPlan generatePlan(String userId, Note note) {
         // Validate minimum preferences
         if (!hasMinimumPreferences(userId)) {
             throw new IllegalStateException("User must have at least 3 preferences filled to generate a plan");
         }
 
-        // Check AI usage limit
-        if (!aiUsageLimitService.canGeneratePlan(userId)) {
-            throw new IllegalStateException("Daily AI usage limit exceeded. Limit: "
-                + aiUsageLimitService.getDailyLimit() + " plans per day");
-        }
-
         // Get user preferences
-        TravelPreferences prefs = preferencesService.getPreferencesByUserId(userId)
+        PreferencesSnapshot prefs = preferencesService.getPreferencesSnapshot(userId)
             .orElseThrow(() -> new IllegalStateException("Preferences not found"));
 
         // Build AI prompt
         String prompt = buildTripPlanPrompt(note, prefs);
 
-        // Call AI to generate plan
-        String generatedContent;
+        // Short-window rate limits (burst per minute, hourly)
+        long waitNanos = rateLimitService.tryAcquire(userId);
+        if (waitNanos > 0) {
+            long retryAfterSeconds = RateLimitService.toSeconds(waitNanos);
+            throw new RateLimitExceededException("AI rate limit exceeded. Try again in "
+                + retryAfterSeconds + " seconds", retryAfterSeconds);
+        }
+
+        // Reserve daily AI usage quota (atomic check-and-increment)
+        Optional<LocalDate> reservedDay = aiUsageLimitService.tryReserve(userId);
+        if (reservedDay.isEmpty()) {
+            rateLimitService.release(userId);
+            throw new IllegalStateException("Daily AI usage limit exceeded. Limit: "
+                + aiUsageLimitService.getDailyLimit(userId) + " plans per day");
+        }
+
+        TripPlan savedPlan;
+        AiResult aiResult;
+        try {
+            long started = System.nanoTime();
+            aiResult = callAiModel(prompt);
+            long generationMs = (System.nanoTime() - started) / 1_000_000;
+
+            // Create and save trip plan, with what it was generated with for the rating aggregates
+            TripPlan tripPlan = new TripPlan(userId, note.getId(), aiResult.content());
+            tripPlan.setPromptVersion(PROMPT_VERSION);
+            tripPlan.setModel(aiResult.model());
+            tripPlan.setPreferencesFingerprint(prefs.fingerprint());
+            tripPlan.setGenerationMs(generationMs);
+            // The plan and the bumped plans version (the plan list's ETag) commit together
+            savedPlan = new TransactionTemplate(transactionManager).execute(status -> {
+                TripPlan saved = tripPlanRepository.save(tripPlan);
+                noteRepository.incrementPlansVersion(saved.getNoteId());
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            // No plan was produced - give the reserved quota back
+            aiUsageLimitService.releaseReservation(userId, reservedDay.get());
+            throw e;
+        }
+
+        try {
+            usageRollupService.recordGeneration(userId, UsageDays.dayOf(savedPlan.getCreatedAt()), aiResult.totalTokens());
+        } catch (RuntimeException e) {
+            // The plan is saved - don't fail the request, the scheduled reconciler repairs the count
+            log.warn("Failed to update daily usage rollup for user {}: {}", userId, e.getMessage());
+        }
+
+        try {
+            ratingAggregateService.recordGeneration(savedPlan);
+        } catch (RuntimeException e) {
+            // Only the generation count and latency of the aggregates are off; don't fail the request
+            log.warn("Failed to update rating aggregates for plan {}: {}", savedPlan.getId(), e.getMessage());
+        }
+
+        return savedPlan;
+    }
+
+    /**
+     * Call the AI model with the given prompt
+     */
+    private AiResult callAiModel(String prompt) {
         try {
             if (openAiChatModel == null) {
                 // Fallback for localh2 profile without AI configured
-                generatedContent = "Mock AI-generated plan for testing:\n\n" +
+                if (mockLatencyMs > 0) {
+                    Thread.sleep(mockLatencyMs);
+                }
+                return new AiResult("Mock AI-generated plan for testing:\n\n" +
                     "Day 1:\n- Morning: Arrival and hotel check-in\n- Afternoon: City tour\n- Evening: Local restaurant\n\n" +
                     "Day 2:\n- Morning: Museum visit\n- Afternoon: Shopping\n- Evening: Sunset viewpoint\n\n" +
-                    "Day 3:\n- Morning: Nature excursion\n- Afternoon: Beach relaxation\n- Evening: Departure";
-            } else {
-                generatedContent = openAiChatModel.call(prompt);
+                    "Day 3:\n- Morning: Nature excursion\n- Afternoon: Beach relaxation\n- Evening: Departure", 0, "mock");
             }
+
+            ChatResponse response = openAiChatModel.call(new Prompt(prompt));
+            Usage usage = response.getMetadata().getUsage();
+            Integer totalTokens = usage != null ? usage.getTotalTokens() : null;
+
+            String model = response.getMetadata().getModel();
+
+            return new AiResult(response.getResult().getOutput().getText(), totalTokens != null ? totalTokens : 0,
+                model == null || model.isEmpty() ? null : model);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Trip plan generation was interrupted", e);
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate trip plan: " + e.getMessage(), e);
         }
+    }
 
-        // Create and save trip plan
-        TripPlan tripPlan = new TripPlan(userId, note.getId(), generatedContent);
-        return tripPlanRepository.save(tripPlan);
+    /**
+     * Generated plan text, the number of AI tokens it cost and the model that generated it (null if not reported)
+     */
+    private record AiResult(String content, long totalTokens, String model) {
     }
 
     /**
      * Build a comprehensive prompt for the AI model
      */
-    private String buildTripPlanPrompt(Note note, TravelPreferences prefs) {
+    private String buildTripPlanPrompt(Note note, PreferencesSnapshot prefs) {
         StringBuilder prompt = new StringBuilder();
 
         prompt.append("You are a professional travel planner. Generate a detailed trip plan based on the following information:\n\n");
@@ -123,44 +228,44 @@ public class TripPlanService {
         // User preferences
         prompt.append("Traveler Preferences:\n");
 
-        if (prefs.getBudget() != null) {
-            prompt.append("- Budget: ").append(prefs.getBudget().getDisplayName()).append("\n");
+        if (prefs.budget() != null) {
+            prompt.append("- Budget: ").append(prefs.budget().getDisplayName()).append("\n");
         }
 
-        if (prefs.getPace() != null) {
-            prompt.append("- Travel Pace: ").append(prefs.getPace().getDisplayName()).append("\n");
+        if (prefs.pace() != null) {
+            prompt.append("- Travel Pace: ").append(prefs.pace().getDisplayName()).append("\n");
         }
 
-        if (prefs.getInterests() != null && !prefs.getInterests().isEmpty()) {
+        if (!prefs.interests().isEmpty()) {
             prompt.append("- Interests: ");
-            prefs.getInterests().forEach(interest ->
+            prefs.interests().forEach(interest ->
                 prompt.append(interest.getDisplayName()).append(", "));
             prompt.setLength(prompt.length() - 2); // Remove last comma
             prompt.append("\n");
         }
 
-        if (prefs.getAccommodationStyle() != null) {
-            prompt.append("- Accommodation Style: ").append(prefs.getAccommodationStyle().getDisplayName()).append("\n");
+        if (prefs.accommodationStyle() != null) {
+            prompt.append("- Accommodation Style: ").append(prefs.accommodationStyle().getDisplayName()).append("\n");
         }
 
-        if (prefs.getTransport() != null && !prefs.getTransport().isEmpty()) {
+        if (!prefs.transport().isEmpty()) {
             prompt.append("- Preferred Transport: ");
-            prefs.getTransport().forEach(transport ->
+            prefs.transport().forEach(transport ->
                 prompt.append(transport.getDisplayName()).append(", "));
             prompt.setLength(prompt.length() - 2); // Remove last comma
             prompt.append("\n");
         }
 
-        if (prefs.getFoodPreferences() != null && !prefs.getFoodPreferences().isEmpty()) {
+        if (!prefs.foodPreferences().isEmpty()) {
             prompt.append("- Food Preferences: ");
-            prefs.getFoodPreferences().forEach(food ->
+            prefs.foodPreferences().forEach(food ->
                 prompt.append(food.getDisplayName()).append(", "));
             prompt.setLength(prompt.length() - 2); // Remove last comma
             prompt.append("\n");
         }
 
-        if (prefs.getSeason() != null) {
-            prompt.append("- Preferred Season: ").append(prefs.getSeason().getDisplayName()).append("\n");
+        if (prefs.season() != null) {
+            prompt.append("- Preferred Season: ").append(prefs.season().getDisplayName()).append("\n");
         }
 
         prompt.append("\n");
@@ -173,24 +278,95 @@ public class TripPlanService {
     }
 
     /**
-     * Get all trip plans for a specific note
+     * Get one page of trip plan summaries for a specific note, newest first.
+     * Summaries carry a preview only; the full plan is loaded by {@link #getPlanById(Long)}.
+     *
+     * @param noteId   Note ID
+     * @param cursor   Token returned with the previous page, or null for the first page
+     * @param pageSize Maximum number of plans on the page
+     * @return Page of plan summaries with the token for the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<TripPlanSummary> getPlansPage(Long noteId, String cursor, int pageSize) {
+        // Fetch one extra row to find out whether another page exists
+        Limit limit = Limit.of(pageSize + 1);
+        List<TripPlanSummary> plans;
+
+        if (cursor == null) {
+            plans = tripPlanRepository.findSummariesByNoteId(noteId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            plans = tripPlanRepository.findSummariesByNoteIdAfter(noteId, after.createdAt(), after.id(), limit);
+        }
+
+        return KeysetPage.of(plans, pageSize, plan -> new KeysetCursor(plan.createdAt(), plan.id()));
+    }
+
+    /**
+     * Get the weak ETag of a note's plan list: the note's plans version, which is bumped whenever
+     * a plan of the note is generated, rated or deleted, live or archived, and never repeats.
+     *
+     * @param noteId Note ID
+     * @return Weak entity tag covering every page of the plan list
+     */
+    @Transactional(readOnly = true)
+    public String getPlansETag(Long noteId) {
+        return EntityTags.weak(noteRepository.findPlansVersionById(noteId).orElse(0L));
+    }
+
+    /**
+     * Get plan statistics (count, latest plan and its rating, average rating) per note
+     * with one query regardless of the number of notes.
+     *
+     * @param userId  User ID - only the user's plans are counted
+     * @param noteIds Notes to report on, or null for every note of the user that has plans
+     * @return Statistics keyed by note ID; requested notes without plans get empty statistics
      */
-    public List<TripPlan> getPlansByNoteId(Long noteId) {
-        return tripPlanRepository.findByNoteId(noteId);
+    @Transactional(readOnly = true)
+    public Map<Long, NotePlanStats> getPlanStats(String userId, Collection<Long> noteIds) {
+        if (noteIds != null && noteIds.isEmpty()) {
+            return Map.of();
+        }
+
+        List<NotePlanStats> grouped = tripPlanRepository.findPlanStats(userId, noteIds);
+
+        Map<Long, NotePlanStats> stats = new LinkedHashMap<>();
+        if (noteIds != null) {
+            noteIds.forEach(noteId -> stats.put(noteId, NotePlanStats.empty(noteId)));
+        }
+        for (NotePlanStats noteStats : grouped) {
+            stats.put(noteStats.noteId(), noteStats);
+        }
+        return stats;
     }
 
     /**
-     * Get all trip plans for a user
+     * Get all trip plans for a user (plans of deleted notes are left out)
      */
+    @Transactional(readOnly = true)
     public List<TripPlan> getPlansByUserId(String userId) {
         return tripPlanRepository.findByUserId(userId);
     }
 
     /**
-     * Get a specific trip plan by ID
+     * Get a specific trip plan by ID, including archived plans.
+     * Plans of deleted notes are not found - they only wait for the purge job.
      */
+    @Transactional(readOnly = true)
     public Optional<TripPlan> getPlanById(Long id) {
-        return tripPlanRepository.findById(id);
+        // The Note restriction hides soft-deleted notes from existsById
+        return tripPlanRepository.findByIdIncludingArchive(id)
+            .filter(plan -> noteRepository.existsById(plan.getNoteId()));
+    }
+
+    /**
+     * Check whether a plan exists (live or archived, of a note that isn't deleted), regardless of its owner.
+     * Only used to tell "not found" from "not yours" after an ownership-checked update returned 0 rows.
+     */
+    @Transactional(readOnly = true)
+    public boolean planExists(Long id) {
+        return getPlanById(id).isPresent();
     }
 
     /**
@@ -199,50 +375,42 @@ public class TripPlanService {
      * @param planId Plan ID
      * @param userId User ID (for ownership validation)
      * @param rating Rating (1-5)
-     * @return Updated TripPlan
+     * @return Number of updated plans - 0 if not found or owned by another user
      */
     @Transactional
-    public Optional<TripPlan> ratePlan(Long planId, String userId, Integer rating) {
+    public int ratePlan(Long planId, String userId, Integer rating) {
         if (rating == null || rating < 1 || rating > 5) {
             throw new IllegalArgumentException("Rating must be between 1 and 5");
         }
 
-        Optional<TripPlan> planOpt = tripPlanRepository.findById(planId);
-
-        if (planOpt.isEmpty()) {
-            return Optional.empty();
+        // One statement rates the plan and returns its previous rating for the aggregates
+        Optional<TripPlanRepository.RatingContext> previous = tripPlanRepository.updateRating(planId, userId, rating);
+        // A rated plan is kept live, so an archived one is moved back first
+        if (previous.isEmpty() && tripPlanRepository.restoreArchived(planId, userId)) {
+            previous = tripPlanRepository.updateRating(planId, userId, rating);
         }
-
-        TripPlan plan = planOpt.get();
-
-        // Validate ownership
-        if (!plan.getUserId().equals(userId)) {
-            throw new IllegalStateException("Cannot rate plan owned by another user");
+        if (previous.isEmpty()) {
+            return 0;
         }
 
-        plan.setRating(rating);
-        return Optional.of(tripPlanRepository.save(plan));
+        ratingAggregateService.recordRating(userId, previous.get(), rating);
+        return 1;
     }
 
     /**
-     * Delete a trip plan
+     * Delete a trip plan (live or archived); its rating leaves the rating aggregates in the same transaction
+     *
+     * @return Number of deleted plans - 0 if not found or owned by another user
      */
     @Transactional
-    public boolean deletePlan(Long planId, String userId) {
-        Optional<TripPlan> planOpt = tripPlanRepository.findById(planId);
-
-        if (planOpt.isEmpty()) {
-            return false;
-        }
-
-        TripPlan plan = planOpt.get();
-
-        // Validate ownership
-        if (!plan.getUserId().equals(userId)) {
-            throw new IllegalStateException("Cannot delete plan owned by another user");
+    public int deletePlan(Long planId, String userId) {
+        Optional<TripPlanRepository.RatingContext> deleted = tripPlanRepository.deleteLive(planId, userId);
+        if (deleted.isEmpty()) {
+            // Archived plans are never rated - nothing to take out of the aggregates
+            return tripPlanRepository.deleteArchived(planId, userId);
         }
 
-        tripPlanRepository.delete(plan);
-        return true;
+        ratingAggregateService.recordRatingRemoval(userId, deleted.get());
+        return 1;
     }
 }
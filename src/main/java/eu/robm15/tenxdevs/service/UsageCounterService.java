@@ -0,0 +1,114 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.config.ReplicaRoutingDataSource;
+import eu.robm15.tenxdevs.model.UsageCounter;
+import eu.robm15.tenxdevs.repository.UsageCounterRepository;
+import eu.robm15.tenxdevs.util.UsageDays;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory per-user, per-day counters of generated trip plans.
+ * Counters are seeded lazily from the usage_counters table on first access and refreshed
+ * with the count the reservation upsert returns ({@link #update(String, LocalDate, long)}) or by
+ * {@link #reconcile(String, LocalDate)} whenever this node changes the quota, so quota reads
+ * don't hit the database.
+ * The authoritative limit check is the atomic reservation in {@link AIUsageLimitService};
+ * these counters only mirror it for cheap reads on this node.
+ */
+@Service
+public class UsageCounterService {
+
+    private final UsageCounterRepository usageCounterRepository;
+
+    /**
+     * Counters keyed by user and day. ConcurrentHashMap stripes its bins, and
+     * AtomicLong keeps the updates themselves lock-free.
+     */
+    private final ConcurrentMap<UsageKey, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UsageCounterService(UsageCounterRepository usageCounterRepository) {
+        this.usageCounterRepository = usageCounterRepository;
+    }
+
+    /**
+     * Get the number of plans generated by the user on the given day.
+     *
+     * @param userId Supabase user ID
+     * @param day    Usage day (see {@link eu.robm15.tenxdevs.util.UsageDays})
+     * @return the day's plan count
+     */
+    public long getCount(String userId, LocalDate day) {
+        return counterFor(userId, day).get();
+    }
+
+    /**
+     * Re-read the day's count from the database and overwrite the cached counter.
+     * Called after a refused reservation or a release, so the cached value also picks up
+     * usage recorded by other nodes.
+     *
+     * @param userId Supabase user ID
+     * @param day    Usage day (see {@link eu.robm15.tenxdevs.util.UsageDays})
+     * @return the reconciled count
+     */
+    public long reconcile(String userId, LocalDate day) {
+        long count = countFromDatabase(userId, day);
+        counterFor(userId, day).set(count);
+        return count;
+    }
+
+    /**
+     * Overwrite the cached counter with a count the database just returned, without querying it.
+     * The count also includes usage recorded by other nodes.
+     *
+     * @param userId Supabase user ID
+     * @param day    Usage day (see {@link eu.robm15.tenxdevs.util.UsageDays})
+     * @param count  The day's count as stored in usage_counters
+     */
+    public void update(String userId, LocalDate day, long count) {
+        counters.computeIfAbsent(new UsageKey(userId, day), key -> new AtomicLong()).set(count);
+    }
+
+    /**
+     * Drop counters for past days. Lookups only ever use the current usage day, so stale
+     * entries would otherwise just accumulate.
+     */
+    @Scheduled(cron = "${ai.usage.counters.eviction-cron:0 5 * * * *}")
+    public void evictExpired() {
+        LocalDate today = UsageDays.today();
+        counters.keySet().removeIf(key -> key.day().isBefore(today));
+    }
+
+    private AtomicLong counterFor(String userId, LocalDate day) {
+        UsageKey key = new UsageKey(userId, day);
+        AtomicLong counter = counters.get(key);
+
+        if (counter != null) {
+            return counter;
+        }
+
+        // Seed outside of the map's compute lock so a slow query doesn't block other users
+        AtomicLong seeded = new AtomicLong(countFromDatabase(userId, day));
+        AtomicLong existing = counters.putIfAbsent(key, seeded);
+        return existing != null ? existing : seeded;
+    }
+
+    /**
+     * Read from the primary - the counter is cached, and a lagging replica would let it undercount
+     */
+    private long countFromDatabase(String userId, LocalDate day) {
+        return ReplicaRoutingDataSource.onPrimary(() -> usageCounterRepository.findById(new UsageCounter.Key(userId, day))
+            .map(UsageCounter::getUsed)
+            .orElse(0));
+    }
+
+    private record UsageKey(String userId, LocalDate day) {
+    }
+}
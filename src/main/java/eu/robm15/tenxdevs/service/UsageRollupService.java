@@ -0,0 +1,99 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.model.DailyUsage;
+import eu.robm15.tenxdevs.repository.DailyUsageRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import eu.robm15.tenxdevs.util.UsageDays;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Maintains the daily_usage rollup (generations, tokens, cache hits per user and day).
+ * Rows are updated incrementally when plans are generated or a generation is replayed
+ * (Idempotency-Key retry answered without an AI call); a scheduled reconciler repairs
+ * generation counts from trip_plans for the most recent days.
+ * Days are usage days ({@link UsageDays}), the same as for the daily quota.
+ */
+@Service
+public class UsageRollupService {
+
+    private final DailyUsageRepository dailyUsageRepository;
+
+    private final TripPlanRepository tripPlanRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ScheduledJobLockService jobLocks;
+
+    @Autowired
+    public UsageRollupService(DailyUsageRepository dailyUsageRepository, TripPlanRepository tripPlanRepository,
+                              PlatformTransactionManager transactionManager, ScheduledJobLockService jobLocks) {
+        this.dailyUsageRepository = dailyUsageRepository;
+        this.tripPlanRepository = tripPlanRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLocks = jobLocks;
+    }
+
+    /**
+     * Record a generated plan
+     *
+     * @param userId Supabase user ID
+     * @param day    Usage day the plan was created on
+     * @param tokens AI tokens used (0 if unknown)
+     */
+    @Transactional
+    public void recordGeneration(String userId, LocalDate day, long tokens) {
+        dailyUsageRepository.addUsage(userId, day, 1, tokens, 0);
+    }
+
+    /**
+     * Record a request answered without calling the AI model
+     *
+     * @param userId Supabase user ID
+     * @param day    Usage day of the request
+     */
+    @Transactional
+    public void recordCacheHit(String userId, LocalDate day) {
+        dailyUsageRepository.addUsage(userId, day, 0, 0, 1);
+    }
+
+    /**
+     * Get the user's usage for the last {@code days} days (newest first).
+     * Reads only the rollup table - days without usage have no row.
+     *
+     * @param userId Supabase user ID
+     * @param days   Number of days including today
+     * @return rollup rows
+     */
+    public List<DailyUsage> getHistory(String userId, int days) {
+        LocalDate from = UsageDays.today().minusDays(days - 1L);
+        return dailyUsageRepository.findByUserIdAndUsageDateGreaterThanEqualOrderByUsageDateDesc(userId, from);
+    }
+
+    /**
+     * Repair generation counts for yesterday and today from trip_plans, in case an
+     * incremental update was lost (e.g. the app stopped between saving a plan and
+     * updating the rollup). Only plans from the recent window are counted.
+     * Runs on one node at a time ({@link ScheduledJobLockService}).
+     */
+    @Scheduled(cron = "${usage.rollup.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        jobLocks.runExclusively("usage-rollup-reconcile", () -> transactionTemplate.executeWithoutResult(status -> {
+            LocalDate today = UsageDays.today();
+
+            for (LocalDate day = today.minusDays(1); !day.isAfter(today); day = day.plusDays(1)) {
+                for (TripPlanRepository.GenerationCount count : tripPlanRepository.countGenerationsPerUser(
+                        UsageDays.startOf(day), UsageDays.startOf(day.plusDays(1)))) {
+                    dailyUsageRepository.raiseGenerations(count.getUserId(), day, (int) count.getGenerations());
+                }
+            }
+        }));
+    }
+}
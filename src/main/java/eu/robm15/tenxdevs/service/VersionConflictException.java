@@ -0,0 +1,12 @@
+package eu.robm15.tenxdevs.service;
+
+/**
+ * Thrown when a conditional write (If-Match) finds that the resource was changed
+ * since the client read it. Controllers answer it with 412 Precondition Failed.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,102 @@
+package eu.robm15.tenxdevs.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * HTTP entity tags derived from optimistic lock versions ({@code @Version} columns).
+ * A resource's ETag is its quoted version, e.g. {@code "3"}; clients send it back
+ * in If-Match to make a write conditional on nobody having changed the resource since.
+ *
+ * Collections get weak tags built from a cheap summary of their rows (count, latest change),
+ * e.g. {@code W/"12-1697712000000-40"}. GET responses carrying a tag are marked
+ * {@link #REVALIDATE}, so browsers keep them and ask with If-None-Match before reusing them.
+ */
+public final class EntityTags {
+
+    /**
+     * Private to the user's browser, which must revalidate before every reuse
+     */
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private EntityTags() {
+    }
+
+    /**
+     * @param version Current version of the entity
+     * @return Strong entity tag for the version
+     */
+    public static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param parts Values that change whenever the collection changes (nulls allowed)
+     * @return Weak entity tag for a collection
+     */
+    public static String weak(Object... parts) {
+        return "W/\"" + Arrays.stream(parts).map(String::valueOf).collect(Collectors.joining("-")) + "\"";
+    }
+
+    /**
+     * Check whether the client's cached copy is current (If-None-Match, weak comparison)
+     *
+     * @param request Current request
+     * @param eTag Current entity tag of the resource
+     * @return true if the request's If-None-Match lists the tag (or is {@code *})
+     */
+    public static boolean isNotModified(HttpServletRequest request, String eTag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+
+        String opaqueTag = opaque(eTag);
+        return Arrays.stream(ifNoneMatch.split(","))
+            .map(String::trim)
+            .anyMatch(tag -> tag.equals("*") || opaque(tag).equals(opaqueTag));
+    }
+
+    /**
+     * 304 answer for a matching If-None-Match - no body is loaded or serialized
+     */
+    public static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(REVALIDATE).build();
+    }
+
+    /**
+     * Read the version a write is conditional on
+     *
+     * @param ifMatch Value of the If-Match header, may be null
+     * @return Expected version, or null if the write is unconditional (no header, or {@code *})
+     * @throws IllegalArgumentException if the header is not a single tag produced by {@link #of(Long)}
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new IllegalArgumentException("If-Match must be a single entity tag");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown entity tag " + tag, e);
+        }
+    }
+
+    /**
+     * Tag without the weak prefix, for weak comparison
+     */
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,30 @@
+package eu.robm15.tenxdevs.util;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list.
+ *
+ * @param items      Rows of this page
+ * @param nextCursor Token for the next page, or null if this is the last page
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Build a page from a query that fetched one row more than the page size.
+     * The extra row only tells that another page exists; it is not returned.
+     *
+     * @param rows     Up to {@code pageSize + 1} rows, in page order
+     * @param pageSize Requested page size
+     * @param cursorOf Cursor pointing at a given row
+     * @return The page
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int pageSize, Function<T, KeysetCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(pageSize - 1)).encode());
+    }
+}
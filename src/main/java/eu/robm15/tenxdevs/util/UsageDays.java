@@ -0,0 +1,55 @@
+package eu.robm15.tenxdevs.util;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Day boundary of all AI usage accounting: quota reservations (usage_counters), the in-memory
+ * counters and the daily_usage rollup. Usage days are UTC calendar days for every user, so a
+ * user can't reach another day's quota by claiming another time zone.
+ *
+ * Timestamps such as TripPlan.createdAt are LocalDateTime values in the JVM's zone (stored as UTC,
+ * see hibernate.jdbc.time_zone); {@link #dayOf(LocalDateTime)} and {@link #startOf(LocalDate)} convert.
+ */
+public final class UsageDays {
+
+    public static final ZoneOffset ZONE = ZoneOffset.UTC;
+
+    private UsageDays() {
+    }
+
+    /**
+     * @return Current usage day
+     */
+    public static LocalDate today() {
+        return LocalDate.now(ZONE);
+    }
+
+    /**
+     * @param timestamp Timestamp in the server's zone (e.g. a plan's createdAt)
+     * @return Usage day the timestamp falls on
+     */
+    public static LocalDate dayOf(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZONE).toLocalDate();
+    }
+
+    /**
+     * @param day Usage day
+     * @return Start of the day as a timestamp in the server's zone, for queries on stored timestamps
+     */
+    public static LocalDateTime startOf(LocalDate day) {
+        return day.atStartOfDay(ZONE).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    /**
+     * @return Seconds until the next usage day starts (daily quota reset)
+     */
+    public static long secondsUntilNextDay() {
+        ZonedDateTime now = ZonedDateTime.now(ZONE);
+        return Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay(ZONE)).toSeconds();
+    }
+}
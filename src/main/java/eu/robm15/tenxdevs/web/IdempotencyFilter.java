@@ -0,0 +1,368 @@
+package eu.robm15.tenxdevs.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.robm15.tenxdevs.config.IdempotencyProperties;
+import eu.robm15.tenxdevs.model.IdempotencyRecord;
+import eu.robm15.tenxdevs.service.IdempotencyService;
+import eu.robm15.tenxdevs.service.SupabaseJwtService;
+import eu.robm15.tenxdevs.service.UsageRollupService;
+import eu.robm15.tenxdevs.util.UsageDays;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Idempotency-Key support for the POST endpoints in app.idempotency.paths
+ * (note creation and plan generation), so a client retrying after a timeout doesn't create
+ * a second note or pay for a second AI call.
+ *
+ * The first request with a key runs and its response (status, content type, body bytes and the
+ * headers in {@link #REPLAYED_HEADERS}) is stored; retries get exactly that response back, marked with
+ * Idempotent-Replayed: true. Bodies over app.idempotency.max-body-size are rejected with 413 before
+ * the key is claimed, since the whole body is held in memory to hash it. A duplicate arriving
+ * while the first one runs waits for its response. Reusing a key for a different request
+ * (other path or body) is rejected with 422. Server errors and 429 aren't stored, so they can be retried.
+ * A replayed plan generation counts as a cache hit in the daily usage rollup.
+ *
+ * Runs after Spring Security, so keys are scoped to the authenticated user (the JWT subject,
+ * the same user ID the controllers use). Requests without the header are not affected.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Response headers the body depends on, stored and replayed with it
+     */
+    private static final List<String> REPLAYED_HEADERS = List.of(
+        HttpHeaders.LOCATION, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL,
+        "X-RateLimit-Limit", "X-RateLimit-Remaining", "X-RateLimit-Reset");
+
+    private static final String PLAN_GENERATION_PATH = "/api/trip-plans/generate";
+
+    private final IdempotencyService idempotencyService;
+
+    private final IdempotencyProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final UsageRollupService usageRollupService;
+
+    /**
+     * Absent for the localh2 profile (mock auth)
+     */
+    private final SupabaseJwtService jwtService;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService, IdempotencyProperties properties,
+                             ObjectMapper objectMapper, UsageRollupService usageRollupService,
+                             ObjectProvider<SupabaseJwtService> jwtService) {
+        this.idempotencyService = idempotencyService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.usageRollupService = usageRollupService;
+        this.jwtService = jwtService.getIfAvailable();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        return !properties.getPaths().contains(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(
+        @NonNull HttpServletRequest request,
+        @NonNull HttpServletResponse response,
+        @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        String userId = extractUserId(request);
+        if (userId == null) {
+            // No user to scope the key to - the controller answers 401
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // The body is read up front to hash it, and served again to the controller
+        long maxBodySize = properties.getMaxBodySize().toBytes();
+        if (request.getContentLengthLong() > maxBodySize) {
+            writeBodyTooLarge(response, maxBodySize);
+            return;
+        }
+        // One byte past the limit tells a body of exactly the limit from a longer one without Content-Length
+        byte[] body = request.getInputStream().readNBytes((int) Math.min(maxBodySize + 1, Integer.MAX_VALUE - 8));
+        if (body.length > maxBodySize) {
+            writeBodyTooLarge(response, maxBodySize);
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body);
+        String requestHash = requestHash(cachedRequest);
+
+        IdempotencyService.Claim claim;
+        try {
+            claim = idempotencyService.claim(userId, key, requestHash);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the original request");
+            return;
+        }
+
+        switch (claim.outcome()) {
+            case REPLAY -> {
+                replay(response, claim.record());
+                recordReplayedGeneration(request, userId, claim.record());
+            }
+            case MISMATCH -> writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                IDEMPOTENCY_KEY_HEADER + " was already used for a different request");
+            case IN_PROGRESS -> {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                writeError(response, HttpStatus.CONFLICT,
+                    "A request with this " + IDEMPOTENCY_KEY_HEADER + " is still in progress");
+            }
+            case CLAIMED -> runAndStore(cachedRequest, response, filterChain, userId, key, requestHash);
+        }
+    }
+
+    private void runAndStore(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain,
+                             String userId, String key, String requestHash) throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+
+        try {
+            filterChain.doFilter(request, cachingResponse);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotencyService.release(userId, key, requestHash);
+            throw e;
+        }
+
+        int status = cachingResponse.getStatus();
+        try {
+            if (status >= 500 || status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                idempotencyService.release(userId, key, requestHash);
+            } else {
+                idempotencyService.complete(userId, key, requestHash, status, cachingResponse.getContentType(),
+                    cachingResponse.getContentAsByteArray(), replayedHeaders(cachingResponse));
+            }
+        } catch (RuntimeException e) {
+            // The request itself succeeded; a retry would run it again once the lock expires
+            log.warn("Failed to store response for idempotency key of user {}: {}", userId, e.getMessage());
+        }
+
+        cachingResponse.copyBodyToResponse();
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyRecord record) throws IOException {
+        response.setStatus(record.getResponseStatus());
+        if (record.getResponseContentType() != null) {
+            response.setContentType(record.getResponseContentType());
+        }
+        if (record.getResponseHeaders() != null) {
+            for (String line : record.getResponseHeaders().split("\n")) {
+                int separator = line.indexOf(':');
+                if (separator > 0) {
+                    response.addHeader(line.substring(0, separator), line.substring(separator + 1).trim());
+                }
+            }
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+
+        byte[] body = record.getResponseBody() == null ? new byte[0] : record.getResponseBody();
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * The {@link #REPLAYED_HEADERS} the response has, one "Name: value" per line, or null if none
+     */
+    private static String replayedHeaders(HttpServletResponse response) {
+        StringBuilder headers = new StringBuilder();
+        for (String name : REPLAYED_HEADERS) {
+            for (String value : response.getHeaders(name)) {
+                headers.append(name).append(": ").append(value).append('\n');
+            }
+        }
+        return headers.isEmpty() ? null : headers.toString();
+    }
+
+    /**
+     * A replayed plan generation was answered without calling the AI model - count it as a cache hit
+     */
+    private void recordReplayedGeneration(HttpServletRequest request, String userId, IdempotencyRecord record) {
+        if (!PLAN_GENERATION_PATH.equals(path(request)) || record.getResponseStatus() != HttpStatus.CREATED.value()) {
+            return;
+        }
+        try {
+            usageRollupService.recordCacheHit(userId, UsageDays.today());
+        } catch (RuntimeException e) {
+            // The replay itself was sent; only the usage statistics miss it
+            log.warn("Failed to record replayed plan generation of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private void writeBodyTooLarge(HttpServletResponse response, long maxBodySize) throws IOException {
+        writeError(response, HttpStatus.CONTENT_TOO_LARGE,
+            "Request body must not exceed " + maxBodySize + " bytes with an " + IDEMPOTENCY_KEY_HEADER);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * SHA-256 of method, path, query and body - a retry must send the same request
+     */
+    private static String requestHash(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '?'
+                + (request.getQueryString() == null ? "" : request.getQueryString()) + '\n')
+                .getBytes(StandardCharsets.UTF_8));
+            digest.update(request.body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Extract user ID from JWT token in Authorization header, as the controllers do
+     */
+    private String extractUserId(HttpServletRequest request) {
+        // For localh2 profile (mock auth), return a default user ID
+        if (jwtService == null) {
+            return "mock-user-id";
+        }
+
+        String authHeader = request.getHeader("Authorization");
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            return jwtService.extractSubject(token);
+        }
+
+        return null;
+    }
+
+    /**
+     * Request whose body was already read; serves it again from memory
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // The whole body is in memory, so it can be handed to the listener right away
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- Delta sync (GET /api/notes/changes): notes changed after a (updatedAt, id) position,
+-- plus tombstones from the deletion log. Both are read through these indexes, so a sync
+-- costs in proportion to the changes rather than to the number of notes.
+
+CREATE INDEX IF NOT EXISTS idx_notes_user_updated ON notes (userId, updatedAt, id);
+
+-- One row per deleted note, written in the same transaction as the soft delete.
+-- Pruned after notes.sync.deletion-retention; older sync cursors must resync in full.
+CREATE TABLE IF NOT EXISTS note_deletions (
+    note_id    BIGINT       NOT NULL PRIMARY KEY,
+    user_id    VARCHAR(255) NOT NULL,
+    deleted_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_note_deletions_user_deleted ON note_deletions (user_id, deleted_at);
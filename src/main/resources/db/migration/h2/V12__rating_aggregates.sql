@@ -0,0 +1,47 @@
+-- Plan quality analytics without scanning trip_plans: every plan records the prompt version,
+-- model, preferences fingerprint and AI latency it was generated with, and rating_aggregates
+-- keeps running totals per user, prompt version, model and preferences fingerprint
+-- (RatingAggregateService, updated in the same transaction as the rating).
+
+ALTER TABLE trip_plans ADD COLUMN IF NOT EXISTS promptVersion VARCHAR(32);
+ALTER TABLE trip_plans ADD COLUMN IF NOT EXISTS model VARCHAR(100);
+ALTER TABLE trip_plans ADD COLUMN IF NOT EXISTS preferencesFingerprint VARCHAR(64);
+ALTER TABLE trip_plans ADD COLUMN IF NOT EXISTS generationMs BIGINT;
+
+-- Archived plans keep the same columns, so a restored plan is still attributed correctly
+ALTER TABLE trip_plans_archive ADD COLUMN IF NOT EXISTS promptVersion VARCHAR(32);
+ALTER TABLE trip_plans_archive ADD COLUMN IF NOT EXISTS model VARCHAR(100);
+ALTER TABLE trip_plans_archive ADD COLUMN IF NOT EXISTS preferencesFingerprint VARCHAR(64);
+ALTER TABLE trip_plans_archive ADD COLUMN IF NOT EXISTS generationMs BIGINT;
+
+CREATE TABLE IF NOT EXISTS rating_aggregates (
+    dimension         VARCHAR(32)  NOT NULL,
+    dimension_value   VARCHAR(255) NOT NULL,
+    generations       BIGINT       NOT NULL DEFAULT 0,
+    generation_ms_sum BIGINT       NOT NULL DEFAULT 0,
+    rating_count      BIGINT       NOT NULL DEFAULT 0,
+    rating_sum        BIGINT       NOT NULL DEFAULT 0,
+    rating_1          BIGINT       NOT NULL DEFAULT 0,
+    rating_2          BIGINT       NOT NULL DEFAULT 0,
+    rating_3          BIGINT       NOT NULL DEFAULT 0,
+    rating_4          BIGINT       NOT NULL DEFAULT 0,
+    rating_5          BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (dimension, dimension_value)
+);
+
+-- Ratings given before this migration. Those plans have no recorded prompt version, model or
+-- fingerprint, so they count as 'unknown'; generation totals only start from here.
+INSERT INTO rating_aggregates (dimension, dimension_value, rating_count, rating_sum,
+                               rating_1, rating_2, rating_3, rating_4, rating_5)
+SELECT d.dimension, CASE WHEN d.dimension = 'USER' THEN p.userId ELSE 'unknown' END,
+       COUNT(*), SUM(p.rating),
+       SUM(CASE WHEN p.rating = 1 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN p.rating = 2 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN p.rating = 3 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN p.rating = 4 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN p.rating = 5 THEN 1 ELSE 0 END)
+FROM trip_plans p
+CROSS JOIN (SELECT 'USER' AS dimension UNION ALL SELECT 'PROMPT_VERSION'
+            UNION ALL SELECT 'MODEL' UNION ALL SELECT 'PREFERENCES') d
+WHERE p.rating IS NOT NULL
+GROUP BY d.dimension, CASE WHEN d.dimension = 'USER' THEN p.userId ELSE 'unknown' END;
@@ -0,0 +1,10 @@
+-- Scheduled jobs that change shared data (purges, archiving, partitions, rollups) run on every node's
+-- scheduler; a run first claims the job's row (ScheduledJobLockService) and is skipped while another
+-- node holds it. locked_until bounds the claim, so a node that dies mid-run doesn't block the job.
+
+CREATE TABLE IF NOT EXISTS scheduled_job_locks (
+    name         VARCHAR(64)  NOT NULL PRIMARY KEY,
+    locked_until TIMESTAMP(6) NOT NULL,
+    locked_at    TIMESTAMP(6) NOT NULL,
+    locked_by    VARCHAR(255) NOT NULL
+);
@@ -0,0 +1,4 @@
+-- Exports and plan statistics read archived plans per user alongside the live ones
+-- (trip_plans UNION ALL trip_plans_archive), like idx_trip_plans_user_note does for trip_plans.
+
+CREATE INDEX IF NOT EXISTS idx_trip_plans_archive_user_note ON trip_plans_archive (userId, noteId);
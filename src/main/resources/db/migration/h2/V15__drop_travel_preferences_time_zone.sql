@@ -0,0 +1,4 @@
+-- The preferred time zone was only collected for daily AI quotas, which count UTC days for
+-- every user (UsageDays); nothing reads it any more.
+
+ALTER TABLE travel_preferences DROP COLUMN IF EXISTS timeZone;
@@ -0,0 +1,4 @@
+-- Response headers replayed together with the stored body (IdempotencyFilter.REPLAYED_HEADERS,
+-- e.g. Location, ETag and X-RateLimit-*), one "Name: value" per line.
+
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS response_headers VARCHAR(4000);
@@ -0,0 +1,9 @@
+-- Full-text search (GET /api/search, NoteRepositoryImpl.search) on H2's native
+-- full-text index. FT_CREATE_INDEX indexes the existing rows and adds triggers
+-- that keep the index up to date; ranking and highlighting are done in Java.
+
+CREATE ALIAS IF NOT EXISTS FT_INIT FOR 'org.h2.fulltext.FullText.init';
+CALL FT_INIT();
+
+CALL FT_CREATE_INDEX('PUBLIC', 'NOTES', 'TITLE,CONTENT');
+CALL FT_CREATE_INDEX('PUBLIC', 'TRIP_PLANS', 'PLANCONTENT');
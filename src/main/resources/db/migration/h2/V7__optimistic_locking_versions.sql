@@ -0,0 +1,6 @@
+-- Optimistic locking: version columns for @Version on Note and TravelPreferences.
+-- Exposed as ETags; writes with If-Match only succeed if the version is unchanged.
+
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE travel_preferences ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,13 @@
+-- Soft delete of notes: deleting a note sets deletedAt and enqueues a purge job in the same
+-- transaction. NotePurgeService then removes the note's trip plans in small batches and
+-- finally the note row and the job.
+
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS deletedAt TIMESTAMP(6);
+
+CREATE TABLE IF NOT EXISTS note_purge_jobs (
+    note_id     BIGINT       NOT NULL PRIMARY KEY,
+    enqueued_at TIMESTAMP(6) NOT NULL
+);
+
+-- NotePurgeService picks the oldest jobs first
+CREATE INDEX IF NOT EXISTS idx_note_purge_jobs_enqueued ON note_purge_jobs (enqueued_at);
@@ -0,0 +1,14 @@
+-- Archive for old unrated plans (TripPlanRetentionService). The monthly partitioning of
+-- trip_plans and the compression of archived plan texts are PostgreSQL-only; H2 gets the
+-- plain archive table so the same archiving and lookups work locally and in tests.
+CREATE TABLE IF NOT EXISTS trip_plans_archive (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    userId      VARCHAR(255) NOT NULL,
+    noteId      BIGINT       NOT NULL,
+    planContent TEXT         NOT NULL,
+    rating      INTEGER,
+    createdAt   TIMESTAMP(6) NOT NULL,
+    archivedAt  TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_trip_plans_archive_note ON trip_plans_archive (noteId);
@@ -0,0 +1,19 @@
+-- Idempotency-Key support for POST /api/notes and POST /api/trip-plans/generate (IdempotencyFilter).
+-- The first request with a key claims the row (response_status NULL while it runs); its response
+-- is stored when it finishes and replayed to retries until expires_at. Rows live in the database
+-- so a retry that lands on another node still finds them.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id               VARCHAR(255) NOT NULL,
+    idempotency_key       VARCHAR(255) NOT NULL,
+    request_hash          VARCHAR(64)  NOT NULL,
+    response_status       INTEGER,
+    response_content_type VARCHAR(255),
+    response_body         BYTEA,
+    created_at            TIMESTAMP(6) NOT NULL,
+    expires_at            TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+-- IdempotencyService.purgeExpired removes expired keys
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires ON idempotency_keys (expires_at);
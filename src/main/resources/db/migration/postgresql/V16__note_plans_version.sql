@@ -0,0 +1,5 @@
+-- Version of a note's plan list, bumped in the same transaction as every plan insert, rating
+-- or delete; exposed as the collection ETag of GET /api/trip-plans?noteId=. Unlike a checksum
+-- of the plan rows it never repeats. Not mapped on Note, so saving a note never writes it back.
+
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS plansVersion BIGINT DEFAULT 0 NOT NULL;
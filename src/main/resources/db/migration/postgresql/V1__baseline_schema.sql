@@ -0,0 +1,67 @@
+-- Baseline schema as previously generated by Hibernate (ddl-auto: update).
+-- Every statement is idempotent so the script also runs on databases created that way.
+-- Unquoted identifiers fold to lower case, matching PhysicalNamingStrategyStandardImpl.
+
+CREATE TABLE IF NOT EXISTS notes (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    userId    VARCHAR(255) NOT NULL,
+    title     VARCHAR(255) NOT NULL,
+    content   TEXT         NOT NULL,
+    createdAt TIMESTAMP(6) NOT NULL,
+    updatedAt TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS trip_plans (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    userId      VARCHAR(255) NOT NULL,
+    noteId      BIGINT       NOT NULL,
+    planContent TEXT         NOT NULL,
+    rating      INTEGER,
+    createdAt   TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS travel_preferences (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    userId             VARCHAR(255) NOT NULL UNIQUE,
+    budget             VARCHAR(50),
+    pace               VARCHAR(50),
+    accommodationStyle VARCHAR(50),
+    season             VARCHAR(50),
+    timeZone           VARCHAR(64)
+);
+
+ALTER TABLE travel_preferences ADD COLUMN IF NOT EXISTS timeZone VARCHAR(64);
+
+CREATE TABLE IF NOT EXISTS travel_preferences_interests (
+    travel_preferences_id BIGINT       NOT NULL REFERENCES travel_preferences (id),
+    interest              VARCHAR(255) NOT NULL,
+    PRIMARY KEY (travel_preferences_id, interest)
+);
+
+CREATE TABLE IF NOT EXISTS travel_preferences_transport (
+    travel_preferences_id BIGINT       NOT NULL REFERENCES travel_preferences (id),
+    transport             VARCHAR(255) NOT NULL,
+    PRIMARY KEY (travel_preferences_id, transport)
+);
+
+CREATE TABLE IF NOT EXISTS travel_preferences_food (
+    travel_preferences_id BIGINT       NOT NULL REFERENCES travel_preferences (id),
+    food_preference       VARCHAR(255) NOT NULL,
+    PRIMARY KEY (travel_preferences_id, food_preference)
+);
+
+CREATE TABLE IF NOT EXISTS usage_counters (
+    user_id    VARCHAR(255) NOT NULL,
+    usage_date DATE         NOT NULL,
+    used       INTEGER      NOT NULL,
+    PRIMARY KEY (user_id, usage_date)
+);
+
+CREATE TABLE IF NOT EXISTS daily_usage (
+    user_id     VARCHAR(255) NOT NULL,
+    usage_date  DATE         NOT NULL,
+    generations INTEGER      NOT NULL,
+    tokens      BIGINT       NOT NULL,
+    cache_hits  INTEGER      NOT NULL,
+    PRIMARY KEY (user_id, usage_date)
+);
@@ -0,0 +1,17 @@
+-- Indexes matched to the derived repository queries.
+-- NoteRepository.findByIdAndUserId is served by the primary key (id is unique).
+
+-- NoteRepository.findByUserIdOrderByCreatedAtDesc
+CREATE INDEX IF NOT EXISTS idx_notes_user_created ON notes (userId, createdAt DESC);
+
+-- TripPlanRepository.findByNoteId
+CREATE INDEX IF NOT EXISTS idx_trip_plans_note_created ON trip_plans (noteId, createdAt);
+
+-- TripPlanRepository.findByUserIdAndNoteId (also findByUserId via the leading column)
+CREATE INDEX IF NOT EXISTS idx_trip_plans_user_note ON trip_plans (userId, noteId);
+
+-- TripPlanRepository.countByUserIdAndCreatedAtAfter
+CREATE INDEX IF NOT EXISTS idx_trip_plans_user_created ON trip_plans (userId, createdAt);
+
+-- TripPlanRepository.countGenerationsPerUser (usage rollup reconciler, one day's range on createdAt)
+CREATE INDEX IF NOT EXISTS idx_trip_plans_created ON trip_plans (createdAt);
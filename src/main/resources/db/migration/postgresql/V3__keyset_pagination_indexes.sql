@@ -0,0 +1,10 @@
+-- Keyset pagination orders by (createdAt DESC, id DESC); id is added to the listing
+-- indexes so the page predicate and the tie-breaker are resolved from the index.
+
+-- NoteRepository.findByUserIdOrderByCreatedAtDescIdDesc / findByUserIdAfter
+DROP INDEX IF EXISTS idx_notes_user_created;
+CREATE INDEX idx_notes_user_created ON notes (userId, createdAt DESC, id DESC);
+
+-- TripPlanRepository.findByNoteIdOrderByCreatedAtDescIdDesc / findByNoteIdAfter
+DROP INDEX IF EXISTS idx_trip_plans_note_created;
+CREATE INDEX idx_trip_plans_note_created ON trip_plans (noteId, createdAt DESC, id DESC);
@@ -0,0 +1,52 @@
+-- Multi-select preferences move from three element-collection tables to INTEGER bitmask
+-- columns on travel_preferences (EnumSetBitmaskConverter). Bit = 1 << enum ordinal.
+
+ALTER TABLE travel_preferences ADD COLUMN interests INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE travel_preferences ADD COLUMN transport INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE travel_preferences ADD COLUMN foodPreferences INTEGER NOT NULL DEFAULT 0;
+
+-- Interest
+UPDATE travel_preferences p SET interests = COALESCE((
+    SELECT SUM(CASE i.interest
+        WHEN 'CULTURE'    THEN 1
+        WHEN 'NATURE'     THEN 2
+        WHEN 'SPORTS'     THEN 4
+        WHEN 'GASTRONOMY' THEN 8
+        WHEN 'ADVENTURE'  THEN 16
+        WHEN 'RELAXATION' THEN 32
+        WHEN 'HISTORY'    THEN 64
+        WHEN 'NIGHTLIFE'  THEN 128
+        ELSE 0 END)
+    FROM travel_preferences_interests i
+    WHERE i.travel_preferences_id = p.id), 0);
+
+-- Transport
+UPDATE travel_preferences p SET transport = COALESCE((
+    SELECT SUM(CASE t.transport
+        WHEN 'CAR'     THEN 1
+        WHEN 'TRAIN'   THEN 2
+        WHEN 'PLANE'   THEN 4
+        WHEN 'BUS'     THEN 8
+        WHEN 'BIKE'    THEN 16
+        WHEN 'WALKING' THEN 32
+        ELSE 0 END)
+    FROM travel_preferences_transport t
+    WHERE t.travel_preferences_id = p.id), 0);
+
+-- FoodPreference
+UPDATE travel_preferences p SET foodPreferences = COALESCE((
+    SELECT SUM(CASE f.food_preference
+        WHEN 'LOCAL_CUISINE' THEN 1
+        WHEN 'INTERNATIONAL' THEN 2
+        WHEN 'FAST_FOOD'     THEN 4
+        WHEN 'VEGETARIAN'    THEN 8
+        WHEN 'VEGAN'         THEN 16
+        WHEN 'STREET_FOOD'   THEN 32
+        WHEN 'FINE_DINING'   THEN 64
+        ELSE 0 END)
+    FROM travel_preferences_food f
+    WHERE f.travel_preferences_id = p.id), 0);
+
+DROP TABLE travel_preferences_interests;
+DROP TABLE travel_preferences_transport;
+DROP TABLE travel_preferences_food;
@@ -0,0 +1,13 @@
+-- Entity IDs move from IDENTITY to pooled sequences (allocationSize = 50 in the entities,
+-- so INCREMENT BY must match). Each sequence starts one allocation above the current
+-- maximum ID, so the first block Hibernate hands out can't collide with existing rows.
+-- The old identity defaults stay in place but are no longer used by the application.
+
+CREATE SEQUENCE IF NOT EXISTS notes_seq INCREMENT BY 50;
+SELECT setval('notes_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM notes), false);
+
+CREATE SEQUENCE IF NOT EXISTS trip_plans_seq INCREMENT BY 50;
+SELECT setval('trip_plans_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM trip_plans), false);
+
+CREATE SEQUENCE IF NOT EXISTS travel_preferences_seq INCREMENT BY 50;
+SELECT setval('travel_preferences_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM travel_preferences), false);
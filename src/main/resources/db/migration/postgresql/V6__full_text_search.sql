@@ -0,0 +1,16 @@
+-- Full-text search (GET /api/search, NoteRepositoryImpl.search).
+-- Generated tsvector columns are kept up to date by PostgreSQL and indexed with GIN.
+-- The 'simple' configuration (no stemming, no stop words) because notes are written
+-- in different languages. Note titles weigh more than content in the ranking.
+
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', title), 'A') || setweight(to_tsvector('simple', content), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_notes_search ON notes USING GIN (search_vector);
+
+ALTER TABLE trip_plans ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (setweight(to_tsvector('simple', planContent), 'B')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_trip_plans_search ON trip_plans USING GIN (search_vector);
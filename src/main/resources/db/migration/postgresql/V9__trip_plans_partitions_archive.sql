@@ -0,0 +1,82 @@
+-- trip_plans becomes range-partitioned by month on createdAt. Recent-plan queries (usage
+-- limits, latest plans, rollup reconciler) only touch the newest partitions, and indexes
+-- and vacuum work stay per month instead of growing with the whole history.
+-- Partitions are created ahead of time by create_trip_plans_partitions(), called here and
+-- daily by TripPlanRetentionService; the default partition only catches stray dates.
+
+-- Creates the monthly partitions from from_month up to months_ahead months after the
+-- current one. Returns the number of partitions created.
+CREATE OR REPLACE FUNCTION create_trip_plans_partitions(from_month DATE, months_ahead INTEGER)
+RETURNS INTEGER LANGUAGE plpgsql AS $$
+DECLARE
+    partition_from DATE := date_trunc('month', from_month)::date;
+    last_month     DATE := (date_trunc('month', CURRENT_DATE) + make_interval(months => months_ahead))::date;
+    partition_name TEXT;
+    created        INTEGER := 0;
+BEGIN
+    WHILE partition_from <= last_month LOOP
+        partition_name := 'trip_plans_' || to_char(partition_from, 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            BEGIN
+                EXECUTE format('CREATE TABLE %I PARTITION OF trip_plans FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, partition_from, (partition_from + interval '1 month')::date);
+                created := created + 1;
+            EXCEPTION WHEN check_violation THEN
+                -- Rows for this month already sit in the default partition; leave them there
+                RAISE WARNING 'Partition % not created: default partition has rows for that month', partition_name;
+            END;
+        END IF;
+        partition_from := (partition_from + interval '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+ALTER TABLE trip_plans RENAME TO trip_plans_unpartitioned;
+
+-- IDs come from trip_plans_seq (pooled by Hibernate), so no column default. The primary key
+-- has to include the partition key; id alone stays unique because of the sequence.
+CREATE TABLE trip_plans (
+    id            BIGINT       NOT NULL,
+    userId        VARCHAR(255) NOT NULL,
+    noteId        BIGINT       NOT NULL,
+    planContent   TEXT         NOT NULL,
+    rating        INTEGER,
+    createdAt     TIMESTAMP(6) NOT NULL,
+    search_vector tsvector GENERATED ALWAYS AS (setweight(to_tsvector('simple', planContent), 'B')) STORED
+) PARTITION BY RANGE (createdAt);
+
+CREATE TABLE trip_plans_default PARTITION OF trip_plans DEFAULT;
+
+SELECT create_trip_plans_partitions(
+    COALESCE((SELECT MIN(createdAt) FROM trip_plans_unpartitioned)::date, CURRENT_DATE), 3);
+
+INSERT INTO trip_plans (id, userId, noteId, planContent, rating, createdAt)
+SELECT id, userId, noteId, planContent, rating, createdAt FROM trip_plans_unpartitioned;
+
+DROP TABLE trip_plans_unpartitioned;
+
+-- Indexes on the parent are created on every partition (existing and future)
+ALTER TABLE trip_plans ADD PRIMARY KEY (id, createdAt);
+CREATE INDEX idx_trip_plans_note_created ON trip_plans (noteId, createdAt DESC, id DESC);
+CREATE INDEX idx_trip_plans_user_note ON trip_plans (userId, noteId);
+CREATE INDEX idx_trip_plans_user_created ON trip_plans (userId, createdAt);
+CREATE INDEX idx_trip_plans_created ON trip_plans (createdAt);
+CREATE INDEX idx_trip_plans_search ON trip_plans USING GIN (search_vector);
+
+-- Cold storage for old unrated plans (TripPlanRetentionService). Same columns as trip_plans,
+-- so archived plans are read back like live ones. lz4 compresses plan texts cheaply, and the
+-- lower toast_tuple_target compresses shorter plans too. No full-text index: archived plans
+-- don't show up in search.
+CREATE TABLE IF NOT EXISTS trip_plans_archive (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    userId      VARCHAR(255) NOT NULL,
+    noteId      BIGINT       NOT NULL,
+    planContent TEXT COMPRESSION lz4 NOT NULL,
+    rating      INTEGER,
+    createdAt   TIMESTAMP(6) NOT NULL,
+    archivedAt  TIMESTAMP(6) NOT NULL
+) WITH (toast_tuple_target = 256);
+
+-- Note purge deletes a note's archived plans as well
+CREATE INDEX IF NOT EXISTS idx_trip_plans_archive_note ON trip_plans_archive (noteId);
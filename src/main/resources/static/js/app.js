@@ -6,8 +6,36 @@
 // Global variables
 let currentNotes = [];
 let currentDetailNoteId = null;
+// ETag of the note open in the edit form - saving fails with 412 if the note changed since
+let editingNoteETag = null;
 let currentTripPlans = [];
 
+// Keyset pagination state - cursor of the next page (null when everything is loaded)
+let notesNextCursor = null;
+let notesLoadingMore = false;
+let tripPlansNextCursor = null;
+let tripPlansLoadingMore = false;
+
+// Idempotency keys of the pending note save and plan generation. A key is kept until a response
+// arrives, so pressing the button again after a timeout can't create a second note or plan.
+let noteFormIdempotencyKey = null;
+let planIdempotencyKey = null;
+
+// Delta sync cursor of the note list - after a change only what changed since is fetched
+let notesSyncCursor = null;
+
+// Plan statistics per note id (count, latest rating...) shown as badges on the note list
+let notePlanStats = {};
+
+// Full plan contents of expanded plans (the list only holds summaries), keyed by plan id
+let expandedPlanContents = {};
+
+// Full-text search state - results replace the note list while a query is entered
+let searchQuery = '';
+let searchResults = [];
+let searchNextCursor = null;
+let searchTimer = null;
+
 // Authentication and initialization
 async function checkAuth() {
     const loadingDiv = document.getElementById('loading');
@@ -55,7 +83,7 @@ async function handleLogout() {
     window.location.href = '/';
 }
 
-// Notes Management - Load notes
+// Notes Management - Load notes (first page)
 async function loadNotes() {
     const notesListDiv = document.getElementById('notes-list');
 
@@ -67,7 +95,125 @@ async function loadNotes() {
             return;
         }
 
-        const response = await fetch('/api/notes', {
+        const page = await fetchPage('/api/notes', null, session);
+        currentNotes = page.items;
+        notesNextCursor = page.nextCursor;
+        notesSyncCursor = page.syncCursor;
+        notePlanStats = {};
+        renderNotes();
+        loadPlanStats(page.items, session);
+        recheckSentinel('notes-sentinel');
+
+    } catch (error) {
+        console.error('Error loading notes:', error);
+        notesListDiv.innerHTML = '<div class="error">Failed to load notes: ' + error.message + '</div>';
+    }
+}
+
+// Notes Management - Append the next page (triggered by scrolling to the end of the list)
+async function loadMoreNotes() {
+    if (!notesNextCursor || notesLoadingMore) return;
+    notesLoadingMore = true;
+
+    try {
+        const { data: { session } } = await authClient.auth.getSession();
+        if (!session) return;
+
+        const page = await fetchPage('/api/notes', notesNextCursor, session);
+        // A synced note may already be in the list if it was created after the list was loaded
+        const loadedIds = new Set(currentNotes.map(note => note.id));
+        currentNotes = currentNotes.concat(page.items.filter(note => !loadedIds.has(note.id)));
+        notesNextCursor = page.nextCursor;
+        renderNotes();
+        loadPlanStats(page.items, session);
+        notesLoadingMore = false;
+        recheckSentinel('notes-sentinel');
+
+    } catch (error) {
+        console.error('Error loading more notes:', error);
+    } finally {
+        notesLoadingMore = false;
+    }
+}
+
+// Notes Management - Fetch only the notes changed since the last sync and apply them to the list.
+// Falls back to reloading the list if there is no cursor yet or the server no longer has it (410).
+async function syncNotes() {
+    if (!notesSyncCursor) {
+        return loadNotes();
+    }
+
+    try {
+        const { data: { session } } = await authClient.auth.getSession();
+        if (!session) return;
+
+        const changedNotes = [];
+        let hasMore = true;
+        while (hasMore) {
+            const response = await fetch('/api/notes/changes?since=' + encodeURIComponent(notesSyncCursor), {
+                method: 'GET',
+                headers: {
+                    'Authorization': `Bearer ${session.access_token}`,
+                    'Content-Type': 'application/json'
+                }
+            });
+
+            if (!response.ok) {
+                throw new Error('Failed to sync notes (' + response.status + ')');
+            }
+
+            const changes = await response.json();
+            applyNoteChanges(changes.notes, changes.deleted);
+            changedNotes.push(...changes.notes);
+            notesSyncCursor = changes.next_cursor;
+            hasMore = changes.has_more;
+        }
+
+        renderNotes();
+        loadPlanStats(changedNotes.filter(note => currentNotes.some(current => current.id === note.id)), session);
+
+    } catch (error) {
+        console.error('Error syncing notes, reloading:', error);
+        return loadNotes();
+    }
+}
+
+// Apply synced changes to the local copy of the note list (applying a change twice is harmless)
+function applyNoteChanges(notes, deleted) {
+    const deletedIds = new Set(deleted.map(tombstone => tombstone.id));
+    currentNotes = currentNotes.filter(note => !deletedIds.has(note.id));
+    for (const id of deletedIds) {
+        delete notePlanStats[id];
+    }
+
+    // New notes beyond the loaded pages are left for loadMoreNotes to fetch in order
+    const oldestLoaded = currentNotes[currentNotes.length - 1];
+    for (const note of notes) {
+        const index = currentNotes.findIndex(current => current.id === note.id);
+        if (index >= 0) {
+            currentNotes[index] = note;
+        } else if (!notesNextCursor || !oldestLoaded || compareNotes(note, oldestLoaded) < 0) {
+            currentNotes.push(note);
+        }
+    }
+    currentNotes.sort(compareNotes);
+}
+
+// Note list order: newest first, ties broken by id like the server's keyset order
+function compareNotes(a, b) {
+    if (a.createdAt !== b.createdAt) {
+        return a.createdAt < b.createdAt ? 1 : -1;
+    }
+    return b.id - a.id;
+}
+
+// Load plan statistics for a page of notes in one request and re-render the badges
+async function loadPlanStats(notes, session) {
+    if (notes.length === 0) return;
+
+    try {
+        const noteIds = notes.map(note => note.id).join(',');
+        const response = await fetch(`/api/trip-plans/stats?noteIds=${noteIds}`, {
             method: 'GET',
             headers: {
                 'Authorization': `Bearer ${session.access_token}`,
@@ -75,17 +221,76 @@ async function loadNotes() {
             }
         });
 
-        if (!response.ok) {
-            throw new Error('Failed to load notes');
-        }
+        if (!response.ok) throw new Error('Failed to load plan statistics');
 
-        currentNotes = await response.json();
+        const result = await response.json();
+        Object.assign(notePlanStats, result.stats);
         renderNotes();
 
     } catch (error) {
-        console.error('Error loading notes:', error);
-        notesListDiv.innerHTML = '<div class="error">Failed to load notes: ' + error.message + '</div>';
+        // Badges are optional - the list stays usable without them
+        console.error('Error loading plan statistics:', error);
+    }
+}
+
+// Random key for the Idempotency-Key header (randomUUID needs a secure context)
+function newIdempotencyKey() {
+    if (window.crypto && crypto.randomUUID) {
+        return crypto.randomUUID();
+    }
+    return Date.now().toString(36) + '-' + Math.random().toString(36).slice(2) + Math.random().toString(36).slice(2);
+}
+
+// Fetch one page of a keyset-paginated list; the next cursor comes in the X-Next-Cursor header
+async function fetchPage(url, cursor, session) {
+    const pageUrl = cursor
+        ? url + (url.includes('?') ? '&' : '?') + 'cursor=' + encodeURIComponent(cursor)
+        : url;
+
+    const response = await fetch(pageUrl, {
+        method: 'GET',
+        headers: {
+            'Authorization': `Bearer ${session.access_token}`,
+            'Content-Type': 'application/json'
+        }
+    });
+
+    if (!response.ok) {
+        throw new Error('Failed to load ' + url);
     }
+
+    return {
+        items: await response.json(),
+        nextCursor: response.headers.get('X-Next-Cursor'),
+        syncCursor: response.headers.get('X-Sync-Cursor')
+    };
+}
+
+// Load the next page when the sentinel below a list scrolls into view
+const sentinelObservers = {};
+
+function observeSentinel(sentinelId, loadMore) {
+    const sentinel = document.getElementById(sentinelId);
+    if (!sentinel || !('IntersectionObserver' in window)) return;
+
+    const observer = new IntersectionObserver(entries => {
+        if (entries.some(entry => entry.isIntersecting)) {
+            loadMore();
+        }
+    }, { rootMargin: '200px' });
+    observer.observe(sentinel);
+    sentinelObservers[sentinelId] = observer;
+}
+
+// The observer only reports changes, so re-check after a page is rendered
+// in case the sentinel is still visible (short pages, tall screens)
+function recheckSentinel(sentinelId) {
+    const observer = sentinelObservers[sentinelId];
+    const sentinel = document.getElementById(sentinelId);
+    if (!observer || !sentinel) return;
+
+    observer.unobserve(sentinel);
+    observer.observe(sentinel);
 }
 
 // Render notes
@@ -101,13 +306,13 @@ function renderNotes() {
     for (const note of currentNotes) {
         const createdDate = new Date(note.createdAt).toLocaleDateString();
         const updatedDate = new Date(note.updatedAt).toLocaleDateString();
-        const contentPreview = note.content.length > 150
-            ? note.content.substring(0, 150) + '...'
-            : note.content;
+        // List entries are summaries - the snippet is cut by the server
+        const contentPreview = note.truncated ? note.snippet + '...' : note.snippet;
+        const planBadge = renderPlanBadge(notePlanStats[note.id]);
 
         html += `
             <div class="note-item" onclick="openNoteDetail(${note.id})">
-                <h3>${escapeHtml(note.title)}</h3>
+                <h3>${escapeHtml(note.title)}${planBadge}</h3>
                 <div class="note-content">${escapeHtml(contentPreview)}</div>
                 <div class="note-meta">
                     Created: ${createdDate} | Last updated: ${updatedDate}
@@ -123,6 +328,16 @@ function renderNotes() {
     notesListDiv.innerHTML = html;
 }
 
+// Badge with the number of plans and the latest rating of a note
+function renderPlanBadge(stats) {
+    if (!stats || stats.planCount === 0) return '';
+
+    const plans = stats.planCount === 1 ? '1 plan' : `${stats.planCount} plans`;
+    const rating = stats.latestRating ? ` · ${stats.latestRating}★` : '';
+    const title = stats.averageRating ? `Average rating: ${stats.averageRating.toFixed(1)}` : 'No ratings yet';
+    return ` <span class="plan-badge" title="${title}">${plans}${rating}</span>`;
+}
+
 // Escape HTML
 function escapeHtml(text) {
     const div = document.createElement('div');
@@ -130,8 +345,42 @@ function escapeHtml(text) {
     return div.innerHTML;
 }
 
+// Load a full note (the list only holds summaries)
+async function fetchNote(noteId) {
+    try {
+        const { data: { session } } = await authClient.auth.getSession();
+
+        if (!session) {
+            alert('No session found. Please log in again.');
+            return null;
+        }
+
+        const response = await fetch(`/api/notes/${noteId}`, {
+            method: 'GET',
+            headers: {
+                'Authorization': `Bearer ${session.access_token}`,
+                'Content-Type': 'application/json'
+            }
+        });
+
+        if (!response.ok) {
+            throw new Error('Failed to load note');
+        }
+
+        const note = await response.json();
+        // Version of the note, sent back in If-Match when saving an edit
+        note.etag = response.headers.get('ETag');
+        return note;
+
+    } catch (error) {
+        console.error('Error loading note:', error);
+        alert('Failed to load note: ' + error.message);
+        return null;
+    }
+}
+
 // Note form management
-function openNoteForm(noteId = null) {
+async function openNoteForm(noteId = null) {
     const modal = document.getElementById('note-form-modal');
     const formTitle = document.getElementById('note-form-title');
     const noteIdInput = document.getElementById('note-id');
@@ -139,15 +388,18 @@ function openNoteForm(noteId = null) {
     const contentInput = document.getElementById('note-content-input');
 
     if (noteId) {
-        const note = currentNotes.find(n => n.id === noteId);
-        if (note) {
-            formTitle.textContent = 'Edit Note';
-            noteIdInput.value = note.id;
-            titleInput.value = note.title;
-            contentInput.value = note.content;
-        }
+        const note = await fetchNote(noteId);
+        if (!note) return;
+
+        formTitle.textContent = 'Edit Note';
+        editingNoteETag = note.etag;
+        noteIdInput.value = note.id;
+        titleInput.value = note.title;
+        contentInput.value = note.content;
     } else {
         formTitle.textContent = 'Add New Note';
+        editingNoteETag = null;
+        noteFormIdempotencyKey = newIdempotencyKey();
         noteIdInput.value = '';
         titleInput.value = '';
         contentInput.value = '';
@@ -182,15 +434,24 @@ async function saveNote(event) {
 
         const url = noteId ? `/api/notes/${noteId}` : '/api/notes';
         const method = noteId ? 'PUT' : 'POST';
+        const headers = {
+            'Authorization': `Bearer ${session.access_token}`,
+            'Content-Type': 'application/json'
+        };
+        if (noteId && editingNoteETag) {
+            headers['If-Match'] = editingNoteETag;
+        }
+        if (!noteId && noteFormIdempotencyKey) {
+            headers['Idempotency-Key'] = noteFormIdempotencyKey;
+        }
 
         const response = await fetch(url, {
             method: method,
-            headers: {
-                'Authorization': `Bearer ${session.access_token}`,
-                'Content-Type': 'application/json'
-            },
+            headers: headers,
             body: JSON.stringify({ title, content })
         });
+        // The server answered - a new attempt (e.g. after fixing the input) is a new request
+        noteFormIdempotencyKey = newIdempotencyKey();
 
         const result = await response.json();
 
@@ -199,7 +460,7 @@ async function saveNote(event) {
         }
 
         closeNoteForm();
-        loadNotes();
+        syncNotes();
         alert(result.message || 'Note saved successfully!');
 
     } catch (error) {
@@ -239,7 +500,7 @@ async function deleteNote(noteId) {
             throw new Error(result.message || 'Failed to delete note');
         }
 
-        loadNotes();
+        syncNotes();
         alert(result.message || 'Note deleted successfully!');
 
     } catch (error) {
@@ -249,8 +510,8 @@ async function deleteNote(noteId) {
 }
 
 // Note detail view
-function openNoteDetail(noteId) {
-    const note = currentNotes.find(n => n.id === noteId);
+async function openNoteDetail(noteId) {
+    const note = await fetchNote(noteId);
     if (!note) return;
 
     currentDetailNoteId = noteId;
@@ -329,6 +590,14 @@ async function checkCanGeneratePlan(noteId) {
         } else if (result.limit_exceeded) {
             warningDiv.innerHTML = `${result.reason}. Please try again tomorrow.`;
             warningDiv.style.display = 'block';
+        } else if (result.rate_limited) {
+            warningDiv.innerHTML = result.reason;
+            warningDiv.style.display = 'block';
+            setTimeout(() => {
+                if (currentDetailNoteId === noteId) {
+                    checkCanGeneratePlan(noteId);
+                }
+            }, result.retry_after_seconds * 1000);
         } else {
             warningDiv.innerHTML = result.reason || 'Cannot generate plan at this time.';
             warningDiv.style.display = 'block';
@@ -363,14 +632,20 @@ async function generateTripPlan() {
             return;
         }
 
+        if (!planIdempotencyKey || planIdempotencyKey.noteId !== currentDetailNoteId) {
+            planIdempotencyKey = { noteId: currentDetailNoteId, key: newIdempotencyKey() };
+        }
+
         const response = await fetch('/api/trip-plans/generate', {
             method: 'POST',
             headers: {
                 'Authorization': `Bearer ${session.access_token}`,
-                'Content-Type': 'application/json'
+                'Content-Type': 'application/json',
+                'Idempotency-Key': planIdempotencyKey.key
             },
             body: JSON.stringify({ noteId: currentDetailNoteId })
         });
+        planIdempotencyKey = null;
 
         const result = await response.json();
 
@@ -380,6 +655,10 @@ async function generateTripPlan() {
 
         alert('Trip plan generated successfully!');
         await loadTripPlans(currentDetailNoteId);
+        // Show the new plan expanded - its content came with the response
+        expandedPlanContents[result.trip_plan.id] = result.trip_plan.planContent;
+        renderTripPlans();
+        loadPlanStats([{ id: currentDetailNoteId }], session);
         await checkCanGeneratePlan(currentDetailNoteId);
 
     } catch (error) {
@@ -402,18 +681,12 @@ async function loadTripPlans(noteId) {
             return;
         }
 
-        const response = await fetch(`/api/trip-plans?noteId=${noteId}`, {
-            method: 'GET',
-            headers: {
-                'Authorization': `Bearer ${session.access_token}`,
-                'Content-Type': 'application/json'
-            }
-        });
-
-        if (!response.ok) throw new Error('Failed to load trip plans');
-
-        currentTripPlans = await response.json();
+        const page = await fetchPage(`/api/trip-plans?noteId=${noteId}`, null, session);
+        currentTripPlans = page.items;
+        tripPlansNextCursor = page.nextCursor;
+        expandedPlanContents = {};
         renderTripPlans();
+        recheckSentinel('trip-plans-sentinel');
 
     } catch (error) {
         console.error('Error loading trip plans:', error);
@@ -421,6 +694,32 @@ async function loadTripPlans(noteId) {
     }
 }
 
+async function loadMoreTripPlans() {
+    if (!tripPlansNextCursor || tripPlansLoadingMore || !currentDetailNoteId) return;
+    tripPlansLoadingMore = true;
+    const noteId = currentDetailNoteId;
+
+    try {
+        const { data: { session } } = await authClient.auth.getSession();
+        if (!session) return;
+
+        const page = await fetchPage(`/api/trip-plans?noteId=${noteId}`, tripPlansNextCursor, session);
+        // Ignore the page if the user switched to another note meanwhile
+        if (noteId !== currentDetailNoteId) return;
+
+        currentTripPlans = currentTripPlans.concat(page.items);
+        tripPlansNextCursor = page.nextCursor;
+        renderTripPlans();
+        tripPlansLoadingMore = false;
+        recheckSentinel('trip-plans-sentinel');
+
+    } catch (error) {
+        console.error('Error loading more trip plans:', error);
+    } finally {
+        tripPlansLoadingMore = false;
+    }
+}
+
 function renderTripPlans() {
     const plansListDiv = document.getElementById('trip-plans-list');
 
@@ -433,13 +732,19 @@ function renderTripPlans() {
     for (const plan of currentTripPlans) {
         const createdDate = new Date(plan.createdAt).toLocaleString();
         const rating = plan.rating || 0;
+        const content = expandedPlanContents[plan.id];
 
         html += `
             <div class="trip-plan-item">
                 <div class="plan-header">
                     <span class="plan-date">Generated: ${createdDate}</span>
+                    <button type="button" class="plan-toggle-btn" onclick="togglePlanContent(${plan.id})">
+                        ${content !== undefined ? 'Hide plan' : 'Show plan'}
+                    </button>
                 </div>
-                <div class="plan-content">${escapeHtml(plan.planContent)}</div>
+                ${content !== undefined
+                    ? `<div class="plan-content">${escapeHtml(content)}</div>`
+                    : `<div class="plan-preview">${escapeHtml(plan.preview || '')}${plan.preview && plan.preview.length < plan.contentLength ? '...' : ''}</div>`}
                 <div class="plan-rating">
                     <label>Rate this plan:</label>
                     <div class="star-rating" id="rating-${plan.id}">
@@ -454,6 +759,38 @@ function renderTripPlans() {
     plansListDiv.innerHTML = html;
 }
 
+// Expand a plan by loading its full content, or collapse it back to the preview
+async function togglePlanContent(planId) {
+    if (expandedPlanContents[planId] !== undefined) {
+        delete expandedPlanContents[planId];
+        renderTripPlans();
+        return;
+    }
+
+    try {
+        const { data: { session } } = await authClient.auth.getSession();
+        if (!session) return;
+
+        const response = await fetch(`/api/trip-plans/${planId}`, {
+            method: 'GET',
+            headers: {
+                'Authorization': `Bearer ${session.access_token}`,
+                'Content-Type': 'application/json'
+            }
+        });
+
+        if (!response.ok) throw new Error('Failed to load trip plan');
+
+        const plan = await response.json();
+        expandedPlanContents[planId] = plan.planContent;
+        renderTripPlans();
+
+    } catch (error) {
+        console.error('Error loading trip plan:', error);
+        alert('Failed to load trip plan: ' + error.message);
+    }
+}
+
 function renderStars(planId, currentRating) {
     let html = '';
     for (let i = 1; i <= 5; i++) {
@@ -508,6 +845,7 @@ async function rateTripPlan(planId, rating) {
         const plan = currentTripPlans.find(p => p.id === planId);
         if (plan) {
             plan.rating = rating;
+            loadPlanStats([{ id: plan.noteId }], session);
         }
         renderTripPlans();
 
@@ -517,8 +855,92 @@ async function rateTripPlan(planId, rating) {
     }
 }
 
+// Search - debounce typing, then show results instead of the note list
+function onSearchInput() {
+    clearTimeout(searchTimer);
+    searchTimer = setTimeout(() => runSearch(document.getElementById('notes-search').value.trim()), 300);
+}
+
+async function runSearch(query) {
+    searchQuery = query;
+    const searching = query.length > 0;
+    document.getElementById('notes-list').style.display = searching ? 'none' : 'block';
+    document.getElementById('notes-sentinel').style.display = searching ? 'none' : 'block';
+    document.getElementById('search-results').style.display = searching ? 'block' : 'none';
+
+    if (!searching) {
+        recheckSentinel('notes-sentinel');
+        return;
+    }
+
+    try {
+        const { data: { session } } = await authClient.auth.getSession();
+        if (!session) return;
+
+        const page = await fetchPage('/api/search?q=' + encodeURIComponent(query), null, session);
+        // Ignore responses to queries the user has already replaced
+        if (query !== searchQuery) return;
+        searchResults = page.items;
+        searchNextCursor = page.nextCursor;
+        renderSearchResults();
+
+    } catch (error) {
+        console.error('Error searching:', error);
+        document.getElementById('search-results').innerHTML = '<div class="error">Search failed: ' + escapeHtml(error.message) + '</div>';
+    }
+}
+
+async function loadMoreSearchResults() {
+    if (!searchNextCursor) return;
+    const query = searchQuery;
+
+    try {
+        const { data: { session } } = await authClient.auth.getSession();
+        if (!session) return;
+
+        const page = await fetchPage('/api/search?q=' + encodeURIComponent(query), searchNextCursor, session);
+        if (query !== searchQuery) return;
+        searchResults = searchResults.concat(page.items);
+        searchNextCursor = page.nextCursor;
+        renderSearchResults();
+
+    } catch (error) {
+        console.error('Error loading more search results:', error);
+    }
+}
+
+// Snippets come from the server already escaped, with matches wrapped in <mark>
+function renderSearchResults() {
+    const resultsDiv = document.getElementById('search-results');
+
+    if (searchResults.length === 0) {
+        resultsDiv.innerHTML = '<div class="empty-notes">No notes or plans match your search.</div>';
+        return;
+    }
+
+    let html = '';
+    for (const hit of searchResults) {
+        const kind = hit.type === 'trip_plan' ? 'Trip plan' : 'Note';
+        html += `
+            <div class="note-item" onclick="openNoteDetail(${hit.noteId})">
+                <h3>${escapeHtml(hit.title || '')} <span class="search-kind">${kind}</span></h3>
+                <div class="note-content">${hit.snippet || ''}</div>
+                <div class="note-meta">Created: ${new Date(hit.createdAt).toLocaleDateString()}</div>
+            </div>
+        `;
+    }
+    if (searchNextCursor) {
+        html += '<button class="search-more-btn" onclick="loadMoreSearchResults()">More results</button>';
+    }
+
+    resultsDiv.innerHTML = html;
+}
+
 // Initialize on page load
 document.addEventListener('DOMContentLoaded', () => {
+    observeSentinel('notes-sentinel', loadMoreNotes);
+    observeSentinel('trip-plans-sentinel', loadMoreTripPlans);
+
     checkAuth().then(() => {
         loadNotes();
     });
@@ -3,6 +3,8 @@
  */
 
 let accessToken = null;
+// ETag of the loaded preferences - saving fails with 412 if they changed since
+let preferencesETag = null;
 
 async function init() {
     const loadingDiv = document.getElementById('loading');
@@ -82,6 +84,7 @@ async function loadExistingPreferences() {
         if (!response.ok) throw new Error('Failed to load preferences');
 
         const prefs = await response.json();
+        preferencesETag = response.headers.get('ETag');
 
         // Set single-choice values
         if (prefs.budget) document.getElementById('budget').value = prefs.budget;
@@ -192,18 +195,24 @@ document.addEventListener('DOMContentLoaded', () => {
         };
 
         try {
+            const headers = {
+                'Authorization': `Bearer ${accessToken}`,
+                'Content-Type': 'application/json'
+            };
+            if (preferencesETag) {
+                headers['If-Match'] = preferencesETag;
+            }
+
             const response = await fetch('/api/preferences', {
                 method: 'POST',
-                headers: {
-                    'Authorization': `Bearer ${accessToken}`,
-                    'Content-Type': 'application/json'
-                },
+                headers: headers,
                 body: JSON.stringify(preferences)
             });
 
             const result = await response.json();
 
             if (response.ok && result.success) {
+                preferencesETag = response.headers.get('ETag');
                 showSuccess('Preferences saved successfully! Redirecting...');
                 setTimeout(() => {
                     window.location.href = '/app';
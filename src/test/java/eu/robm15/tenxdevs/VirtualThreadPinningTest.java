@@ -0,0 +1,220 @@
+package eu.robm15.tenxdevs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.robm15.tenxdevs.util.JwtTestUtil;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Pinning audit for spring.threads.virtual.enabled: runs the hot request paths concurrently on
+ * virtual threads and fails if JFR reports a virtual thread pinned to its carrier
+ * (jdk.VirtualThreadPinned - blocking inside synchronized or a native frame).
+ *
+ * Pinning inside the embedded H2 engine is ignored; production runs on PostgreSQL. Only events whose
+ * first application frame (the code that blocked, below the JDK's locking and parking frames) is in
+ * H2 count as such - a pin in our code or a library that merely calls into H2 further up still fails.
+ * Plan generation runs without an AI model: TripPlanService returns its mock plan after
+ * ai.mock.latency-ms, so the wait of a real AI call is part of the audit.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "spring.threads.virtual.enabled=true",
+    // No OpenAI chat model bean - generation falls back to the mock plan
+    "spring.ai.model.chat=none",
+    "ai.mock.latency-ms=50",
+    "ai.usage.limit.daily=100000000",
+    "ai.usage.tiers.default.per-minute=0",
+    "ai.usage.tiers.default.per-hour=0"
+})
+public class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int USERS = 8;
+
+    private static final int ROUNDS = 5;
+
+    /**
+     * Packages of the JDK's own frames (virtual thread parking, locks) on top of a pinned stack
+     */
+    private static final List<String> JDK_PACKAGES = List.of("java.", "javax.", "jdk.", "sun.");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectProvider<OpenAiChatModel> openAiChatModel;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${supabase.jwt-secret}")
+    private String jwtSecret;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void hotPathsDoNotPinVirtualThreads() throws Exception {
+        assertNull(openAiChatModel.getIfAvailable(), "Plan generation must use the mock, not the AI API");
+        List<RecordedEvent> pinned = new ArrayList<>();
+
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(20)).withStackTrace();
+            recording.start();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> runs = new ArrayList<>();
+                for (int i = 0; i < USERS; i++) {
+                    String userId = "vt-user-" + i;
+                    runs.add(executor.submit(() -> {
+                        exerciseHotPaths(userId);
+                        return null;
+                    }));
+                }
+                for (Future<?> run : runs) {
+                    run.get();
+                }
+            }
+
+            recording.stop();
+            Path dump = tempDir.resolve("pinning.jfr");
+            recording.dump(dump);
+
+            for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+                if (PINNED_EVENT.equals(event.getEventType().getName()) && !isInsideH2(event)) {
+                    pinned.add(event);
+                }
+            }
+        }
+
+        assertTrue(pinned.isEmpty(), () -> "Virtual threads were pinned:\n" + pinned.stream()
+            .map(event -> event.getDuration() + " at\n" + stackTrace(event))
+            .collect(Collectors.joining("\n")));
+    }
+
+    private void exerciseHotPaths(String userId) throws Exception {
+        String token = "Bearer " + JwtTestUtil.generateTestToken(jwtSecret, userId, userId + "@example.com");
+
+        mockMvc.perform(post("/api/preferences")
+                .header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"budget\":\"MODERATE\",\"pace\":\"RELAXED\",\"season\":\"SUMMER\"}"))
+            .andExpect(status().isOk());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String created = mockMvc.perform(post("/api/notes")
+                    .header("Authorization", token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"title\":\"Lisbon " + round + "\",\"content\":\"Alfama, trams and pasteis de nata\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+            JsonNode note = objectMapper.readTree(created).get("note");
+            long noteId = note.get("id").asLong();
+
+            mockMvc.perform(get("/api/notes").header("Authorization", token))
+                .andExpect(status().isOk());
+            mockMvc.perform(get("/api/notes/" + noteId).header("Authorization", token))
+                .andExpect(status().isOk());
+            mockMvc.perform(put("/api/notes/" + noteId)
+                    .header("Authorization", token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"title\":\"Lisbon " + round + "\",\"content\":\"Alfama, Belem and Sintra\"}"))
+                .andExpect(status().isOk());
+            mockMvc.perform(get("/api/notes/changes").header("Authorization", token))
+                .andExpect(status().isOk());
+            mockMvc.perform(get("/api/preferences").header("Authorization", token))
+                .andExpect(status().isOk());
+            mockMvc.perform(get("/api/search").param("q", "Alfama").header("Authorization", token))
+                .andExpect(status().isOk());
+
+            String generated = mockMvc.perform(post("/api/trip-plans/generate")
+                    .header("Authorization", token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"noteId\":" + noteId + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+            long planId = objectMapper.readTree(generated).get("trip_plan").get("id").asLong();
+
+            mockMvc.perform(put("/api/trip-plans/" + planId + "/rate")
+                    .header("Authorization", token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"rating\":" + (round % 5 + 1) + "}"))
+                .andExpect(status().isOk());
+            mockMvc.perform(get("/api/trip-plans").param("noteId", String.valueOf(noteId))
+                    .header("Authorization", token))
+                .andExpect(status().isOk());
+        }
+    }
+
+    private static boolean isInsideH2(RecordedEvent event) {
+        return firstApplicationFrame(event)
+            .map(frame -> frame.getMethod().getType().getName().startsWith("org.h2."))
+            .orElse(false);
+    }
+
+    /**
+     * Topmost Java frame outside the JDK - where the pinned thread blocked (or entered the monitor)
+     */
+    private static Optional<RecordedFrame> firstApplicationFrame(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return Optional.empty();
+        }
+        return stackTrace.getFrames().stream()
+            .filter(RecordedFrame::isJavaFrame)
+            .filter(frame -> JDK_PACKAGES.stream().noneMatch(frame.getMethod().getType().getName()::startsWith))
+            .findFirst();
+    }
+
+    private static String stackTrace(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return "  (no stack trace)";
+        }
+        return stackTrace.getFrames().stream()
+            .map(VirtualThreadPinningTest::frame)
+            .collect(Collectors.joining("\n"));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return "  " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+            + ":" + frame.getLineNumber();
+    }
+}
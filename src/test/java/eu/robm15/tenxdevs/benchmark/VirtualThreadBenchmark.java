@@ -0,0 +1,181 @@
+package eu.robm15.tenxdevs.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.robm15.tenxdevs.TenxdevsApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load-test comparison of platform and virtual request threads on the localh2 profile.
+ *
+ * Starts the application twice in this JVM (spring.threads.virtual.enabled false, then true), each with its
+ * own in-memory H2 database and the mock AI model sleeping ai.mock.latency-ms per plan, and fires
+ * concurrent POST /api/trip-plans/generate requests at it. Reports throughput, latency percentiles,
+ * peak platform threads and peak heap per mode.
+ *
+ * Run with {@code ./gradlew benchmarkVirtualThreads}; arguments: requests, AI latency in ms.
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int WARMUP_REQUESTS = 50;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long aiLatencyMs = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+
+        List<Result> results = new ArrayList<>();
+        for (boolean virtual : new boolean[] {false, true}) {
+            results.add(run(virtual, requests, aiLatencyMs));
+        }
+
+        System.out.println();
+        System.out.printf("%d concurrent plan generations, mock AI latency %d ms%n", requests, aiLatencyMs);
+        System.out.printf("%-9s %10s %9s %9s %9s %8s %9s %8s%n",
+            "threads", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "peak thr", "heap MB");
+        for (Result result : results) {
+            System.out.printf("%-9s %10.1f %9d %9d %9d %8d %9d %8d%n",
+                result.mode(), result.throughput(), result.p50Ms(), result.p99Ms(), result.maxMs(),
+                result.errors(), result.peakThreads(), result.peakHeapBytes() / (1024 * 1024));
+        }
+    }
+
+    private static Result run(boolean virtual, int requests, long aiLatencyMs) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TenxdevsApplication.class)
+            .profiles("localh2")
+            .run(
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + mode + ";DB_CLOSE_DELAY=-1",
+                // No AI model - TripPlanService falls back to the mock plan after ai.mock.latency-ms
+                "--spring.ai.model.chat=none",
+                "--spring.ai.model.embedding=none",
+                "--spring.ai.model.image=none",
+                "--spring.ai.model.audio.speech=none",
+                "--spring.ai.model.audio.transcription=none",
+                "--spring.ai.model.moderation=none",
+                "--spring.ai.openai.api-key=unused",
+                "--spring.ai.openai.chat.options.model=unused",
+                "--spring.ai.openai.chat.options.temperature=0.7",
+                "--ai.mock.latency-ms=" + aiLatencyMs,
+                // Every request is the same (mock) user - take the usage limits out of the picture
+                "--ai.usage.limit.daily=100000000",
+                "--ai.usage.tiers.default.per-minute=0",
+                "--ai.usage.tiers.default.per-hour=0",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN"
+            );
+
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+            send(client, baseUrl + "/api/preferences", "{\"budget\":\"MODERATE\",\"pace\":\"RELAXED\",\"season\":\"SUMMER\"}")
+                .join();
+            String note = send(client, baseUrl + "/api/notes",
+                "{\"title\":\"Lisbon\",\"content\":\"Alfama, trams and pasteis de nata\"}").join().body();
+            long noteId = objectMapper.readTree(note).get("note").get("id").asLong();
+            String generate = "{\"noteId\":" + noteId + "}";
+
+            fire(client, baseUrl, generate, WARMUP_REQUESTS);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            threads.resetPeakThreadCount();
+            AtomicLong peakHeap = new AtomicLong();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(
+                () -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 50, TimeUnit.MILLISECONDS);
+
+            long started = System.nanoTime();
+            long[] latencies;
+            int errors;
+            try {
+                Load load = fire(client, baseUrl, generate, requests);
+                latencies = load.latenciesMs();
+                errors = load.errors();
+            } finally {
+                sampler.shutdownNow();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            Arrays.sort(latencies);
+            return new Result(mode, requests / seconds, percentile(latencies, 50), percentile(latencies, 99),
+                latencies[latencies.length - 1], errors, threads.getPeakThreadCount(), peakHeap.get());
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Send all requests at once and wait for every response
+     */
+    private static Load fire(HttpClient client, String baseUrl, String body, int requests) {
+        long[] latencies = new long[requests];
+        List<CompletableFuture<Boolean>> responses = new ArrayList<>(requests);
+
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            long sent = System.nanoTime();
+            responses.add(send(client, baseUrl + "/api/trip-plans/generate", body)
+                .handle((response, error) -> {
+                    latencies[index] = (System.nanoTime() - sent) / 1_000_000;
+                    return error == null && response.statusCode() == 201;
+                }));
+        }
+
+        int errors = 0;
+        for (CompletableFuture<Boolean> response : responses) {
+            if (!response.join()) {
+                errors++;
+            }
+        }
+        return new Load(latencies, errors);
+    }
+
+    private static CompletableFuture<HttpResponse<String>> send(HttpClient client, String url, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofMinutes(5))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private record Load(long[] latenciesMs, int errors) {
+    }
+
+    private record Result(String mode, double throughput, long p50Ms, long p99Ms, long maxMs, int errors,
+                          int peakThreads, long peakHeapBytes) {
+    }
+}
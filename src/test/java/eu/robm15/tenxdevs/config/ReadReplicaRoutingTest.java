@@ -0,0 +1,124 @@
+package eu.robm15.tenxdevs.config;
+
+import eu.robm15.tenxdevs.model.Budget;
+import eu.robm15.tenxdevs.model.TravelPreferences;
+import eu.robm15.tenxdevs.service.TravelPreferencesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routing between two in-memory H2 databases standing in for the primary and the replica.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "spring.datasource.url=jdbc:h2:mem:primarydb;DB_CLOSE_DELAY=-1",
+    "app.datasource.replica.enabled=true",
+    "app.datasource.replica.url=jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1",
+    "app.datasource.replica.username=sa",
+    "app.datasource.replica.sticky-window=1m"
+})
+public class ReadReplicaRoutingTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TravelPreferencesService preferencesService;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsRunOnReplica() {
+        assertEquals("REPLICADB", databaseIn(true));
+        assertEquals("PRIMARYDB", databaseIn(false));
+    }
+
+    @Test
+    void readsStayOnPrimaryAfterUsersOwnWrite() {
+        authenticate("writer");
+        assertEquals("REPLICADB", databaseIn(true));
+
+        databaseIn(false);
+        assertEquals("PRIMARYDB", databaseIn(true));
+
+        // Other users keep reading from the replica
+        authenticate("reader");
+        assertEquals("REPLICADB", databaseIn(true));
+    }
+
+    @Test
+    void cacheFillAfterWriteOnAnotherNodeReadsPrimary(@TempDir Path tempDir) throws Exception {
+        String userId = "replica-cache-user";
+        TravelPreferences preferences = new TravelPreferences();
+        preferences.setBudget(Budget.BUDGET);
+        preferencesService.savePreferences(userId, preferences, null);
+
+        // The replica gets a copy of the primary as it is now, then lags behind
+        String snapshot = tempDir.resolve("primary.sql").toString().replace("'", "''");
+        jdbcTemplate.execute("SCRIPT TO '" + snapshot + "'");
+        try (Connection replica = DriverManager.getConnection("jdbc:h2:mem:replicadb", "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("RUNSCRIPT FROM '" + snapshot + "'");
+        }
+
+        // Written by another node - this node's cache isn't invalidated, and the entry isn't loaded yet
+        jdbcTemplate.update("UPDATE travel_preferences SET budget = ?, version = version + 1 WHERE userId = ?",
+            Budget.LUXURY.name(), userId);
+        assertEquals(Budget.BUDGET.name(), replicaBudget(userId));
+
+        assertEquals(Budget.LUXURY, preferencesService.getPreferencesSnapshot(userId).orElseThrow().budget());
+    }
+
+    private static String replicaBudget(String userId) throws Exception {
+        try (Connection replica = DriverManager.getConnection("jdbc:h2:mem:replicadb", "sa", "");
+             Statement statement = replica.createStatement();
+             ResultSet row = statement.executeQuery(
+                 "SELECT budget FROM travel_preferences WHERE userId = '" + userId + "'")) {
+            row.next();
+            return row.getString(1);
+        }
+    }
+
+    private String databaseIn(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        String database = transaction.execute(status -> jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+        return database.toUpperCase(Locale.ROOT);
+    }
+
+    private static void authenticate(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(userId, null, List.of()));
+    }
+}
@@ -0,0 +1,87 @@
+package eu.robm15.tenxdevs.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7"
+})
+public class StaticResourceConfigTest {
+
+    private static final Pattern VERSIONED_CSS = Pattern.compile("/css/common-([0-9a-f]{32})\\.css");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void pagesLinkVersionedAssetsThatAreCachedAsImmutable() throws Exception {
+        String page = mockMvc.perform(get("/"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        Matcher matcher = VERSIONED_CSS.matcher(page);
+        assertTrue(matcher.find(), "Landing page should link the versioned common.css");
+
+        mockMvc.perform(get(matcher.group()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=31536000")))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+
+    @Test
+    void unversionedAssetIsRevalidatedAgainstItsETag() throws Exception {
+        String eTag = mockMvc.perform(get("/css/common.css"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("immutable"))))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("max-age"))))
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/css/common.css").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void unversionedETagIsTheHashOfTheVersionedUrl() throws Exception {
+        String page = mockMvc.perform(get("/"))
+            .andReturn().getResponse().getContentAsString();
+        Matcher matcher = VERSIONED_CSS.matcher(page);
+        assertTrue(matcher.find(), "Landing page should link the versioned common.css");
+
+        // The second request is answered from the cached hash
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/css/common.css"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, containsString(matcher.group(1))));
+        }
+    }
+
+    @Test
+    void precompressedAssetIsServedWhenAccepted() throws Exception {
+        mockMvc.perform(get("/css/common.css").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)));
+    }
+}
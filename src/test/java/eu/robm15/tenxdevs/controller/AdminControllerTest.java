@@ -0,0 +1,52 @@
+package eu.robm15.tenxdevs.controller;
+
+import eu.robm15.tenxdevs.util.JwtTestUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7"
+})
+public class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Value("${supabase.jwt-secret}")
+    private String jwtSecret;
+
+    @Test
+    void authenticatedUserIsNotAnAdmin() throws Exception {
+        // Every Supabase user token carries role "authenticated" (the Postgres role)
+        String token = JwtTestUtil.generateTestToken(jwtSecret, "plain-user", "plain@example.com");
+
+        mockMvc.perform(get("/api/admin/rating-aggregates")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void adminRoleComesFromAppMetadata() throws Exception {
+        String token = JwtTestUtil.generateTestTokenWithRoles(jwtSecret, "admin-user", "admin@example.com", "admin");
+
+        mockMvc.perform(get("/api/admin/rating-aggregates")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.success").value(true))
+            .andExpect(jsonPath("$.dimension").value("model"));
+    }
+}
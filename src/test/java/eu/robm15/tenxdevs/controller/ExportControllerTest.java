@@ -0,0 +1,192 @@
+package eu.robm15.tenxdevs.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import eu.robm15.tenxdevs.service.TripPlanRetentionService;
+import eu.robm15.tenxdevs.util.JwtTestUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7"
+})
+public class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+
+    @Autowired
+    private TripPlanRetentionService retentionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${supabase.jwt-secret}")
+    private String jwtSecret;
+
+    private String testUserId = "export-user-123";
+    private String testToken;
+
+    @BeforeEach
+    void setUp() {
+        testToken = JwtTestUtil.generateTestToken(jwtSecret, testUserId, "exporter@example.com");
+
+        jdbcTemplate.update("DELETE FROM trip_plans WHERE userId = ?", testUserId);
+        jdbcTemplate.update("DELETE FROM trip_plans_archive WHERE userId = ?", testUserId);
+        jdbcTemplate.update("DELETE FROM scheduled_job_locks");
+        jdbcTemplate.update("DELETE FROM notes WHERE userId = ?", testUserId);
+    }
+
+    @Test
+    void fullExportStreamsNotesThenPlans() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        TripPlan plan = tripPlanRepository.save(new TripPlan(testUserId, note.getId(), "Day 1: Alfama"));
+        noteRepository.save(new Note("other-user-456", "Not mine", "Not exported"));
+
+        MvcResult result = mockMvc.perform(exportRequest())
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+            .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> lines = parseLines(body);
+        assertEquals(2, lines.size(), body);
+        assertEquals("note", lines.get(0).path("type").asText());
+        assertEquals(note.getId().longValue(), lines.get(0).path("data").path("id").asLong());
+        assertEquals("trip_plan", lines.get(1).path("type").asText());
+        assertEquals(plan.getId().longValue(), lines.get(1).path("data").path("id").asLong());
+        assertEquals("Day 1: Alfama", lines.get(1).path("data").path("planContent").asText());
+        // Timestamps carry their offset, so they read the same whatever zone the server runs in
+        assertTrue(lines.get(1).path("data").path("createdAt").asText().endsWith("Z"), body);
+    }
+
+    @Test
+    void fullExportIncludesArchivedPlans() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        TripPlan archived = tripPlanRepository.save(new TripPlan(testUserId, note.getId(), "Day 1: Belem"));
+        TripPlan live = tripPlanRepository.save(new TripPlan(testUserId, note.getId(), "Day 1: Alfama"));
+        jdbcTemplate.update("UPDATE trip_plans SET createdAt = ? WHERE id = ?",
+            LocalDateTime.now().minusYears(1), archived.getId());
+
+        assertTrue(retentionService.archiveOldPlans() >= 1);
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM trip_plans WHERE id = ?", Integer.class, archived.getId()));
+
+        MvcResult result = mockMvc.perform(exportRequest())
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> lines = parseLines(body);
+        assertEquals(3, lines.size(), body);
+        assertEquals("trip_plan", lines.get(1).path("type").asText());
+        assertEquals(archived.getId().longValue(), lines.get(1).path("data").path("id").asLong());
+        assertEquals("Day 1: Belem", lines.get(1).path("data").path("planContent").asText());
+        assertEquals(live.getId().longValue(), lines.get(2).path("data").path("id").asLong());
+    }
+
+    @Test
+    void incrementalExportOnlyContainsChangesSinceIfModifiedSince() throws Exception {
+        Note oldNote = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        tripPlanRepository.save(new TripPlan(testUserId, oldNote.getId(), "Day 1: Alfama"));
+        LocalDateTime threeDaysAgo = LocalDateTime.now().minusDays(3);
+        jdbcTemplate.update("UPDATE notes SET updatedAt = ? WHERE id = ?", threeDaysAgo, oldNote.getId());
+        jdbcTemplate.update("UPDATE trip_plans SET createdAt = ? WHERE noteId = ?", threeDaysAgo, oldNote.getId());
+
+        Note newNote = noteRepository.save(new Note(testUserId, "Porto", "Wine cellars"));
+
+        MvcResult result = mockMvc.perform(exportRequest()
+                .header(HttpHeaders.IF_MODIFIED_SINCE, Instant.now().minus(1, ChronoUnit.DAYS).toEpochMilli()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> lines = parseLines(body);
+        assertEquals(1, lines.size(), body);
+        assertEquals("note", lines.get(0).path("type").asText());
+        assertEquals(newNote.getId().longValue(), lines.get(0).path("data").path("id").asLong());
+    }
+
+    @Test
+    void exportWithoutChangesSinceLastExportIsNotModified() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        jdbcTemplate.update("UPDATE notes SET updatedAt = ? WHERE id = ?", LocalDateTime.now().minusDays(1), note.getId());
+
+        MvcResult first = mockMvc.perform(exportRequest())
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String lastModified = mockMvc.perform(asyncDispatch(first))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        assertNotNull(lastModified);
+
+        mockMvc.perform(exportRequest().header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+            .andExpect(status().isNotModified())
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+            .andExpect(content().string(""));
+    }
+
+    private MockHttpServletRequestBuilder exportRequest() {
+        return get("/api/export").header("Authorization", "Bearer " + testToken);
+    }
+
+    private List<JsonNode> parseLines(String body) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+}
@@ -3,6 +3,7 @@ package eu.robm15.tenxdevs.controller;
 import eu.robm15.tenxdevs.model.Note;
 import eu.robm15.tenxdevs.repository.NoteRepository;
 import eu.robm15.tenxdevs.util.JwtTestUtil;
+import eu.robm15.tenxdevs.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +14,8 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -101,6 +104,56 @@ public class NoteControllerTest {
             .andExpect(jsonPath("$[0].title", is("My Trip")));
     }
 
+    @Test
+    void getAllNotesIsPaginatedWithCursor() throws Exception {
+        noteRepository.save(new Note(testUserId, "First", "Content 1"));
+        noteRepository.save(new Note(testUserId, "Second", "Content 2"));
+        noteRepository.save(new Note(testUserId, "Third", "Content 3"));
+
+        // First page - two newest notes and a cursor for the rest
+        String nextCursor = mockMvc.perform(get("/api/notes")
+                .param("size", "2")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].title", is("Third")))
+            .andExpect(jsonPath("$[1].title", is("Second")))
+            .andExpect(header().exists("X-Next-Cursor"))
+            .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        // Last page - no further cursor
+        mockMvc.perform(get("/api/notes")
+                .param("size", "2")
+                .param("cursor", nextCursor)
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].title", is("First")))
+            .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void getAllNotesReturnsSummariesWithSnippet() throws Exception {
+        String longContent = "a".repeat(150) + "tail that is not part of the snippet";
+        noteRepository.save(new Note(testUserId, "Long note", longContent));
+
+        mockMvc.perform(get("/api/notes")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].title", is("Long note")))
+            .andExpect(jsonPath("$[0].snippet", is("a".repeat(150))))
+            .andExpect(jsonPath("$[0].truncated", is(true)))
+            .andExpect(jsonPath("$[0].content").doesNotExist());
+    }
+
+    @Test
+    void getAllNotesWithInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/notes")
+                .param("cursor", "not-a-cursor")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     void createNoteRequiresAuthentication() throws Exception {
         String noteJson = "{\"title\":\"Test Note\",\"content\":\"Test Content\"}";
@@ -167,6 +220,41 @@ public class NoteControllerTest {
             .andExpect(jsonPath("$.message", containsString("Title is required")));
     }
 
+    @Test
+    void importNotesFromNdjsonReportsInvalidRows() throws Exception {
+        String ndjson = "{\"title\":\"Lisbon\",\"content\":\"Tram 28 and pasteis\"}\n"
+            + "{\"title\":\"\",\"content\":\"No title\"}\n"
+            + "{\"title\":\"Porto\",\"content\":\"Ribeira and port cellars\"}\n";
+
+        mockMvc.perform(post("/api/notes/import")
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported", is(2)))
+            .andExpect(jsonPath("$.failed", is(1)))
+            .andExpect(jsonPath("$.errors[0].row", is(2)))
+            .andExpect(jsonPath("$.errors[0].message", containsString("Title is required")));
+
+        mockMvc.perform(get("/api/notes")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void importNotesFromJsonArray() throws Exception {
+        String json = "[{\"title\":\"Oslo\",\"content\":\"Fjords\"},{\"title\":\"Bergen\",\"content\":\"Bryggen\"}]";
+
+        mockMvc.perform(post("/api/notes/import")
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.success", is(true)))
+            .andExpect(jsonPath("$.imported", is(2)));
+    }
+
     @Test
     void getNoteByIdRequiresAuthentication() throws Exception {
         Note note = new Note(testUserId, "Test Note", "Test Content");
@@ -272,6 +360,38 @@ public class NoteControllerTest {
             .andExpect(jsonPath("$.message", containsString("not found")));
     }
 
+    @Test
+    void updateNoteWithIfMatchDetectsConcurrentEdit() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Original Title", "Original Content"));
+
+        String etag = mockMvc.perform(get("/api/notes/" + note.getId())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        // First tab saves - the note gets a new version
+        mockMvc.perform(put("/api/notes/" + note.getId())
+                .header("Authorization", "Bearer " + testToken)
+                .header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"First tab\",\"content\":\"Saved first\"}"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)));
+
+        // Second tab still holds the old version - rejected instead of overwriting
+        mockMvc.perform(put("/api/notes/" + note.getId())
+                .header("Authorization", "Bearer " + testToken)
+                .header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Second tab\",\"content\":\"Saved second\"}"))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(jsonPath("$.success", is(false)));
+
+        Note stored = noteRepository.findById(note.getId()).orElseThrow();
+        assert stored.getTitle().equals("First tab");
+    }
+
     @Test
     void deleteNoteRequiresAuthentication() throws Exception {
         Note note = new Note(testUserId, "Test Note", "Test Content");
@@ -325,4 +445,89 @@ public class NoteControllerTest {
         Note stillExists = noteRepository.findById(otherUserNote.getId()).orElse(null);
         assert stillExists != null;
     }
+
+    @Test
+    void getAllNotesAnswersNotModifiedUntilNotesChange() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Trip to Paris", "Visit Eiffel Tower and Louvre"));
+
+        String eTag = mockMvc.perform(get("/api/notes")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", containsString("no-cache")))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header("If-None-Match", eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().exists("X-Sync-Cursor"))
+            .andExpect(content().string(""));
+
+        // Editing a note changes the list's ETag
+        mockMvc.perform(put("/api/notes/" + note.getId())
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Trip to Lyon\",\"content\":\"Old town\"}"))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header("If-None-Match", eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].title", is("Trip to Lyon")));
+    }
+
+    @Test
+    void getNoteByIdAnswersNotModifiedForCurrentVersion() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Trip to Paris", "Visit Eiffel Tower and Louvre"));
+
+        mockMvc.perform(get("/api/notes/" + note.getId())
+                .header("Authorization", "Bearer " + testToken)
+                .header("If-None-Match", "\"" + note.getVersion() + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"" + note.getVersion() + "\""));
+    }
+
+    @Test
+    void getChangesReturnsNotesChangedAndDeletedSinceSyncCursor() throws Exception {
+        Note kept = noteRepository.save(new Note(testUserId, "Trip to Paris", "Visit Eiffel Tower and Louvre"));
+        Note removed = noteRepository.save(new Note(testUserId, "Weekend in Rome", "Colosseum, Vatican"));
+
+        String syncCursor = mockMvc.perform(get("/api/notes")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("X-Sync-Cursor"))
+            .andReturn().getResponse().getHeader("X-Sync-Cursor");
+
+        mockMvc.perform(put("/api/notes/" + kept.getId())
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Trip to Lyon\",\"content\":\"Old town\"}"))
+            .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/notes/" + removed.getId())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/notes/changes")
+                .param("since", syncCursor)
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.notes[*].id", hasItem(kept.getId().intValue())))
+            .andExpect(jsonPath("$.notes[*].id", not(hasItem(removed.getId().intValue()))))
+            .andExpect(jsonPath("$.notes[?(@.id == " + kept.getId() + ")].title", contains("Trip to Lyon")))
+            .andExpect(jsonPath("$.deleted[*].id", hasItem(removed.getId().intValue())))
+            .andExpect(jsonPath("$.has_more", is(false)))
+            .andExpect(jsonPath("$.next_cursor", notNullValue()));
+
+        // Cursors older than the deletion log must reload the full list
+        mockMvc.perform(get("/api/notes/changes")
+                .param("since", new KeysetCursor(LocalDateTime.of(2000, 1, 1, 0, 0), 0L).encode())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isGone());
+
+        mockMvc.perform(get("/api/notes/changes")
+                .param("since", "not-a-cursor")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,106 @@
+package eu.robm15.tenxdevs.controller;
+
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import eu.robm15.tenxdevs.util.JwtTestUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7"
+})
+public class SearchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+
+    @Value("${supabase.jwt-secret}")
+    private String jwtSecret;
+
+    private String testUserId = "test-user-123";
+    private String testToken;
+
+    @BeforeEach
+    void setUp() {
+        testToken = JwtTestUtil.generateTestToken(jwtSecret, testUserId, "testuser@example.com");
+
+        tripPlanRepository.deleteAll();
+        noteRepository.deleteAll();
+    }
+
+    @Test
+    void searchRanksTitleMatchesFirstAndHighlights() throws Exception {
+        noteRepository.save(new Note(testUserId, "Porto weekend", "Day trip to Lisbon maybe"));
+        noteRepository.save(new Note(testUserId, "Lisbon ideas", "Tram 28 and pastel de nata"));
+        noteRepository.save(new Note(testUserId, "Berlin", "Museums"));
+        noteRepository.save(new Note("other-user-456", "Lisbon", "Not mine"));
+
+        mockMvc.perform(get("/api/search")
+                .param("q", "lisbon")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].title", is("Lisbon ideas")))
+            .andExpect(jsonPath("$[1].title", is("Porto weekend")))
+            .andExpect(jsonPath("$[1].snippet", containsString("<mark>Lisbon</mark>")));
+
+        // Pages are linked through the same cursor header as the lists
+        mockMvc.perform(get("/api/search")
+                .param("q", "lisbon")
+                .param("size", "1")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(header().exists("X-Next-Cursor"));
+    }
+
+    @Test
+    void searchFindsTripPlans() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Portugal", "Summer holiday"));
+        tripPlanRepository.save(new TripPlan(testUserId, note.getId(), "Day 1: walk through Alfama & <b>Baixa</b>"));
+
+        mockMvc.perform(get("/api/search")
+                .param("q", "alfama")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].type", is("trip_plan")))
+            .andExpect(jsonPath("$[0].noteId", is(note.getId().intValue())))
+            .andExpect(jsonPath("$[0].title", is("Portugal")))
+            // Plan text is escaped, only the highlight is markup
+            .andExpect(jsonPath("$[0].snippet", containsString("&lt;b&gt;Baixa")))
+            .andExpect(jsonPath("$[0].snippet", containsString("<mark>Alfama</mark>")));
+    }
+
+    @Test
+    void searchWithBlankQuery() throws Exception {
+        mockMvc.perform(get("/api/search")
+                .param("q", "   ")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isBadRequest());
+    }
+}
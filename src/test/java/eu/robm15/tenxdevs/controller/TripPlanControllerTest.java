@@ -0,0 +1,332 @@
+package eu.robm15.tenxdevs.controller;
+
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.RatingAggregate;
+import eu.robm15.tenxdevs.model.RatingDimension;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.repository.RatingAggregateRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import eu.robm15.tenxdevs.util.CapturingStatementInspector;
+import eu.robm15.tenxdevs.util.JwtTestUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "eu.robm15.tenxdevs.util.CapturingStatementInspector"
+})
+public class TripPlanControllerTest {
+
+    /**
+     * Plan content read by SQL functions that only return its length or a prefix
+     */
+    private static final Pattern CONTENT_FUNCTION =
+        Pattern.compile("(length|char_length|character_length|substring|substr)\\(\\s*\\w+\\.planContent",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String LONG_PLAN = "Day 1: Old town\n" + "Walk along the river. ".repeat(500);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private RatingAggregateRepository ratingAggregateRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${supabase.jwt-secret}")
+    private String jwtSecret;
+
+    private String testUserId = "test-user-123";
+    private String testToken;
+    private Long testNoteId;
+
+    @BeforeEach
+    void setUp() {
+        testToken = JwtTestUtil.generateTestToken(jwtSecret, testUserId, "testuser@example.com");
+
+        tripPlanRepository.deleteAll();
+        // Plans of missing or deleted notes are hidden, so every plan needs a live note
+        testNoteId = noteRepository.save(new Note(testUserId, "Paris", "Eiffel Tower")).getId();
+    }
+
+    @Test
+    void ratePlanUpdatesRating() throws Exception {
+        TripPlan plan = tripPlanRepository.save(new TripPlan(testUserId, testNoteId, "Day 1: Old town"));
+
+        mockMvc.perform(put("/api/trip-plans/" + plan.getId() + "/rate")
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"rating\":4}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.success", is(true)))
+            .andExpect(jsonPath("$.rating", is(4)));
+
+        assertEquals(4, tripPlanRepository.findById(plan.getId()).orElseThrow().getRating());
+    }
+
+    @Test
+    void ratePlanOfOtherUserIsForbidden() throws Exception {
+        TripPlan plan = tripPlanRepository.save(new TripPlan("other-user-456", testNoteId, "Day 1: Old town"));
+
+        mockMvc.perform(put("/api/trip-plans/" + plan.getId() + "/rate")
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"rating\":1}"))
+            .andExpect(status().isForbidden())
+            .andExpect(jsonPath("$.success", is(false)));
+
+        assertNull(tripPlanRepository.findById(plan.getId()).orElseThrow().getRating());
+    }
+
+    @Test
+    void deletePlanNotFoundOrNotOwned() throws Exception {
+        TripPlan plan = tripPlanRepository.save(new TripPlan("other-user-456", testNoteId, "Day 1: Old town"));
+
+        mockMvc.perform(delete("/api/trip-plans/999999")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/api/trip-plans/" + plan.getId())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isForbidden());
+
+        assertTrue(tripPlanRepository.existsById(plan.getId()));
+    }
+
+    @Test
+    void reratingPlanReplacesItsRatingInAggregates() throws Exception {
+        String model = "test-model-" + System.nanoTime();
+        TripPlan plan = new TripPlan(testUserId, testNoteId, "Day 1: Old town");
+        plan.setModel(model);
+        plan = tripPlanRepository.save(plan);
+
+        for (int rating : new int[] {4, 2}) {
+            mockMvc.perform(put("/api/trip-plans/" + plan.getId() + "/rate")
+                    .header("Authorization", "Bearer " + testToken)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"rating\":" + rating + "}"))
+                .andExpect(status().isOk());
+        }
+
+        RatingAggregate aggregate = ratingAggregateRepository
+            .findById(new RatingAggregate.Key(RatingDimension.MODEL, model)).orElseThrow();
+        assertEquals(1, aggregate.getRatingCount());
+        assertEquals(2, aggregate.getRatingSum());
+        assertArrayEquals(new long[] {0, 1, 0, 0, 0}, aggregate.getHistogram());
+
+        // Aggregates are for operators only
+        mockMvc.perform(get("/api/admin/rating-aggregates")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void deletingRatedPlanTakesItsRatingOutOfAggregates() throws Exception {
+        String model = "test-model-" + System.nanoTime();
+        TripPlan kept = planRatedThroughApi(model, 5);
+        TripPlan deleted = planRatedThroughApi(model, 2);
+
+        mockMvc.perform(delete("/api/trip-plans/" + deleted.getId())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk());
+
+        RatingAggregate aggregate = ratingAggregateRepository
+            .findById(new RatingAggregate.Key(RatingDimension.MODEL, model)).orElseThrow();
+        assertEquals(1, aggregate.getRatingCount());
+        assertEquals(5, aggregate.getRatingSum());
+        assertArrayEquals(new long[] {0, 0, 0, 0, 1}, aggregate.getHistogram());
+        assertTrue(tripPlanRepository.existsById(kept.getId()));
+    }
+
+    @Test
+    void planListETagNeverRepeatsAcrossWrites() throws Exception {
+        TripPlan plan = tripPlanRepository.save(new TripPlan(testUserId, testNoteId, "Day 1: Old town"));
+        List<String> eTags = new ArrayList<>();
+        eTags.add(plansETag());
+
+        for (int rating : new int[] {4, 2, 4}) {
+            mockMvc.perform(put("/api/trip-plans/" + plan.getId() + "/rate")
+                    .header("Authorization", "Bearer " + testToken)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"rating\":" + rating + "}"))
+                .andExpect(status().isOk());
+            eTags.add(plansETag());
+        }
+        mockMvc.perform(delete("/api/trip-plans/" + plan.getId())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk());
+        eTags.add(plansETag());
+
+        assertEquals(eTags.size(), Set.copyOf(eTags).size(), "ETags repeated: " + eTags);
+
+        // A client holding any earlier tag gets the current list
+        mockMvc.perform(get("/api/trip-plans")
+                .param("noteId", testNoteId.toString())
+                .header("Authorization", "Bearer " + testToken)
+                .header("If-None-Match", eTags.get(1)))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void listingPlansDoesNotLoadPlanContent() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        tripPlanRepository.save(new TripPlan(testUserId, note.getId(), LONG_PLAN));
+
+        CapturingStatementInspector.clear();
+        mockMvc.perform(get("/api/trip-plans")
+                .param("noteId", note.getId().toString())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].preview", is("Day 1: Old town")))
+            .andExpect(jsonPath("$[0].contentLength", is(LONG_PLAN.length())))
+            .andExpect(jsonPath("$[0].planContent").doesNotExist());
+
+        for (String sql : CapturingStatementInspector.statements()) {
+            String remaining = CONTENT_FUNCTION.matcher(sql).replaceAll("");
+            assertFalse(remaining.toLowerCase().contains("plancontent"), () -> "Plan content selected by: " + sql);
+        }
+    }
+
+    @Test
+    void getPlanByIdReturnsLazilyLoadedContent() throws Exception {
+        TripPlan plan = tripPlanRepository.save(new TripPlan(testUserId, testNoteId, LONG_PLAN));
+
+        // With bytecode enhancement the content is only fetched on first access
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            TripPlan loaded = entityManager.find(TripPlan.class, plan.getId());
+            assertFalse(entityManagerFactory.getPersistenceUnitUtil().isLoaded(loaded, "planContent"));
+            assertEquals(LONG_PLAN, loaded.getPlanContent());
+        } finally {
+            entityManager.close();
+        }
+
+        mockMvc.perform(get("/api/trip-plans/" + plan.getId())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id", is(plan.getId().intValue())))
+            .andExpect(jsonPath("$.planContent", is(LONG_PLAN)));
+    }
+
+    @Test
+    void planStatsReportTheMostRecentlyCreatedPlan() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        Note noteWithoutPlans = noteRepository.save(new Note(testUserId, "Porto", "Wine cellars"));
+
+        TripPlan newest = ratedPlan(note.getId(), 5);
+        ratedPlan(note.getId(), 2);
+        ratedPlan(note.getId(), null);
+        tripPlanRepository.save(new TripPlan("other-user-456", note.getId(), "Day 1: Not counted"));
+        // The other plans have higher IDs but were generated earlier - "latest" goes by creation time
+        jdbcTemplate.update("UPDATE trip_plans SET createdAt = ? WHERE noteId = ? AND id <> ?",
+            LocalDateTime.now().minusDays(1), note.getId(), newest.getId());
+
+        String stats = "$.stats['" + note.getId() + "']";
+        String empty = "$.stats['" + noteWithoutPlans.getId() + "']";
+        mockMvc.perform(get("/api/trip-plans/stats")
+                .param("noteIds", note.getId().toString(), noteWithoutPlans.getId().toString())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath(stats + ".planCount", is(3)))
+            .andExpect(jsonPath(stats + ".latestPlanId", is(newest.getId().intValue())))
+            .andExpect(jsonPath(stats + ".latestRating", is(5)))
+            .andExpect(jsonPath(stats + ".averageRating", closeTo(3.5, 0.001)))
+            .andExpect(jsonPath(empty + ".planCount", is(0)))
+            .andExpect(jsonPath(empty + ".latestPlanId", nullValue()));
+    }
+
+    @Test
+    void plansOfDeletedNoteAreNotFound() throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        TripPlan plan = tripPlanRepository.save(new TripPlan(testUserId, note.getId(), "Day 1: Alfama"));
+        // Soft-deleted, the purge job hasn't run yet
+        jdbcTemplate.update("UPDATE notes SET deletedAt = ? WHERE id = ?", LocalDateTime.now(), note.getId());
+
+        mockMvc.perform(get("/api/trip-plans/" + plan.getId())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isNotFound());
+
+        mockMvc.perform(put("/api/trip-plans/" + plan.getId() + "/rate")
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"rating\":5}"))
+            .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/trip-plans/stats")
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.stats['" + note.getId() + "']").doesNotExist());
+    }
+
+    private TripPlan ratedPlan(Long noteId, Integer rating) {
+        TripPlan plan = new TripPlan(testUserId, noteId, "Day 1: Old town");
+        plan.setRating(rating);
+        return tripPlanRepository.save(plan);
+    }
+
+    /**
+     * Save a plan generated by the given model and rate it through the API, so the aggregates count it
+     */
+    private String plansETag() throws Exception {
+        return mockMvc.perform(get("/api/trip-plans")
+                .param("noteId", testNoteId.toString())
+                .header("Authorization", "Bearer " + testToken))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+    }
+
+    private TripPlan planRatedThroughApi(String model, int rating) throws Exception {
+        Note note = noteRepository.save(new Note(testUserId, "Lisbon", "Old town, river"));
+        TripPlan plan = new TripPlan(testUserId, note.getId(), "Day 1: Old town");
+        plan.setModel(model);
+        plan = tripPlanRepository.save(plan);
+
+        mockMvc.perform(put("/api/trip-plans/" + plan.getId() + "/rate")
+                .header("Authorization", "Bearer " + testToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"rating\":" + rating + "}"))
+            .andExpect(status().isOk());
+        return plan;
+    }
+}
@@ -0,0 +1,114 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.util.CapturingStatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that the key repository queries are answered from the indexes
+ * created by the Flyway migrations instead of full table scans (H2 EXPLAIN).
+ * Each test calls the repository method and explains the SQL Hibernate actually ran,
+ * captured by {@link CapturingStatementInspector}, so a changed query is checked as it is.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "eu.robm15.tenxdevs.util.CapturingStatementInspector"
+})
+public class QueryPlanTest {
+
+    private static final LocalDateTime SINCE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+
+    @Test
+    void findNotesByUserOrderedByCreationUsesIndex() {
+        String sql = capture(() -> noteRepository.findSummariesByUserId("u", Limit.of(21)));
+        assertThat(explain(sql, "u", 21), containsStringIgnoringCase("idx_notes_user_created"));
+    }
+
+    @Test
+    void findNextNotesPageUsesIndex() {
+        String sql = capture(() -> noteRepository.findSummariesByUserIdAfter("u", SINCE, 10L, Limit.of(21)));
+        assertThat(explain(sql, "u", SINCE, SINCE, 10L, 21), containsStringIgnoringCase("idx_notes_user_created"));
+    }
+
+    @Test
+    void findNoteByIdAndUserUsesPrimaryKey() {
+        String sql = capture(() -> noteRepository.findByIdAndUserId(1L, "u"));
+        assertThat(explain(sql, 1L, "u"), containsStringIgnoringCase("primary_key"));
+    }
+
+    @Test
+    void findPlansByNoteUsesIndex() {
+        String sql = capture(() -> tripPlanRepository.findSummariesByNoteId(1L, Limit.of(21)));
+        assertThat(explain(sql, 1L, 1L, 21), containsStringIgnoringCase("idx_trip_plans_note_created"));
+    }
+
+    @Test
+    void findPlansByUserAndNoteUsesIndex() {
+        String sql = capture(() -> tripPlanRepository.findByUserIdAndNoteId("u", 1L));
+        assertThat(explain(sql, "u", 1L), containsStringIgnoringCase("idx_trip_plans_user_note"));
+    }
+
+    @Test
+    void planStatsPerNoteUsesIndex() {
+        String sql = capture(() -> tripPlanRepository.findPlanStats("u", List.of(1L, 2L, 3L)));
+        assertThat(explain(sql, "u", 1L, 2L, 3L, "u", 1L, 2L, 3L), containsStringIgnoringCase("idx_trip_plans_user_note"));
+    }
+
+    @Test
+    void countPlansByUserSinceDateUsesIndex() {
+        String sql = capture(() -> tripPlanRepository.countByUserIdAndCreatedAtAfter("u", SINCE));
+        assertThat(explain(sql, "u", SINCE), containsStringIgnoringCase("idx_trip_plans_user_created"));
+    }
+
+    @Test
+    void countGenerationsPerUserForRollupUsesIndex() {
+        String sql = capture(() -> tripPlanRepository.countGenerationsPerUser(SINCE, SINCE.plusDays(1)));
+        assertThat(explain(sql, SINCE, SINCE.plusDays(1)), containsStringIgnoringCase("idx_trip_plans_created"));
+    }
+
+    /**
+     * Run a repository call and return the one SQL statement it executed
+     */
+    private static String capture(Runnable repositoryCall) {
+        CapturingStatementInspector.clear();
+        repositoryCall.run();
+        List<String> statements = CapturingStatementInspector.statements();
+        assertEquals(1, statements.size(), () -> "Expected one statement, got " + statements);
+        return statements.get(0);
+    }
+
+    /**
+     * EXPLAIN the statement with the given values bound to its parameters, in order
+     */
+    private String explain(String sql, Object... parameters) {
+        long placeholders = sql.chars().filter(c -> c == '?').count();
+        assertEquals(parameters.length, placeholders, () -> "Parameter count doesn't match: " + sql);
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+    }
+}
@@ -0,0 +1,63 @@
+package eu.robm15.tenxdevs.repository;
+
+import eu.robm15.tenxdevs.model.FoodPreference;
+import eu.robm15.tenxdevs.model.Interest;
+import eu.robm15.tenxdevs.model.TravelPreferences;
+import eu.robm15.tenxdevs.model.Transport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Multi-select preferences are stored as bitmask columns on travel_preferences.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7"
+})
+public class TravelPreferencesRepositoryTest {
+
+    @Autowired
+    private TravelPreferencesRepository travelPreferencesRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        travelPreferencesRepository.deleteAll();
+    }
+
+    @Test
+    void multiSelectsRoundTripThroughBitmaskColumns() {
+        TravelPreferences preferences = new TravelPreferences();
+        preferences.setUserId("bitmask-user");
+        preferences.setInterests(Set.of(Interest.CULTURE, Interest.HISTORY));
+        preferences.setTransport(Set.of(Transport.TRAIN));
+        preferences.setFoodPreferences(Set.of());
+        travelPreferencesRepository.save(preferences);
+
+        Integer interests = jdbcTemplate.queryForObject(
+            "SELECT interests FROM travel_preferences WHERE userId = 'bitmask-user'", Integer.class);
+        assertEquals((1 << Interest.CULTURE.ordinal()) | (1 << Interest.HISTORY.ordinal()), interests);
+
+        TravelPreferences loaded = travelPreferencesRepository.findByUserId("bitmask-user").orElseThrow();
+        assertEquals(EnumSet.of(Interest.CULTURE, Interest.HISTORY), loaded.getInterests());
+        assertEquals(EnumSet.of(Transport.TRAIN), loaded.getTransport());
+        assertTrue(loaded.getFoodPreferences().isEmpty());
+        assertEquals(EnumSet.noneOf(FoodPreference.class), loaded.getFoodPreferences());
+    }
+}
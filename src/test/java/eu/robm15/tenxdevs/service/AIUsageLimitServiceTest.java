@@ -0,0 +1,74 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.util.UsageDays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The daily quota counts UTC days, the same for every user.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "ai.usage.limit.daily=2"
+})
+public class AIUsageLimitServiceTest {
+
+    private static final String USER_ID = "utc-quota-user";
+
+    @Autowired
+    private AIUsageLimitService aiUsageLimitService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM usage_counters WHERE user_id = ?", USER_ID);
+    }
+
+    @Test
+    void quotaIsCountedOnTheUtcDay() {
+        assertEquals(Optional.of(UsageDays.today()), aiUsageLimitService.tryReserve(USER_ID));
+        assertEquals(Optional.of(UsageDays.today()), aiUsageLimitService.tryReserve(USER_ID));
+        assertTrue(aiUsageLimitService.tryReserve(USER_ID).isEmpty());
+        assertEquals(0, aiUsageLimitService.getRemainingUsage(USER_ID));
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+            "SELECT used FROM usage_counters WHERE user_id = ? AND usage_date = ?",
+            Integer.class, USER_ID, UsageDays.today()));
+    }
+
+    @Test
+    void releaseRefundsTheChargedDay() {
+        LocalDate yesterday = UsageDays.today().minusDays(1);
+        jdbcTemplate.update("INSERT INTO usage_counters (user_id, usage_date, used) VALUES (?, ?, 1)",
+            USER_ID, yesterday);
+        LocalDate charged = aiUsageLimitService.tryReserve(USER_ID).orElseThrow();
+
+        // A generation that started before midnight UTC is refunded to that day, not today
+        aiUsageLimitService.releaseReservation(USER_ID, yesterday);
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT used FROM usage_counters WHERE user_id = ? AND usage_date = ?",
+            Integer.class, USER_ID, yesterday));
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "SELECT used FROM usage_counters WHERE user_id = ? AND usage_date = ?",
+            Integer.class, USER_ID, charged));
+        assertEquals(1, aiUsageLimitService.getTodayUsageCount(USER_ID));
+    }
+}
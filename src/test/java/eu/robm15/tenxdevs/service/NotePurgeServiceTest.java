@@ -0,0 +1,158 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.RatingAggregate;
+import eu.robm15.tenxdevs.model.RatingDimension;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.repository.NotePurgeJobRepository;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.repository.RatingAggregateRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deleting a note hides it at once; its plans and the row are removed by the purge job.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "notes.purge.batch-size=2",
+    "notes.purge.batch-pause-ms=0"
+})
+public class NotePurgeServiceTest {
+
+    private static final String USER_ID = "purge-user";
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NotePurgeService notePurgeService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+
+    @Autowired
+    private NotePurgeJobRepository notePurgeJobRepository;
+
+    @Autowired
+    private TripPlanService tripPlanService;
+
+    @Autowired
+    private RatingAggregateRepository ratingAggregateRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        notePurgeJobRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM scheduled_job_locks");
+        tripPlanRepository.deleteAll();
+        noteRepository.deleteAll();
+    }
+
+    @Test
+    void deletedNoteIsHiddenThenPurgedWithItsPlans() {
+        Note note = noteService.createNote(USER_ID, "Lisbon", "Trams and pastries");
+        for (int i = 0; i < 5; i++) {
+            tripPlanRepository.save(new TripPlan(USER_ID, note.getId(), "Plan " + i));
+        }
+
+        assertTrue(noteService.deleteNote(note.getId(), USER_ID));
+        assertTrue(noteService.getNoteByIdAndUserId(note.getId(), USER_ID).isEmpty());
+        assertFalse(noteService.deleteNote(note.getId(), USER_ID));
+        assertTrue(notePurgeJobRepository.existsById(note.getId()));
+
+        // 5 plans in batches of 2: three batches, the last one short
+        assertEquals(1, notePurgeService.purge());
+
+        assertEquals(0, tripPlanRepository.findByUserIdAndNoteId(USER_ID, note.getId()).size());
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notes WHERE id = ?", Integer.class, note.getId()));
+        assertFalse(notePurgeJobRepository.existsById(note.getId()));
+    }
+
+    @Test
+    void purgedPlansLeaveTheRatingAggregates() {
+        String model = "purge-model-" + System.nanoTime();
+        Note note = noteService.createNote(USER_ID, "Madrid", "Prado, tapas");
+        int[] ratings = {5, 3, 4};
+        for (int rating : ratings) {
+            TripPlan plan = new TripPlan(USER_ID, note.getId(), "Plan rated " + rating);
+            plan.setModel(model);
+            plan = tripPlanRepository.save(plan);
+            assertEquals(1, tripPlanService.ratePlan(plan.getId(), USER_ID, rating));
+        }
+        tripPlanRepository.save(new TripPlan(USER_ID, note.getId(), "Unrated plan"));
+        assertEquals(3, aggregate(model).getRatingCount());
+
+        assertTrue(noteService.deleteNote(note.getId(), USER_ID));
+        assertEquals(1, notePurgeService.purge());
+
+        RatingAggregate aggregate = aggregate(model);
+        assertEquals(0, aggregate.getRatingCount());
+        assertEquals(0, aggregate.getRatingSum());
+        assertArrayEquals(new long[5], aggregate.getHistogram());
+    }
+
+    @Test
+    void sweepEnqueuesPlansOfMissingNotes() {
+        Note note = noteService.createNote(USER_ID, "Porto", "Port wine cellars");
+        tripPlanRepository.save(new TripPlan(USER_ID, note.getId(), "Kept"));
+        TripPlan orphan = tripPlanRepository.save(new TripPlan(USER_ID, note.getId() + 1000, "Orphan"));
+
+        assertEquals(1, notePurgeService.sweepOrphans());
+        notePurgeService.purge();
+
+        assertFalse(tripPlanRepository.existsById(orphan.getId()));
+        assertEquals(1, tripPlanRepository.findByUserIdAndNoteId(USER_ID, note.getId()).size());
+    }
+
+    @Test
+    void purgeIsSkippedWhileAnotherNodeRunsIt() {
+        Note note = noteService.createNote(USER_ID, "Rome", "Colosseum");
+        tripPlanRepository.save(new TripPlan(USER_ID, note.getId(), "Plan"));
+        assertTrue(noteService.deleteNote(note.getId(), USER_ID));
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO scheduled_job_locks (name, locked_until, locked_at, locked_by) " +
+            "VALUES ('note-purge', ?, ?, 'other-node')", now.plusMinutes(10), now);
+
+        assertEquals(0, notePurgeService.purge());
+        assertTrue(notePurgeJobRepository.existsById(note.getId()));
+
+        // The other node died - its claim expires
+        jdbcTemplate.update("UPDATE scheduled_job_locks SET locked_until = ? WHERE name = 'note-purge'", now);
+
+        assertEquals(1, notePurgeService.purge());
+        assertFalse(notePurgeJobRepository.existsById(note.getId()));
+        // Released after the run, so the next run on any node may claim it
+        assertTrue(jdbcTemplate.queryForObject(
+            "SELECT locked_until FROM scheduled_job_locks WHERE name = 'note-purge'", LocalDateTime.class)
+            .isBefore(LocalDateTime.now().plusSeconds(1)));
+    }
+
+    private RatingAggregate aggregate(String model) {
+        return ratingAggregateRepository.findById(new RatingAggregate.Key(RatingDimension.MODEL, model)).orElseThrow();
+    }
+}
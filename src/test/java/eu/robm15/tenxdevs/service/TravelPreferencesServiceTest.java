@@ -0,0 +1,56 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.model.Budget;
+import eu.robm15.tenxdevs.model.TravelPreferences;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cached preference snapshots expire, so a change made on another node (which can't evict
+ * this node's cache) shows up within preferences.cache.expire-after-write.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "preferences.cache.expire-after-write=200ms"
+})
+public class TravelPreferencesServiceTest {
+
+    private static final String USER_ID = "snapshot-ttl-user";
+
+    @Autowired
+    private TravelPreferencesService preferencesService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        preferencesService.deletePreferences(USER_ID);
+    }
+
+    @Test
+    void snapshotChangedByAnotherNodeIsReloadedAfterExpiry() throws Exception {
+        TravelPreferences preferences = new TravelPreferences();
+        preferences.setBudget(Budget.BUDGET);
+        preferencesService.savePreferences(USER_ID, preferences, null);
+        assertEquals(Budget.BUDGET, preferencesService.getPreferencesSnapshot(USER_ID).orElseThrow().budget());
+
+        // Written past this node's service, as another node would
+        jdbcTemplate.update("UPDATE travel_preferences SET budget = ?, version = version + 1 WHERE userId = ?",
+            Budget.LUXURY.name(), USER_ID);
+
+        Thread.sleep(300);
+        assertEquals(Budget.LUXURY, preferencesService.getPreferencesSnapshot(USER_ID).orElseThrow().budget());
+    }
+}
@@ -0,0 +1,106 @@
+package eu.robm15.tenxdevs.service;
+
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.TripPlan;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.repository.TripPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Old unrated plans move to the archive and stay readable; rating one moves it back.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "trip-plans.archive.after=30d",
+    "trip-plans.archive.batch-size=2",
+    "trip-plans.archive.batch-pause-ms=0"
+})
+public class TripPlanRetentionServiceTest {
+
+    private static final String USER_ID = "retention-user";
+
+    @Autowired
+    private TripPlanRetentionService tripPlanRetentionService;
+
+    @Autowired
+    private TripPlanService tripPlanService;
+
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long noteId;
+
+    @BeforeEach
+    void setUp() {
+        tripPlanRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM trip_plans_archive");
+        // Plans of missing or deleted notes are hidden and never restored, so the plans need a live note
+        noteId = noteRepository.save(new Note(USER_ID, "Vienna", "Coffee houses")).getId();
+    }
+
+    @Test
+    void archivesOldUnratedPlansOnly() {
+        TripPlan oldUnrated = savePlan(60, null);
+        TripPlan oldUnrated2 = savePlan(45, null);
+        TripPlan oldUnrated3 = savePlan(40, null);
+        TripPlan oldRated = savePlan(60, 4);
+        TripPlan recent = savePlan(1, null);
+
+        // Batches of 2: a full batch, then a short one
+        assertEquals(3, tripPlanRetentionService.archiveOldPlans());
+
+        assertFalse(tripPlanRepository.existsById(oldUnrated.getId()));
+        assertFalse(tripPlanRepository.existsById(oldUnrated2.getId()));
+        assertFalse(tripPlanRepository.existsById(oldUnrated3.getId()));
+        assertTrue(tripPlanRepository.existsById(oldRated.getId()));
+        assertTrue(tripPlanRepository.existsById(recent.getId()));
+
+        TripPlan archived = tripPlanService.getPlanById(oldUnrated.getId()).orElseThrow();
+        assertEquals("Plan from 60 days ago", archived.getPlanContent());
+        assertEquals(USER_ID, archived.getUserId());
+    }
+
+    @Test
+    void ratingArchivedPlanRestoresIt() {
+        TripPlan plan = savePlan(60, null);
+        tripPlanRetentionService.archiveOldPlans();
+        assertFalse(tripPlanRepository.existsById(plan.getId()));
+
+        assertEquals(0, tripPlanService.ratePlan(plan.getId(), "someone-else", 5));
+        assertEquals(1, tripPlanService.ratePlan(plan.getId(), USER_ID, 5));
+
+        assertEquals(5, tripPlanRepository.findById(plan.getId()).orElseThrow().getRating());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trip_plans_archive", Integer.class));
+    }
+
+    private TripPlan savePlan(int daysAgo, Integer rating) {
+        TripPlan plan = new TripPlan(USER_ID, noteId, "Plan from " + daysAgo + " days ago");
+        plan.setRating(rating);
+        plan = tripPlanRepository.save(plan);
+        jdbcTemplate.update("UPDATE trip_plans SET createdAt = ? WHERE id = ?",
+            LocalDateTime.now().minusDays(daysAgo), plan.getId());
+        return plan;
+    }
+}
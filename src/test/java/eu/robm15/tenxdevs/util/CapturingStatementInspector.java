@@ -0,0 +1,36 @@
+package eu.robm15.tenxdevs.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL of every statement Hibernate prepares on the current thread.
+ * Enable it with the property
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector=eu.robm15.tenxdevs.util.CapturingStatementInspector
+ */
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    /**
+     * Forget the statements recorded so far on this thread
+     */
+    public static void clear() {
+        STATEMENTS.get().clear();
+    }
+
+    /**
+     * @return Statements recorded on this thread since the last {@link #clear()}
+     */
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS.get());
+    }
+}
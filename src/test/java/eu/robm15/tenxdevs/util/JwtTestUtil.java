@@ -7,6 +7,7 @@ import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class JwtTestUtil {
@@ -15,11 +16,26 @@ public class JwtTestUtil {
      * Generates a test JWT token with the given secret
      */
     public static String generateTestToken(String secret, String userId, String email) {
+        return generateTestToken(secret, userId, email, new HashMap<>());
+    }
+
+    /**
+     * Generates a test JWT token whose app_metadata carries the given roles, as set by the Supabase admin API
+     */
+    public static String generateTestTokenWithRoles(String secret, String userId, String email, String... roles) {
+        Map<String, Object> appMetadata = new HashMap<>();
+        appMetadata.put("roles", List.of(roles));
+        return generateTestToken(secret, userId, email, appMetadata);
+    }
+
+    private static String generateTestToken(String secret, String userId, String email,
+                                            Map<String, Object> appMetadata) {
         SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
 
         Map<String, Object> claims = new HashMap<>();
         claims.put("email", email);
         claims.put("role", "authenticated");
+        claims.put("app_metadata", appMetadata);
 
         return Jwts.builder()
             .subject(userId)
@@ -0,0 +1,249 @@
+package eu.robm15.tenxdevs.web;
+
+import eu.robm15.tenxdevs.model.Budget;
+import eu.robm15.tenxdevs.model.Note;
+import eu.robm15.tenxdevs.model.Pace;
+import eu.robm15.tenxdevs.model.Season;
+import eu.robm15.tenxdevs.model.TravelPreferences;
+import eu.robm15.tenxdevs.repository.IdempotencyRecordRepository;
+import eu.robm15.tenxdevs.repository.NoteRepository;
+import eu.robm15.tenxdevs.service.TravelPreferencesService;
+import eu.robm15.tenxdevs.util.JwtTestUtil;
+import eu.robm15.tenxdevs.util.UsageDays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "supabase.url=http://localhost:54321",
+    "supabase.jwt-secret=test-secret-key-must-be-at-least-256-bits-long-for-hs256",
+    "spring.ai.openai.api-key=test-api-key",
+    "spring.ai.openai.chat.options.model=gpt-4",
+    "spring.ai.openai.chat.options.temperature=0.7",
+    "app.idempotency.wait-timeout=2s",
+    "app.idempotency.max-body-size=1KB"
+})
+public class IdempotencyFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TravelPreferencesService preferencesService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${supabase.jwt-secret}")
+    private String jwtSecret;
+
+    private String testUserId = "test-user-123";
+    private String testToken;
+
+    @BeforeEach
+    void setUp() {
+        testToken = JwtTestUtil.generateTestToken(jwtSecret, testUserId, "testuser@example.com");
+
+        noteRepository.deleteAll();
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void retriedNoteCreationIsReplayedWithoutCreatingAnotherNote() throws Exception {
+        String body = "{\"title\":\"Trip to Paris\",\"content\":\"Visit Eiffel Tower and Louvre\"}";
+
+        byte[] first = mockMvc.perform(post("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-paris-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isCreated())
+            .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        byte[] retry = mockMvc.perform(post("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-paris-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isCreated())
+            .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(first, retry);
+        assertEquals(1, noteRepository.count());
+    }
+
+    @Test
+    void keyReusedForDifferentRequestIsRejected() throws Exception {
+        mockMvc.perform(post("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Trip to Paris\",\"content\":\"Louvre\"}"))
+            .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Weekend in Rome\",\"content\":\"Colosseum\"}"))
+            .andExpect(status().isUnprocessableEntity());
+
+        assertEquals(1, noteRepository.count());
+    }
+
+    @Test
+    void concurrentDuplicatesCreateOneNoteAndGetTheSameResponse() throws Exception {
+        String body = "{\"title\":\"Trip to Lisbon\",\"content\":\"Alfama and Belem\"}";
+        int duplicates = 4;
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(duplicates)) {
+            Callable<MockHttpServletResponse> send = () -> {
+                start.await();
+                return mockMvc.perform(post("/api/notes")
+                        .header("Authorization", "Bearer " + testToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-lisbon-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                    .andReturn().getResponse();
+            };
+            for (int i = 0; i < duplicates; i++) {
+                responses.add(executor.submit(send));
+            }
+            start.countDown();
+        }
+
+        byte[] original = null;
+        int replayed = 0;
+        for (Future<MockHttpServletResponse> future : responses) {
+            MockHttpServletResponse response = future.get();
+            assertEquals(201, response.getStatus());
+            if ("true".equals(response.getHeader(IdempotencyFilter.REPLAYED_HEADER))) {
+                replayed++;
+            }
+            if (original == null) {
+                original = response.getContentAsByteArray();
+            } else {
+                assertArrayEquals(original, response.getContentAsByteArray());
+            }
+        }
+
+        assertEquals(duplicates - 1, replayed);
+        assertEquals(1, noteRepository.count());
+    }
+
+    @Test
+    void duplicateOfRequestStillInProgressGetsConflictAfterWaiting() throws Exception {
+        String body = "{\"title\":\"Trip to Porto\",\"content\":\"Ribeira\"}";
+
+        mockMvc.perform(post("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-porto-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isCreated());
+
+        // Put the key back into the state of a request that is still running (no response yet)
+        assertEquals(1, jdbcTemplate.update(
+            "UPDATE idempotency_keys SET response_status = NULL, response_content_type = NULL, " +
+            "response_body = NULL, expires_at = ? WHERE user_id = ? AND idempotency_key = ?",
+            LocalDateTime.now().plusMinutes(5), testUserId, "create-porto-1"));
+
+        mockMvc.perform(post("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-porto-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isConflict())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+            .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+
+        assertEquals(1, noteRepository.count());
+    }
+
+    @Test
+    void bodyOverTheLimitIsRejectedBeforeClaimingTheKey() throws Exception {
+        String body = "{\"title\":\"Long trip\",\"content\":\"" + "x".repeat(2048) + "\"}";
+
+        mockMvc.perform(post("/api/notes")
+                .header("Authorization", "Bearer " + testToken)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "create-long-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().is(413));
+
+        assertEquals(0, idempotencyRecordRepository.count());
+        assertEquals(0, noteRepository.count());
+    }
+
+    @Test
+    void replayRestoresTheHeadersOfTheStoredResponse() throws Exception {
+        String userId = "quota-spent-user";
+        String token = JwtTestUtil.generateTestToken(jwtSecret, userId, "spent@example.com");
+        TravelPreferences preferences = new TravelPreferences();
+        preferences.setBudget(Budget.BUDGET);
+        preferences.setPace(Pace.RELAXED);
+        preferences.setSeason(Season.SUMMER);
+        preferencesService.savePreferences(userId, preferences, null);
+        Note note = noteRepository.save(new Note(userId, "Oslo", "Fjords"));
+        // Daily quota already spent: answered with 400 and X-RateLimit-* headers, which is stored
+        jdbcTemplate.update("DELETE FROM usage_counters WHERE user_id = ?", userId);
+        jdbcTemplate.update("INSERT INTO usage_counters (user_id, usage_date, used) VALUES (?, ?, ?)",
+            userId, UsageDays.today(), 1_000_000);
+
+        String body = "{\"noteId\":" + note.getId() + "}";
+        MockHttpServletResponse first = mockMvc.perform(post("/api/trip-plans/generate")
+                .header("Authorization", "Bearer " + token)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "generate-oslo-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isBadRequest())
+            .andExpect(header().exists("X-RateLimit-Limit"))
+            .andReturn().getResponse();
+
+        mockMvc.perform(post("/api/trip-plans/generate")
+                .header("Authorization", "Bearer " + token)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "generate-oslo-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isBadRequest())
+            .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+            .andExpect(header().string("X-RateLimit-Limit", first.getHeader("X-RateLimit-Limit")))
+            .andExpect(header().string("X-RateLimit-Remaining", first.getHeader("X-RateLimit-Remaining")))
+            .andExpect(header().string("X-RateLimit-Reset", first.getHeader("X-RateLimit-Reset")));
+    }
+}